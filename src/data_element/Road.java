@@ -8,6 +8,8 @@ public class Road implements Comparable<Road>{
 	private Town source, destination;
 	private int weight;
 	private String name;
+	private int[] profileTimes;
+	private int[] profileMinutes;
 	/**
 	 * Constructor to initialize a new Road.
 	 * 
@@ -74,6 +76,48 @@ public class Road implements Comparable<Road>{
 		return weight;
 	}
 	
+	/**
+	 * Set the distance of the current road in miles. The weight takes no part
+	 * in equals or hashCode, so a road can change weight while in a set.
+	 * 
+	 * @param weight The new distance of the road.
+	 */
+	public void setWeight(int weight) {
+		this.weight = weight;
+	}
+	
+	/**
+	 * Give the road a travel time that depends on the time of day, as
+	 * breakpoint times in minutes after midnight and the minutes it takes to
+	 * travel the road when leaving at each of them. The arrays are kept, not
+	 * copied.
+	 * 
+	 * @param times The breakpoint times, or null to remove the profile.
+	 * @param minutes The travel time at each breakpoint, or null.
+	 */
+	public void setProfile(int[] times, int[] minutes) {
+		this.profileTimes = times;
+		this.profileMinutes = minutes;
+	}
+	
+	/**
+	 * Get the breakpoint times of the travel time profile of the road.
+	 * 
+	 * @return The times, or null if the road has no profile.
+	 */
+	public int[] getProfileTimes() {
+		return profileTimes;
+	}
+	
+	/**
+	 * Get the travel times at the breakpoints of the profile of the road.
+	 * 
+	 * @return The minutes, or null if the road has no profile.
+	 */
+	public int[] getProfileMinutes() {
+		return profileMinutes;
+	}
+	
 	/**
 	 * Get the name of the current road.
 	 * 
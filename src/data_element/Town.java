@@ -7,8 +7,12 @@ package data_element;
  */
 
 public class Town implements Comparable<Town>{
+	/**
+	 * The distance of a town that has not been reached from the source.
+	 */
+	public static final int MAX_DISTANCE = 9999999;
 	private String name;
-	private int distance = 9999999;
+	private int distance = MAX_DISTANCE;
 	private Town pred;
 	
 	/**
@@ -0,0 +1,69 @@
+package data_element;
+/**
+ * A source and destination town, by name, for batch path queries.
+ * @author Ryan Koepke
+ *
+ */
+public class TownPair {
+	private final String source;
+	private final String destination;
+
+	/**
+	 * Constructor to initialize a new TownPair.
+	 *
+	 * @param source Name of the town the path starts at.
+	 * @param destination Name of the town the path ends at.
+	 */
+	public TownPair(String source, String destination) {
+		if(source == null || destination == null) {
+			throw new NullPointerException();
+		}
+		this.source = source;
+		this.destination = destination;
+	}
+
+	/**
+	 * Get the name of the source town.
+	 * @return The source name.
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * Get the name of the destination town.
+	 * @return The destination name.
+	 */
+	public String getDestination() {
+		return destination;
+	}
+
+	/**
+	 * Check if two pairs have the same source and destination.
+	 * @param o The object to compare with.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof TownPair)) {
+			return false;
+		}
+		TownPair other = (TownPair) o;
+		return source.equals(other.source) && destination.equals(other.destination);
+	}
+
+	/**
+	 * HashCode of the source and destination names.
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * source.hashCode() + destination.hashCode();
+	}
+
+	/**
+	 * Display the pair as source to destination.
+	 */
+	@Override
+	public String toString() {
+		return source + " to " + destination;
+	}
+}
@@ -0,0 +1,387 @@
+package data_manager;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import data_element.Town;
+import data_structure.TownGraph;
+/**
+ * Loads a name,miles;town1;town2 road file of any size into a TownGraph using
+ * every core.
+ *
+ * The file is memory mapped with FileChannel.map and cut into chunks whose
+ * boundaries are moved forward to the next newline, so no line is split. Each
+ * chunk is parsed on its own ForkJoinPool worker straight from the mapped
+ * bytes into local int buffers of town ids, miles and road names. Town names
+ * are interned through a ConcurrentHashMap, with a per-chunk cache in front of
+ * it so a hot town costs one shared lookup per chunk. Finally the towns are
+ * renumbered in the order they first appear in the file and all roads go into
+ * the graph with one TownGraph.addRoads call, giving the same graph as the
+ * line by line loader.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class MappedRoadFileLoader {
+	/**
+	 * The largest chunk mapped at once.
+	 */
+	private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+	private final ForkJoinPool pool;
+	private final int chunksPerWorker;
+	private volatile int lastChunkCount;
+
+	/**
+	 * Constructor for a loader on the common ForkJoinPool.
+	 */
+	public MappedRoadFileLoader() {
+		this(ForkJoinPool.commonPool(), 4);
+	}
+
+	/**
+	 * Constructor for a loader on the given pool.
+	 *
+	 * @param pool The pool that parses the chunks.
+	 * @param chunksPerWorker How many chunks to cut per worker, more evening out
+	 * chunks that parse at different speeds.
+	 */
+	public MappedRoadFileLoader(ForkJoinPool pool, int chunksPerWorker) {
+		this.pool = pool;
+		this.chunksPerWorker = Math.max(1, chunksPerWorker);
+	}
+
+	/**
+	 * Load every good line of a file into a graph.
+	 *
+	 * @param file The road file.
+	 * @param graph The graph to add the towns and roads to.
+	 * @return The number of roads added.
+	 * @throws FileNotFoundException if the file cannot be opened.
+	 * @throws TownFileFormatException if some lines were bad, after every good
+	 * line has been loaded.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public int load(File file, TownGraph graph) throws IOException {
+		if(!file.isFile()) {
+			throw new FileNotFoundException(file.getPath());
+		}
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long[] bounds = chunkBounds(channel);
+			ConcurrentHashMap<String, Integer> dictionary = new ConcurrentHashMap<String, Integer>();
+			AtomicInteger nextId = new AtomicInteger();
+			ArrayList<Callable<Chunk>> tasks = new ArrayList<Callable<Chunk>>();
+			for(int c = 0; c + 1 < bounds.length; c++) {
+				long start = bounds[c];
+				long length = bounds[c + 1] - start;
+				tasks.add(() -> parse(channel.map(FileChannel.MapMode.READ_ONLY, start, length), dictionary, nextId));
+			}
+			Chunk[] chunks = new Chunk[tasks.size()];
+			lastChunkCount = chunks.length;
+			List<Future<Chunk>> parsed = pool.invokeAll(tasks);
+			for(int c = 0; c < chunks.length; c++) {
+				try {
+					chunks[c] = parsed.get(c).get();
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				} catch(ExecutionException e) {
+					if(e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return build(chunks, dictionary, nextId.get(), graph);
+		}
+	}
+
+	/**
+	 * Get the number of chunks the last load was cut into and parsed as
+	 * separate tasks.
+	 *
+	 * @return The chunk count, 0 before the first load.
+	 */
+	public int getLastChunkCount() {
+		return lastChunkCount;
+	}
+
+	/**
+	 * Cut the file into chunks of about equal size that end just after a
+	 * newline, or at the end of the file.
+	 *
+	 * @return The start of every chunk followed by the file size.
+	 */
+	private long[] chunkBounds(FileChannel channel) throws IOException {
+		long size = channel.size();
+		int wanted = (int) Math.max(Math.max(1, pool.getParallelism() * chunksPerWorker), (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+		long step = Math.max(1, size / wanted);
+		long[] bounds = new long[wanted + 1];
+		int count = 1;
+		ByteBuffer one = ByteBuffer.allocate(4096);
+		for(int i = 1; i < wanted; i++) {
+			long pos = Math.max(bounds[count - 1], i * step);
+			pos = nextLineStart(channel, pos, size, one);
+			if(pos > bounds[count - 1] && pos < size) {
+				bounds[count++] = pos;
+			}
+		}
+		bounds[count++] = size;
+		return Arrays.copyOf(bounds, count);
+	}
+
+	/**
+	 * Find the first position after pos - 1 that starts a line.
+	 */
+	private static long nextLineStart(FileChannel channel, long pos, long size, ByteBuffer buf) throws IOException {
+		if(pos == 0) {
+			return 0;
+		}
+		long at = pos - 1;
+		while(at < size) {
+			buf.clear();
+			int n = channel.read(buf, at);
+			if(n <= 0) {
+				break;
+			}
+			for(int i = 0; i < n; i++) {
+				if(buf.get(i) == '\n') {
+					return at + i + 1;
+				}
+			}
+			at += n;
+		}
+		return size;
+	}
+
+	/**
+	 * Parse the lines of one chunk into local buffers.
+	 */
+	private static Chunk parse(MappedByteBuffer bytes, ConcurrentHashMap<String, Integer> dictionary, AtomicInteger nextId) {
+		Chunk chunk = new Chunk();
+		HashMap<String, Integer> local = new HashMap<String, Integer>();
+		byte[] text = new byte[256];
+		int limit = bytes.limit();
+		int start = 0;
+		while(start < limit) {
+			int end = start;
+			while(end < limit && bytes.get(end) != '\n') {
+				end++;
+			}
+			int next = end + 1;
+			if(end > start && bytes.get(end - 1) == '\r') {
+				end--;
+			}
+			chunk.lines++;
+			int length = end - start;
+			if(text.length < length) {
+				text = new byte[Math.max(length, text.length * 2)];
+			}
+			bytes.get(start, text, 0, length);
+			String error = parseLine(text, length, chunk, local, dictionary, nextId);
+			if(error != null && !error.isEmpty()) {
+				chunk.error(chunk.lines, error);
+			}
+			start = next;
+		}
+		return chunk;
+	}
+
+	/**
+	 * Split one line by hand and append its road to the chunk.
+	 *
+	 * @return null if a road was added, an empty string for a blank line, or
+	 * what is wrong with the line.
+	 */
+	private static String parseLine(byte[] text, int length, Chunk chunk, HashMap<String, Integer> local,
+			ConcurrentHashMap<String, Integer> dictionary, AtomicInteger nextId) {
+		int first = indexOf(text, (byte) ';', 0, length);
+		if(first < 0) {
+			for(int i = 0; i < length; i++) {
+				if(text[i] > ' ') {
+					return "expected name,miles;town1;town2";
+				}
+			}
+			return "";
+		}
+		int second = indexOf(text, (byte) ';', first + 1, length);
+		if(second < 0) {
+			return "missing second town";
+		}
+		if(indexOf(text, (byte) ';', second + 1, length) >= 0) {
+			return "too many fields";
+		}
+		int comma = -1;
+		for(int i = first - 1; i >= 0; i--) {
+			if(text[i] == ',') {
+				comma = i;
+				break;
+			}
+		}
+		if(comma < 0 || comma + 1 == first) {
+			return "missing miles after road name";
+		}
+		int miles = 0;
+		for(int i = comma + 1; i < first; i++) {
+			int c = text[i];
+			if(c < '0' || c > '9') {
+				return "miles is not a whole number: " + new String(text, comma + 1, first - comma - 1, StandardCharsets.UTF_8);
+			}
+			miles = miles * 10 + (c - '0');
+			if(miles > Town.MAX_DISTANCE) {
+				return "miles is too large: " + new String(text, comma + 1, first - comma - 1, StandardCharsets.UTF_8);
+			}
+		}
+		if(second == first + 1 || second + 1 == length) {
+			return "empty town name";
+		}
+		int source = intern(new String(text, first + 1, second - first - 1, StandardCharsets.UTF_8), local, dictionary, nextId);
+		int destination = intern(new String(text, second + 1, length - second - 1, StandardCharsets.UTF_8), local, dictionary, nextId);
+		chunk.add(source, destination, miles, new String(text, 0, comma, StandardCharsets.UTF_8));
+		return null;
+	}
+
+	/**
+	 * Get the shared id of a town name, trying the chunk's own cache first.
+	 */
+	private static int intern(String name, HashMap<String, Integer> local, ConcurrentHashMap<String, Integer> dictionary,
+			AtomicInteger nextId) {
+		Integer id = local.get(name);
+		if(id == null) {
+			id = dictionary.computeIfAbsent(name, k -> nextId.getAndIncrement());
+			local.put(name, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Find a byte between from and to, or -1.
+	 */
+	private static int indexOf(byte[] text, byte b, int from, int to) {
+		for(int i = from; i < to; i++) {
+			if(text[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Renumber the towns by first appearance, concatenate the chunks and add
+	 * everything to the graph in one call, then report the bad lines.
+	 */
+	private static int build(Chunk[] chunks, ConcurrentHashMap<String, Integer> dictionary, int townCount, TownGraph graph)
+			throws TownFileFormatException {
+		String[] names = new String[townCount];
+		for(Map.Entry<String, Integer> e : dictionary.entrySet()) {
+			names[e.getValue()] = e.getKey();
+		}
+		int roads = 0;
+		for(Chunk chunk : chunks) {
+			roads += chunk.count;
+		}
+		int[] order = new int[townCount];
+		Arrays.fill(order, -1);
+		Town[] towns = new Town[townCount];
+		int[] sources = new int[roads];
+		int[] destinations = new int[roads];
+		int[] weights = new int[roads];
+		String[] roadNames = new String[roads];
+		int r = 0;
+		int seen = 0;
+		for(Chunk chunk : chunks) {
+			for(int i = 0; i < chunk.count; i++, r++) {
+				int s = chunk.sources[i];
+				int d = chunk.destinations[i];
+				if(order[s] < 0) {
+					towns[seen] = new Town(names[s]);
+					order[s] = seen++;
+				}
+				if(order[d] < 0) {
+					towns[seen] = new Town(names[d]);
+					order[d] = seen++;
+				}
+				sources[r] = order[s];
+				destinations[r] = order[d];
+				weights[r] = chunk.weights[i];
+				roadNames[r] = chunk.names[i];
+			}
+		}
+		int added = graph.addRoads(Arrays.copyOf(towns, seen), sources, destinations, weights, roadNames, roads);
+		ArrayList<String> errors = new ArrayList<String>();
+		int errorCount = 0;
+		int lineBase = 0;
+		for(Chunk chunk : chunks) {
+			for(int i = 0; i < chunk.errorCount; i++) {
+				errorCount++;
+				if(i < chunk.errorMessages.size() && errors.size() < TownGraphManager.MAX_REPORTED_ERRORS) {
+					errors.add("line " + (lineBase + chunk.errorLines[i]) + ": " + chunk.errorMessages.get(i));
+				}
+			}
+			lineBase += chunk.lines;
+		}
+		if(errorCount > 0) {
+			throw new TownFileFormatException(errors, errorCount, roads);
+		}
+		return added;
+	}
+
+	/**
+	 * The roads and bad lines of one chunk, with town ids from the dictionary.
+	 */
+	private static final class Chunk {
+		int count;
+		int[] sources = new int[1024];
+		int[] destinations = new int[1024];
+		int[] weights = new int[1024];
+		String[] names = new String[1024];
+		int lines;
+		int errorCount;
+		int[] errorLines = new int[0];
+		ArrayList<String> errorMessages = new ArrayList<String>();
+
+		void add(int source, int destination, int weight, String name) {
+			if(count == sources.length) {
+				int capacity = count * 2;
+				sources = Arrays.copyOf(sources, capacity);
+				destinations = Arrays.copyOf(destinations, capacity);
+				weights = Arrays.copyOf(weights, capacity);
+				names = Arrays.copyOf(names, capacity);
+			}
+			sources[count] = source;
+			destinations[count] = destination;
+			weights[count] = weight;
+			names[count] = name;
+			count++;
+		}
+
+		void error(int line, String message) {
+			if(errorCount < TownGraphManager.MAX_REPORTED_ERRORS) {
+				if(errorLines.length == errorCount) {
+					errorLines = Arrays.copyOf(errorLines, Math.max(8, errorCount * 2));
+				}
+				errorLines[errorCount] = line;
+				errorMessages.add(message);
+			}
+			errorCount++;
+		}
+	}
+}
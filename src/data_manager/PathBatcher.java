@@ -0,0 +1,160 @@
+package data_manager;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import data_element.TownPair;
+/**
+ * Coalesces path queries that arrive at about the same time from the same
+ * source town into one TownGraphManager.getPaths call, so a burst of queries
+ * from a depot costs one search instead of one each.
+ *
+ * The first query for a source opens a batch and becomes its leader. It waits
+ * for the batch window, during which other queries for that source join the
+ * batch, then closes the batch, runs it and completes every query in it. A
+ * query that finds its source's batch already closed opens a new one. A
+ * batch of one goes through getPath and so through the path cache. Meant
+ * to be called from cheap threads, one per request, since every leader sleeps
+ * for the window.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class PathBatcher {
+	private final TownGraphManager manager;
+	private final long windowNanos;
+	private final int maxBatch;
+	private final ConcurrentHashMap<String, Batch> open = new ConcurrentHashMap<String, Batch>();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong queries = new AtomicLong();
+
+	/**
+	 * Constructor to initialize a batcher.
+	 *
+	 * @param manager The manager that answers the batches.
+	 * @param windowMicros How long a leader waits for other queries to join.
+	 * @param maxBatch The number of queries after which a batch is closed
+	 * without waiting out the window.
+	 */
+	public PathBatcher(TownGraphManager manager, long windowMicros, int maxBatch) {
+		this.manager = manager;
+		this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+		this.maxBatch = maxBatch;
+	}
+
+	/**
+	 * Find the shortest path between two towns, batched with any other queries
+	 * from the same source. Blocks until the path is known.
+	 *
+	 * @param source Name of the source town.
+	 * @param destination Name of the destination town.
+	 * @return The path, as from TownGraphManager.getPath.
+	 */
+	public ArrayList<String> getPath(String source, String destination) {
+		queries.incrementAndGet();
+		CompletableFuture<ArrayList<String>> result = new CompletableFuture<ArrayList<String>>();
+		TownPair pair = new TownPair(source, destination);
+		while(true) {
+			Batch batch = open.get(source);
+			if(batch != null) {
+				if(batch.join(pair, result)) {
+					break;
+				}
+				open.remove(source, batch);
+				continue;
+			}
+			batch = new Batch(pair, result);
+			if(open.putIfAbsent(source, batch) == null) {
+				lead(source, batch);
+				break;
+			}
+		}
+		return result.join();
+	}
+
+	/**
+	 * Get the number of batches run so far.
+	 *
+	 * @return The batch count.
+	 */
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	/**
+	 * Get the number of queries answered so far.
+	 *
+	 * @return The query count.
+	 */
+	public long getQueryCount() {
+		return queries.get();
+	}
+
+	/**
+	 * Wait out the window, close the batch and answer it.
+	 */
+	private void lead(String source, Batch batch) {
+		long deadline = System.nanoTime() + windowNanos;
+		long left;
+		while((left = deadline - System.nanoTime()) > 0 && !batch.isFull()) {
+			LockSupport.parkNanos(left);
+		}
+		open.remove(source, batch);
+		batch.close();
+		batches.incrementAndGet();
+		try {
+			if(batch.pairs.size() == 1) {
+				TownPair only = batch.pairs.get(0);
+				batch.results.get(0).complete(manager.getPath(only.getSource(), only.getDestination()));
+				return;
+			}
+			ArrayList<ArrayList<String>> paths = manager.getPaths(batch.pairs);
+			for(int i = 0; i < paths.size(); i++) {
+				batch.results.get(i).complete(paths.get(i));
+			}
+		} catch(RuntimeException e) {
+			for(CompletableFuture<ArrayList<String>> r : batch.results) {
+				r.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * The queries of one source gathered while its batch is open.
+	 */
+	private final class Batch {
+		private final ArrayList<TownPair> pairs = new ArrayList<TownPair>();
+		private final ArrayList<CompletableFuture<ArrayList<String>>> results = new ArrayList<CompletableFuture<ArrayList<String>>>();
+		private final Thread leader = Thread.currentThread();
+		private boolean closed;
+
+		Batch(TownPair pair, CompletableFuture<ArrayList<String>> result) {
+			pairs.add(pair);
+			results.add(result);
+		}
+
+		synchronized boolean join(TownPair pair, CompletableFuture<ArrayList<String>> result) {
+			if(closed || pairs.size() >= maxBatch) {
+				return false;
+			}
+			pairs.add(pair);
+			results.add(result);
+			if(pairs.size() >= maxBatch) {
+				LockSupport.unpark(leader);
+			}
+			return true;
+		}
+
+		synchronized boolean isFull() {
+			return pairs.size() >= maxBatch;
+		}
+
+		synchronized void close() {
+			closed = true;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package data_manager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A bounded least recently used cache of shortest path results, keyed by the
+ * names of the source and destination towns.
+ *
+ * Entries are only valid for the graph version they were computed at. Every
+ * lookup and store passes the current TownGraph version, and the first call
+ * that sees a new version drops the whole cache, so a change to the graph can
+ * never be answered with a stale path. Hits, misses and evictions are counted
+ * to help pick a size.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class PathCache {
+	private final int capacity;
+	private final LinkedHashMap<Key, ArrayList<String>> entries;
+	private long version = -1;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * Constructor to initialize an empty cache.
+	 *
+	 * @param capacity The most paths to keep, 0 to disable caching.
+	 */
+	public PathCache(int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("capacity " + capacity);
+		}
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, ArrayList<String>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, ArrayList<String>> eldest) {
+				if(size() > PathCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Look up the path between two towns.
+	 *
+	 * @param source Name of the source town.
+	 * @param destination Name of the destination town.
+	 * @param graphVersion The current version of the graph.
+	 * @return A copy of the cached path, or null on a miss.
+	 */
+	public synchronized ArrayList<String> get(String source, String destination, long graphVersion) {
+		validate(graphVersion);
+		ArrayList<String> path = entries.get(new Key(source, destination));
+		if(path == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return new ArrayList<String>(path);
+	}
+
+	/**
+	 * Store the path between two towns, evicting the least recently used path if
+	 * the cache is full.
+	 *
+	 * @param source Name of the source town.
+	 * @param destination Name of the destination town.
+	 * @param graphVersion The version of the graph the path was computed on.
+	 * @param path The path. A copy is kept, so the caller may change it.
+	 */
+	public synchronized void put(String source, String destination, long graphVersion, ArrayList<String> path) {
+		validate(graphVersion);
+		if(capacity > 0 && graphVersion == version) {
+			entries.put(new Key(source, destination), new ArrayList<String>(path));
+		}
+	}
+
+	/**
+	 * Drop every cached path. The counters are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Reset the hit, miss, eviction and invalidation counters to zero.
+	 */
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		invalidations = 0;
+	}
+
+	/**
+	 * Get the most paths the cache keeps.
+	 *
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of cached paths.
+	 *
+	 * @return The size of the cache.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the number of lookups that found a path.
+	 *
+	 * @return The hit count.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of lookups that found nothing.
+	 *
+	 * @return The miss count.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of paths dropped to make room for newer ones.
+	 *
+	 * @return The eviction count.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Get the number of times the cache was emptied because the graph changed.
+	 *
+	 * @return The invalidation count.
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Get the share of lookups that were hits.
+	 *
+	 * @return The hit rate between 0 and 1, or 0 before the first lookup.
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "PathCache[size=" + entries.size() + "/" + capacity + ", hits=" + hits + ", misses=" + misses
+				+ ", evictions=" + evictions + ", invalidations=" + invalidations + "]";
+	}
+
+	/**
+	 * Drop every entry if the graph has moved on since they were stored. A call
+	 * with an older version than the cache has seen is ignored, so a slow put
+	 * cannot bring back a path from before a change.
+	 */
+	private void validate(long graphVersion) {
+		if(graphVersion > version) {
+			if(!entries.isEmpty()) {
+				entries.clear();
+				invalidations++;
+			}
+			version = graphVersion;
+		}
+	}
+
+	/**
+	 * A source and destination pair.
+	 */
+	private static final class Key {
+		private final String source;
+		private final String destination;
+
+		Key(String source, String destination) {
+			this.source = source;
+			this.destination = destination;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return source.equals(other.source) && destination.equals(other.destination);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(source, destination);
+		}
+	}
+}
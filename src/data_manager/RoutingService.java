@@ -0,0 +1,328 @@
+package data_manager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import data_element.TownPair;
+/**
+ * A small HTTP service answering route queries from a TownGraphManager, on the
+ * JDK HttpServer. Every response is JSON:
+ *
+ * GET /path?from=A&amp;to=B gives {"from":"A","to":"B","path":[...]}
+ * POST /paths with one "A;B" pair per line gives an array of those objects
+ * GET /town?name=A gives {"name":"A","exists":true}
+ * GET /towns gives the sorted array of town names
+ *
+ * Exchanges run on a fixed pool with one thread per query a batch can hold,
+ * so a full batch can gather while its threads wait out the batch window.
+ * Connections are kept alive, so a client can pipeline requests over one
+ * socket. Concurrent /path queries from the same source are micro-batched by
+ * a PathBatcher into a single search.
+ *
+ * The service only reads from the manager; the graph should not be changed
+ * while it is running.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class RoutingService {
+	/**
+	 * How long, in microseconds, a /path query waits for others from its source.
+	 */
+	public static final long DEFAULT_BATCH_WINDOW_MICROS = 200;
+	/**
+	 * The most queries answered by one batch.
+	 */
+	public static final int DEFAULT_MAX_BATCH = 256;
+
+	private final TownGraphManager manager;
+	private final PathBatcher batcher;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	/**
+	 * Constructor for a service on the given address with the default batching.
+	 *
+	 * @param manager The manager to answer from.
+	 * @param address The address to listen on, port 0 for any free port.
+	 * @throws IOException if the socket cannot be bound.
+	 */
+	public RoutingService(TownGraphManager manager, InetSocketAddress address) throws IOException {
+		this(manager, address, DEFAULT_BATCH_WINDOW_MICROS, DEFAULT_MAX_BATCH);
+	}
+
+	/**
+	 * Constructor for a service on the given address.
+	 *
+	 * @param manager The manager to answer from.
+	 * @param address The address to listen on, port 0 for any free port.
+	 * @param batchWindowMicros How long a /path query waits for others from
+	 * the same source, 0 to only batch queries that arrive together.
+	 * @param maxBatch The most queries answered by one batch.
+	 * @throws IOException if the socket cannot be bound.
+	 */
+	public RoutingService(TownGraphManager manager, InetSocketAddress address, long batchWindowMicros, int maxBatch)
+			throws IOException {
+		this.manager = manager;
+		this.batcher = new PathBatcher(manager, batchWindowMicros, maxBatch);
+		this.server = HttpServer.create(address, 0);
+		this.executor = Executors.newFixedThreadPool(Math.max(maxBatch, Runtime.getRuntime().availableProcessors()));
+		server.setExecutor(executor);
+		server.createContext("/path", new Handler() {
+			@Override
+			String answer(HttpExchange exchange, HashMap<String, String> query) throws IOException {
+				String from = require(query, "from");
+				String to = require(query, "to");
+				return pathJson(from, to, batcher.getPath(from, to));
+			}
+		});
+		server.createContext("/paths", new Handler() {
+			@Override
+			String answer(HttpExchange exchange, HashMap<String, String> query) throws IOException {
+				if(!"POST".equals(exchange.getRequestMethod())) {
+					throw new BadRequest("POST one from;to pair per line");
+				}
+				List<TownPair> pairs = parsePairs(readBody(exchange.getRequestBody()));
+				ArrayList<ArrayList<String>> paths = manager.getPaths(pairs);
+				StringBuilder json = new StringBuilder("[");
+				for(int i = 0; i < pairs.size(); i++) {
+					if(i > 0) {
+						json.append(',');
+					}
+					json.append(pathJson(pairs.get(i).getSource(), pairs.get(i).getDestination(), paths.get(i)));
+				}
+				return json.append(']').toString();
+			}
+		});
+		server.createContext("/town", new Handler() {
+			@Override
+			String answer(HttpExchange exchange, HashMap<String, String> query) throws IOException {
+				String name = require(query, "name");
+				return "{\"name\":" + quote(name) + ",\"exists\":" + manager.containsTown(name) + "}";
+			}
+		});
+		server.createContext("/towns", new Handler() {
+			@Override
+			String answer(HttpExchange exchange, HashMap<String, String> query) throws IOException {
+				return array(manager.allTowns());
+			}
+		});
+	}
+
+	/**
+	 * Start accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stop accepting requests, give the ones in progress up to a second to
+	 * finish, and release the threads.
+	 */
+	public void stop() {
+		server.stop(1);
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Get the port the service listens on, useful after binding to port 0.
+	 *
+	 * @return The port.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Get the batcher that answers /path, for its counters.
+	 *
+	 * @return The batcher.
+	 */
+	public PathBatcher getBatcher() {
+		return batcher;
+	}
+
+	/**
+	 * Read a whole request body as UTF-8.
+	 */
+	private static String readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int n;
+		while((n = in.read(buf)) > 0) {
+			out.write(buf, 0, n);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Split a body of "from;to" lines into pairs, skipping blank lines.
+	 */
+	private static List<TownPair> parsePairs(String body) {
+		ArrayList<TownPair> pairs = new ArrayList<TownPair>();
+		int lineNumber = 0;
+		for(String line : body.split("\r?\n")) {
+			lineNumber++;
+			if(line.trim().isEmpty()) {
+				continue;
+			}
+			int split = line.indexOf(';');
+			if(split < 0) {
+				throw new BadRequest("Line " + lineNumber + " is not a from;to pair");
+			}
+			pairs.add(new TownPair(line.substring(0, split), line.substring(split + 1)));
+		}
+		return pairs;
+	}
+
+	/**
+	 * Parse the query string of a request. A malformed escape is the client's
+	 * fault, so it is a BadRequest rather than an error of the service.
+	 */
+	private static HashMap<String, String> parseQuery(String raw) throws UnsupportedEncodingException {
+		HashMap<String, String> query = new HashMap<String, String>();
+		if(raw == null) {
+			return query;
+		}
+		for(String part : raw.split("&")) {
+			int eq = part.indexOf('=');
+			if(eq > 0) {
+				try {
+					query.put(URLDecoder.decode(part.substring(0, eq), "UTF-8"),
+							URLDecoder.decode(part.substring(eq + 1), "UTF-8"));
+				} catch(IllegalArgumentException e) {
+					throw new BadRequest("Malformed query parameter " + part);
+				}
+			}
+		}
+		return query;
+	}
+
+	/**
+	 * Get a query parameter that must be present.
+	 */
+	private static String require(HashMap<String, String> query, String name) {
+		String value = query.get(name);
+		if(value == null) {
+			throw new BadRequest("Missing parameter " + name);
+		}
+		return value;
+	}
+
+	/**
+	 * Format one path answer.
+	 */
+	private static String pathJson(String from, String to, List<String> path) {
+		return "{\"from\":" + quote(from) + ",\"to\":" + quote(to) + ",\"path\":" + array(path) + "}";
+	}
+
+	/**
+	 * Format a list of strings as a JSON array.
+	 */
+	private static String array(List<String> values) {
+		StringBuilder json = new StringBuilder("[");
+		for(int i = 0; i < values.size(); i++) {
+			if(i > 0) {
+				json.append(',');
+			}
+			json.append(quote(values.get(i)));
+		}
+		return json.append(']').toString();
+	}
+
+	/**
+	 * Quote a string as a JSON string literal.
+	 */
+	static String quote(String value) {
+		StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+			case '"':
+				json.append("\\\"");
+				break;
+			case '\\':
+				json.append("\\\\");
+				break;
+			case '\n':
+				json.append("\\n");
+				break;
+			case '\r':
+				json.append("\\r");
+				break;
+			case '\t':
+				json.append("\\t");
+				break;
+			default:
+				if(c < 0x20) {
+					json.append(String.format("\\u%04x", (int) c));
+				}else {
+					json.append(c);
+				}
+			}
+		}
+		return json.append('"').toString();
+	}
+
+	/**
+	 * A client error, answered with status 400 and the message.
+	 */
+	private static class BadRequest extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		BadRequest(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Parses the query, turns the answer into a JSON response and errors into
+	 * status codes.
+	 */
+	private abstract static class Handler implements HttpHandler {
+		abstract String answer(HttpExchange exchange, HashMap<String, String> query) throws IOException;
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			int status = 200;
+			String body;
+			try {
+				body = answer(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+			} catch(BadRequest e) {
+				status = 400;
+				body = "{\"error\":" + quote(e.getMessage()) + "}";
+			} catch(RuntimeException e) {
+				status = 500;
+				body = "{\"error\":" + quote(String.valueOf(e)) + "}";
+			}
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+			exchange.sendResponseHeaders(status, bytes.length);
+			try(OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package data_manager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+/**
+ * Thrown by TownGraphManager.populateTownGraph after a whole file has been read
+ * when some of its lines could not be loaded. Every good line is loaded all the
+ * same; this lists what went wrong with the others, by line number.
+ * TownGraphManager.applyChanges throws it too, but there a single bad line
+ * means no change is applied.
+ * @author Ryan Koepke
+ *
+ */
+public class TownFileFormatException extends IOException {
+	private static final long serialVersionUID = 1L;
+	private final List<String> errors;
+	private final int errorCount;
+	private final int loaded;
+
+	/**
+	 * Constructor to initialize a new TownFileFormatException.
+	 *
+	 * @param errors One message per bad line kept, each starting with its line number.
+	 * @param errorCount The number of bad lines, which may be more than were kept.
+	 * @param loaded The number of roads that were loaded.
+	 */
+	public TownFileFormatException(List<String> errors, int errorCount, int loaded) {
+		super(errorCount + " bad line" + (errorCount == 1 ? "" : "s") + ", " + loaded + " roads loaded"
+				+ (errors.isEmpty() ? "" : ": " + errors.get(0)));
+		this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+		this.errorCount = errorCount;
+		this.loaded = loaded;
+	}
+
+	/**
+	 * Get the messages of the bad lines, in file order.
+	 * @return The messages kept.
+	 */
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Get the number of bad lines.
+	 * @return The error count.
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Get the number of roads loaded from the good lines.
+	 * @return The road count.
+	 */
+	public int getLoaded() {
+		return loaded;
+	}
+}
@@ -1,15 +1,34 @@
 package data_manager;
 import data_element.Road;
 import data_element.Town;
+import data_element.TownPair;
+import data_structure.ChangeConflictException;
+import data_structure.ChangeLog;
+import data_structure.CsrTownGraph;
+import data_structure.DistanceMatrix;
+import data_structure.FacilityAssignment;
+import data_structure.RouteConstraints;
+import data_structure.SearchMode;
 import data_structure.TownGraph;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.Scanner;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import interfaces.TownGraphManagerInterface;
 /**
@@ -18,8 +37,41 @@ import interfaces.TownGraphManagerInterface;
  *
  */
 public class TownGraphManager implements TownGraphManagerInterface{
+	/**
+	 * The number of paths getPath keeps by default.
+	 */
+	public static final int DEFAULT_PATH_CACHE_SIZE = 1024;
+	/**
+	 * The most bad lines of a file listed in a TownFileFormatException.
+	 */
+	public static final int MAX_REPORTED_ERRORS = 100;
 	
 	private TownGraph graph = new TownGraph();
+	private final PathCache pathCache;
+	
+	/**
+	 * Constructor to initialize an empty manager with the default path cache size.
+	 */
+	public TownGraphManager() {
+		this(DEFAULT_PATH_CACHE_SIZE);
+	}
+	
+	/**
+	 * Constructor to initialize an empty manager.
+	 * @param pathCacheSize the most paths getPath keeps, 0 to turn the cache off
+	 */
+	public TownGraphManager(int pathCacheSize) {
+		this.pathCache = new PathCache(pathCacheSize);
+	}
+	
+	/**
+	 * Gets the cache of getPath results, for its hit, miss and eviction counters.
+	 * @return the path cache
+	 */
+	public PathCache getPathCache() {
+		return pathCache;
+	}
+	
 	/**
 	 * Adds a road with 2 towns and a road name
 	 * @param town1 name of town 1 (lastname, firstname)
@@ -31,8 +83,10 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	public boolean addRoad(String town1, String town2, int weight, String roadName) {
 		addTown(town1);
 		addTown(town2);
-		this.graph.addEdge(getTown(town1), getTown(town2), weight, roadName);
-		return this.graph.containsEdge(getTown(town1), getTown(town2));
+		Town t1 = getTown(town1);
+		Town t2 = getTown(town2);
+		this.graph.addEdge(t1, t2, weight, roadName);
+		return this.graph.containsEdge(t1, t2);
 	}
 	
 	/**
@@ -70,18 +124,10 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	 */
 	@Override
 	public Town getTown(String name) {
-		Town t = new Town(name);
-		Set<Town> towns = graph.vertexSet();
-		Iterator<Town> itr = towns.iterator();
-		if(graph.containsVertex(t)) {
-			while(itr.hasNext()) {
-				Town i = itr.next();
-				if(i.equals(t)) {
-					return i;
-				}
-			}
+		if(name == null) {
+			return null;
 		}
-		return null;
+		return graph.getVertex(new Town(name));
 	}
 	
 	/**
@@ -144,6 +190,49 @@ public class TownGraphManager implements TownGraphManagerInterface{
 		return graph.containsEdge(t1, t2);
 	}
 	
+	/**
+	 * Changes the miles of the road between two towns in place
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @param weight the new miles of the road
+	 * @return true if the road was found and updated, false if not
+	 */
+	public boolean updateWeight(String town1, String town2, int weight) {
+		return graph.updateWeight(getTown(town1), getTown(town2), weight) != null;
+	}
+	
+	/**
+	 * Gives the road between two towns a travel time that depends on the time
+	 * of day, used by getPath with a departure time
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @param times breakpoint times in minutes after midnight, strictly increasing
+	 * @param minutes the minutes it takes to travel the road when leaving at each breakpoint
+	 * @return true if the road was found, false if not
+	 * @throws IllegalArgumentException if the profile is not valid, for instance
+	 * if leaving later along it could arrive earlier
+	 */
+	public boolean setProfile(String town1, String town2, int[] times, int[] minutes) {
+		return graph.setProfile(getTown(town1), getTown(town2), times, minutes) != null;
+	}
+	
+	/**
+	 * Changes the miles of many roads in place with one version change, as a
+	 * feed of traffic updates produces them. Roads that do not exist are skipped.
+	 * @param roads the towns at either end of each road
+	 * @param weights the new miles of each road, in the same order
+	 * @return the number of roads updated
+	 */
+	public int updateWeights(List<TownPair> roads, int[] weights) {
+		Town[] sources = new Town[roads.size()];
+		Town[] destinations = new Town[roads.size()];
+		for(int i = 0; i < sources.length; i++) {
+			sources[i] = getTown(roads.get(i).getSource());
+			destinations[i] = getTown(roads.get(i).getDestination());
+		}
+		return graph.updateWeights(sources, destinations, weights, sources.length);
+	}
+	
 	/**
 	 * Deletes a town from the graph
 	 * @param v name of town (lastname, firstname)
@@ -173,7 +262,8 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	}
 	
 	/**
-	 * Returns the shortest path from town 1 to town 2
+	 * Returns the shortest path from town 1 to town 2, found with a
+	 * bidirectional search. Results are cached until the graph next changes.
 	 * @param town1 name of town 1 (lastname, firstname)
 	 * @param town2 name of town 2 (lastname, firstname)
 	 * @return an Arraylist of roads connecting the two towns together, null if the
@@ -183,9 +273,15 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	public ArrayList<String> getPath(String town1, String town2) {
 		ArrayList<String> paths = new ArrayList<String>();
 		if(containsTown(town1) && containsTown(town2)) {
+			long version = graph.getVersion();
+			ArrayList<String> cached = pathCache.get(town1, town2, version);
+			if(cached != null) {
+				return cached;
+			}
 			Town t1 = getTown(town1);
 			Town t2 = getTown(town2);
-			paths = graph.shortestPath(t1,  t2);
+			paths = graph.shortestPath(t1,  t2, SearchMode.BIDIRECTIONAL);
+			pathCache.put(town1, town2, version, paths);
 		}else {
 			return paths;
 		}
@@ -193,29 +289,469 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	}
 	
 	/**
-	 * Populates a graph from a file input.
+	 * Returns the quickest path from town 1 to town 2 when leaving at the given
+	 * time, following the travel time profiles of the roads. A road without a
+	 * profile takes its miles in minutes. Not cached, since every departure
+	 * time can give a different path.
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @param departureTime minutes after midnight
+	 * @return an Arraylist of roads connecting the two towns together, empty if the
+	 * towns have no path to connect them.
+	 */
+	public ArrayList<String> getPath(String town1, String town2, int departureTime) {
+		if(!containsTown(town1) || !containsTown(town2)) {
+			return new ArrayList<String>();
+		}
+		return graph.shortestPath(getTown(town1), getTown(town2), departureTime);
+	}
+	
+	/**
+	 * Returns the shortest path from town 1 to town 2 that keeps to the given
+	 * constraints, for example avoiding a road closed for this delivery only.
+	 * The graph is not changed, so other queries still use the road. Not cached.
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @param constraints the towns and roads to avoid and the hop and mileage limits
+	 * @return an Arraylist of roads connecting the two towns together, empty if no
+	 * path keeps to the constraints.
+	 */
+	public ArrayList<String> getPath(String town1, String town2, RouteConstraints constraints) {
+		if(!containsTown(town1) || !containsTown(town2)) {
+			return new ArrayList<String>();
+		}
+		return graph.shortestPath(getTown(town1), getTown(town2), constraints);
+	}
+	
+	/**
+	 * Returns every town within a number of miles of a town, with its distance,
+	 * such as the service area of a depot. Only the area itself is searched.
+	 * @param town name of the town (lastname, firstname)
+	 * @param maxMiles the budget in miles
+	 * @return the name of each town within the budget, the town itself included,
+	 * mapped to its distance in miles, nearest first. Empty if the town does not exist.
+	 */
+	public LinkedHashMap<String, Integer> reachableWithin(String town, int maxMiles) {
+		LinkedHashMap<String, Integer> area = new LinkedHashMap<String, Integer>();
+		if(!containsTown(town)) {
+			return area;
+		}
+		for(Map.Entry<Town, Integer> e : graph.reachableWithin(getTown(town), maxMiles).entrySet()) {
+			area.put(e.getKey().getName(), e.getValue());
+		}
+		return area;
+	}
+	
+	/**
+	 * Returns the k towns nearest to a town that match a test, such as the
+	 * nearest five towns with a depot. The search stops once k matches are found.
+	 * @param town name of the town (lastname, firstname), itself a match if it passes the test
+	 * @param k the number of towns wanted
+	 * @param predicate the test, given a town name
+	 * @return the names of up to k matching towns mapped to their distance in miles,
+	 * nearest first. Empty if the town does not exist.
+	 */
+	public LinkedHashMap<String, Integer> nearestTowns(String town, int k, Predicate<String> predicate) {
+		LinkedHashMap<String, Integer> nearest = new LinkedHashMap<String, Integer>();
+		if(!containsTown(town)) {
+			return nearest;
+		}
+		for(Map.Entry<Town, Integer> e : graph.nearestTowns(getTown(town), k, t -> predicate.test(t.getName())).entrySet()) {
+			nearest.put(e.getKey().getName(), e.getValue());
+		}
+		return nearest;
+	}
+	
+	/**
+	 * Finds the nearest facility of every town with one search from all the
+	 * facilities at once, such as the depot that should serve each town.
+	 * @param facilities names of the facility towns
+	 * @return the facility and distance of every town
+	 */
+	public FacilityAssignment nearestFacilities(Collection<String> facilities) {
+		ArrayList<Town> towns = new ArrayList<Town>(facilities.size());
+		for(String name : facilities) {
+			towns.add(new Town(name));
+		}
+		return graph.nearestFacilities(towns);
+	}
+	
+	/**
+	 * Returns the k shortest loopless paths from town 1 to town 2, for a
+	 * dispatcher to choose from.
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @param k the number of paths wanted
+	 * @param exact true for exactly the k shortest paths (Yen's algorithm), false
+	 * for the faster penalty method, whose paths overlap less but need not be
+	 * the shortest
+	 * @return up to k Arraylists of roads, shortest first, empty if the towns
+	 * have no path to connect them.
+	 */
+	public ArrayList<ArrayList<String>> getAlternativePaths(String town1, String town2, int k, boolean exact) {
+		if(!containsTown(town1) || !containsTown(town2)) {
+			return new ArrayList<ArrayList<String>>();
+		}
+		Town t1 = getTown(town1);
+		Town t2 = getTown(town2);
+		return exact ? graph.kShortestPaths(t1, t2, k) : graph.alternativePaths(t1, t2, k);
+	}
+	
+	/**
+	 * Returns the shortest path for every pair of towns in a batch. The pairs are
+	 * grouped by source town and each group is answered with one search that
+	 * stops once all of its destinations are settled, the groups running in
+	 * parallel.
+	 * @param pairs the source and destination names of the paths wanted
+	 * @return one Arraylist of roads per pair, in the same order, empty if the
+	 * towns of that pair have no path to connect them.
+	 */
+	@Override
+	public ArrayList<ArrayList<String>> getPaths(List<TownPair> pairs) {
+		LinkedHashMap<String, ArrayList<Integer>> groups = new LinkedHashMap<String, ArrayList<Integer>>();
+		for(int i = 0; i < pairs.size(); i++) {
+			groups.computeIfAbsent(pairs.get(i).getSource(), k -> new ArrayList<Integer>()).add(i);
+		}
+		final ArrayList<String> sources = new ArrayList<String>(groups.keySet());
+		final ArrayList<ArrayList<Integer>> members = new ArrayList<ArrayList<Integer>>(groups.values());
+		final ArrayList<ArrayList<String>> paths = new ArrayList<ArrayList<String>>(Collections.nCopies(pairs.size(), (ArrayList<String>) null));
+		graph.freeze();
+		IntStream.range(0, sources.size()).parallel().forEach(g -> {
+			ArrayList<Integer> group = members.get(g);
+			ArrayList<Town> destinations = new ArrayList<Town>(group.size());
+			for(int i : group) {
+				destinations.add(new Town(pairs.get(i).getDestination()));
+			}
+			ArrayList<ArrayList<String>> found = graph.shortestPaths(new Town(sources.get(g)), destinations);
+			for(int j = 0; j < group.size(); j++) {
+				paths.set(group.get(j), found.get(j));
+			}
+		});
+		return paths;
+	}
+	
+	/**
+	 * Computes the distance between every pair of towns in parallel, instead of
+	 * one getPath call per pair.
+	 * @param withPredecessors true to keep the predecessor rows for rebuilding routes
+	 * @return the distance matrix, indexed by the town ids of its graph snapshot
+	 */
+	public DistanceMatrix getDistanceMatrix(boolean withPredecessors) {
+		return graph.distanceMatrix(withPredecessors);
+	}
+	
+	/**
+	 * Populates a graph from a file of name,miles;town1;town2 lines, without
+	 * echoing them.
+	 * 
+	 * @param file File that is input into method.
+	 * @throws FileNotFoundException if the file cannot be opened
+	 * @throws TownFileFormatException if some lines were bad, after every good
+	 * line has been loaded
+	 * @throws IOException if the file cannot be read
+	 */
+	public void populateTownGraph(File file) throws IOException {
+		populateTownGraph(file, false);
+	}
+	
+	/**
+	 * Populates a graph from a file of name,miles;town1;town2 lines.
 	 * 
 	 * @param file File that is input into method.
-	 * @throws FileNotFoundException
-	 */
-	public void populateTownGraph(File file) throws FileNotFoundException {
-		Scanner infile = new Scanner(file);
-		String st = "";
-		while(infile.hasNextLine()) {
-			String info = infile.nextLine();
-			System.out.println(info);
-			st += info + "\n";
-		}
-		infile.close();
-		String[] infoArr = st.split("\n");
-		for(int i = 0; i < infoArr.length; i ++) {
-			String[] data = infoArr[i].split(";");
-			addTown(data[1]);
-			addTown(data[2]);
-			String[] road = data[0].split(",");
-			System.out.println(road[1]);
-			addRoad(data[1], data[2], Integer.valueOf(road[1]), road[0]);
+	 * @param verbose true to print every line and road as it is loaded
+	 * @throws FileNotFoundException if the file cannot be opened
+	 * @throws TownFileFormatException if some lines were bad, after every good
+	 * line has been loaded
+	 * @throws IOException if the file cannot be read
+	 */
+	public void populateTownGraph(File file, boolean verbose) throws IOException {
+		try(Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+			populateTownGraph(in, verbose);
+		}
+	}
+	
+	/**
+	 * Populates a graph from name,miles;town1;town2 lines in one streaming pass.
+	 * The road name runs up to the last comma of the first field, so it may
+	 * contain commas itself. Blank lines are skipped, and bad lines are
+	 * collected and reported together once the rest has been loaded.
+	 * 
+	 * @param input The lines to read. It is not closed.
+	 * @param verbose true to print every line and road as it is loaded
+	 * @throws TownFileFormatException if some lines were bad, after every good
+	 * line has been loaded
+	 * @throws IOException if the input cannot be read
+	 */
+	public void populateTownGraph(Reader input, boolean verbose) throws IOException {
+		BufferedReader reader = new BufferedReader(input, 1 << 16);
+		ArrayList<String> errors = new ArrayList<String>();
+		int errorCount = 0;
+		int loaded = 0;
+		int lineNumber = 0;
+		String line;
+		while((line = reader.readLine()) != null) {
+			lineNumber++;
+			if(verbose) {
+				System.out.println(line);
+			}
+			String error = parseRoadLine(line);
+			if(error == null) {
+				loaded++;
+				continue;
+			}
+			if(error.isEmpty()) {
+				continue;
+			}
+			errorCount++;
+			if(errors.size() < MAX_REPORTED_ERRORS) {
+				errors.add("line " + lineNumber + ": " + error);
+			}
 		}
+		if(verbose) {
+			System.out.println(loaded + " roads loaded");
+		}
+		if(errorCount > 0) {
+			throw new TownFileFormatException(errors, errorCount, loaded);
+		}
+	}
+	
+	/**
+	 * Populates a graph from a file of name,miles;town1;town2 lines using every
+	 * core. The file is memory mapped and parsed in newline-aligned chunks in
+	 * parallel, then added in one bulk build; the result is the same graph as
+	 * populateTownGraph gives, much faster for large files.
+	 * 
+	 * @param file File that is input into method.
+	 * @return the number of roads added
+	 * @throws FileNotFoundException if the file cannot be opened
+	 * @throws TownFileFormatException if some lines were bad, after every good
+	 * line has been loaded
+	 * @throws IOException if the file cannot be read
+	 */
+	public int populateTownGraphParallel(File file) throws IOException {
+		return new MappedRoadFileLoader().load(file, graph);
+	}
+	
+	/**
+	 * Saves the towns and roads to a binary snapshot file that loadSnapshot
+	 * can read back far faster than populateTownGraph reads a road file.
+	 * 
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveSnapshot(File file) throws IOException {
+		graph.freeze().save(file);
+	}
+	
+	/**
+	 * Replaces the towns and roads with those of a snapshot file written by
+	 * saveSnapshot. The file is memory mapped and its arrays copied out whole,
+	 * so paths can be found as soon as this returns. The graph version keeps
+	 * going up past both the current one and the saved one, so the path cache
+	 * never mistakes the loaded graph for one it has seen before.
+	 * 
+	 * @param file the file to read
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	public void loadSnapshot(File file) throws IOException {
+		CsrTownGraph loaded = CsrTownGraph.load(file);
+		graph = new TownGraph(loaded, Math.max(graph.getVersion(), loaded.getVersion()) + 1);
+		pathCache.clear();
+	}
+	
+	/**
+	 * Applies a file of changes to the towns and roads, all of them or none.
+	 * 
+	 * @param file the change log to read
+	 * @return the number of changes applied
+	 * @throws FileNotFoundException if the file cannot be opened
+	 * @throws TownFileFormatException if a line is bad or a change does not
+	 * fit the graph, in which case nothing is changed
+	 * @throws IOException if the file cannot be read
+	 */
+	public int applyChanges(File file) throws IOException {
+		try(Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+			return applyChanges(in);
+		}
+	}
+	
+	/**
+	 * Applies a log of changes to the towns and roads, all of them or none,
+	 * without reloading the rest of the graph. Each line is one change:
+	 * 
+	 * add-road name,miles;town1;town2
+	 * remove-road town1;town2
+	 * update-weight miles;town1;town2
+	 * add-town town
+	 * remove-town town
+	 * 
+	 * Blank lines and lines starting with # are skipped. The whole log is read
+	 * and checked before anything is changed.
+	 * 
+	 * @param input the lines to read. It is not closed.
+	 * @return the number of changes applied
+	 * @throws TownFileFormatException if a line is bad or a change does not
+	 * fit the graph, in which case nothing is changed
+	 * @throws IOException if the input cannot be read
+	 */
+	public int applyChanges(Reader input) throws IOException {
+		BufferedReader reader = new BufferedReader(input, 1 << 16);
+		ChangeLog log = new ChangeLog();
+		ArrayList<Integer> lines = new ArrayList<Integer>();
+		ArrayList<String> errors = new ArrayList<String>();
+		int errorCount = 0;
+		int lineNumber = 0;
+		String line;
+		while((line = reader.readLine()) != null) {
+			lineNumber++;
+			String error = parseChangeLine(line, log);
+			if(error == null) {
+				lines.add(lineNumber);
+			}else if(!error.isEmpty()) {
+				errorCount++;
+				if(errors.size() < MAX_REPORTED_ERRORS) {
+					errors.add("line " + lineNumber + ": " + error);
+				}
+			}
+		}
+		if(errorCount > 0) {
+			throw new TownFileFormatException(errors, errorCount, 0);
+		}
+		try {
+			return graph.apply(log);
+		} catch(ChangeConflictException e) {
+			throw new TownFileFormatException(
+					Collections.singletonList("line " + lines.get(e.getIndex()) + ": " + e.getReason()), 1, 0);
+		}
+	}
+	
+	/**
+	 * Splits one change line and appends its change to the log.
+	 * @param line the line without its line terminator
+	 * @param log the log to append to
+	 * @return null if a change was added, an empty string for a blank or
+	 * comment line, or a message saying what is wrong with the line
+	 */
+	private static String parseChangeLine(String line, ChangeLog log) {
+		String trimmed = line.trim();
+		if(trimmed.isEmpty() || trimmed.startsWith("#")) {
+			return "";
+		}
+		int space = trimmed.indexOf(' ');
+		String op = space < 0 ? trimmed : trimmed.substring(0, space);
+		String[] fields = space < 0 ? new String[0] : trimmed.substring(space + 1).split(";", -1);
+		for(String field : fields) {
+			if(field.isEmpty()) {
+				return "empty field";
+			}
+		}
+		switch(op) {
+		case "add-town":
+		case "remove-town":
+			if(fields.length != 1) {
+				return "expected " + op + " town";
+			}
+			if(op.equals("add-town")) {
+				log.addTown(fields[0]);
+			}else {
+				log.removeTown(fields[0]);
+			}
+			return null;
+		case "remove-road":
+			if(fields.length != 2) {
+				return "expected remove-road town1;town2";
+			}
+			log.removeRoad(fields[0], fields[1]);
+			return null;
+		case "update-weight":
+			if(fields.length != 3) {
+				return "expected update-weight miles;town1;town2";
+			}
+			String error = milesError(fields[0]);
+			if(error != null) {
+				return error;
+			}
+			log.updateWeight(fields[1], fields[2], Integer.parseInt(fields[0]));
+			return null;
+		case "add-road":
+			if(fields.length != 3) {
+				return "expected add-road name,miles;town1;town2";
+			}
+			int comma = fields[0].lastIndexOf(',');
+			if(comma < 0 || comma + 1 == fields[0].length()) {
+				return "missing miles after road name";
+			}
+			String miles = fields[0].substring(comma + 1);
+			error = milesError(miles);
+			if(error != null) {
+				return error;
+			}
+			log.addRoad(fields[1], fields[2], Integer.parseInt(miles), fields[0].substring(0, comma));
+			return null;
+		default:
+			return "unknown change " + op;
+		}
+	}
+	
+	/**
+	 * Checks that a miles field is a whole number no larger than Town.MAX_DISTANCE.
+	 * @param miles the field
+	 * @return null if it is, otherwise what is wrong with it
+	 */
+	private static String milesError(String miles) {
+		int value = 0;
+		for(int i = 0; i < miles.length(); i++) {
+			char c = miles.charAt(i);
+			if(c < '0' || c > '9') {
+				return "miles is not a whole number: " + miles;
+			}
+			value = value * 10 + (c - '0');
+			if(value > Town.MAX_DISTANCE) {
+				return "miles is too large: " + miles;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Splits one name,miles;town1;town2 line by hand and adds its road.
+	 * @param line the line without its line terminator
+	 * @return null if a road was added, an empty string for a blank line, or
+	 * a message saying what is wrong with the line
+	 */
+	private String parseRoadLine(String line) {
+		int end = line.length();
+		int first = line.indexOf(';');
+		if(first < 0) {
+			return line.trim().isEmpty() ? "" : "expected name,miles;town1;town2";
+		}
+		int second = line.indexOf(';', first + 1);
+		if(second < 0) {
+			return "missing second town";
+		}
+		if(line.indexOf(';', second + 1) >= 0) {
+			return "too many fields";
+		}
+		int comma = line.lastIndexOf(',', first);
+		if(comma < 0) {
+			return "missing miles after road name";
+		}
+		if(comma + 1 == first) {
+			return "missing miles after road name";
+		}
+		String error = milesError(line.substring(comma + 1, first));
+		if(error != null) {
+			return error;
+		}
+		int miles = Integer.parseInt(line.substring(comma + 1, first));
+		if(second == first + 1 || second + 1 == end) {
+			return "empty town name";
+		}
+		String roadName = line.substring(0, comma);
+		String town1 = line.substring(first + 1, second);
+		String town2 = line.substring(second + 1, end);
+		addRoad(town1, town2, miles, roadName);
+		return null;
 	}
 
 }
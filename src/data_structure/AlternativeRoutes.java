@@ -0,0 +1,242 @@
+package data_structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+/**
+ * Finds several routes between two towns of a CsrTownGraph, for dispatchers
+ * who want to pick among alternatives.
+ *
+ * kShortest is Yen's algorithm and gives exactly the k shortest loopless
+ * routes. Each new route is found by a spur search from every town of the
+ * last route, with the part of the route before that town kept as the root
+ * and its towns banned so the spur cannot loop back. The spur searches of one
+ * round do not depend on each other and run in parallel, each in a workspace
+ * from its thread's pool.
+ *
+ * penalized is the penalty method and is much faster, one search per route:
+ * after each route is found the weights of its arcs are raised, so the next
+ * search is pushed onto other roads. Its routes are not the k shortest, but
+ * they overlap less, which is usually what an interactive user wants.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class AlternativeRoutes {
+	/**
+	 * How much the weight of an arc grows each time a route uses it.
+	 */
+	public static final double DEFAULT_PENALTY = 1.4;
+	/**
+	 * How many times longer than the shortest route an alternative may be.
+	 */
+	public static final double DEFAULT_MAX_STRETCH = 1.5;
+
+	private static final Comparator<Route> BY_DISTANCE = new Comparator<Route>() {
+		@Override
+		public int compare(Route a, Route b) {
+			int c = Integer.compare(a.getDistance(), b.getDistance());
+			return c != 0 ? c : Integer.compare(a.size(), b.size());
+		}
+	};
+
+	private final CsrTownGraph graph;
+	private final ShortestPathEngine engine;
+	private final QueueType queueType;
+
+	/**
+	 * Constructor for a finder over one snapshot.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param engine The engine to run the searches with.
+	 * @param queueType The priority queue to search with.
+	 */
+	public AlternativeRoutes(CsrTownGraph graph, ShortestPathEngine engine, QueueType queueType) {
+		this.graph = graph;
+		this.engine = engine;
+		this.queueType = queueType;
+	}
+
+	/**
+	 * Find the k shortest loopless routes between two towns with Yen's
+	 * algorithm.
+	 *
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param k The number of routes wanted.
+	 * @return Up to k routes, shortest first. Fewer if there are not that many
+	 * loopless routes, none if the target cannot be reached.
+	 */
+	public ArrayList<Route> kShortest(int source, int target, int k) {
+		ArrayList<Route> found = new ArrayList<Route>();
+		Route first = engine.shortestRoute(graph, source, target, queueType);
+		if(first == null || k <= 0) {
+			return found;
+		}
+		found.add(first);
+		PriorityQueue<Route> candidates = new PriorityQueue<Route>(BY_DISTANCE);
+		HashSet<ArcKey> seen = new HashSet<ArcKey>();
+		seen.add(new ArcKey(first.getArcs()));
+		while(found.size() < k) {
+			final int[] last = found.get(found.size() - 1).getArcs();
+			final int[] nodes = towns(source, last);
+			final int[] rootDistance = new int[last.length + 1];
+			for(int i = 0; i < last.length; i++) {
+				rootDistance[i + 1] = rootDistance[i] + graph.arcWeight(last[i]);
+			}
+			final ArrayList<Route> known = new ArrayList<Route>(found);
+			Route[] spurs = IntStream.range(0, last.length).parallel()
+					.mapToObj(i -> spur(known, last, nodes, rootDistance, i, target))
+					.toArray(Route[]::new);
+			for(Route r : spurs) {
+				if(r != null && seen.add(new ArcKey(r.getArcs()))) {
+					candidates.add(r);
+				}
+			}
+			if(candidates.isEmpty()) {
+				break;
+			}
+			found.add(candidates.poll());
+		}
+		return found;
+	}
+
+	/**
+	 * Find up to k different routes between two towns with the penalty method
+	 * and the default penalty and stretch.
+	 *
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param k The number of routes wanted.
+	 * @return Up to k routes, shortest first, with their true distances.
+	 */
+	public ArrayList<Route> penalized(int source, int target, int k) {
+		return penalized(source, target, k, DEFAULT_PENALTY, DEFAULT_MAX_STRETCH);
+	}
+
+	/**
+	 * Find up to k different routes between two towns with the penalty method.
+	 * At most 2k searches are run; a route found again, or one longer than
+	 * maxStretch times the shortest, only adds to the penalties.
+	 *
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param k The number of routes wanted.
+	 * @param penalty The factor the weight of an arc is multiplied by each
+	 * time a route uses it, more than 1.
+	 * @param maxStretch How many times longer than the shortest route an
+	 * alternative may be, at least 1.
+	 * @return Up to k routes, shortest first, with their true distances.
+	 */
+	public ArrayList<Route> penalized(int source, int target, int k, double penalty, double maxStretch) {
+		if(penalty <= 1 || maxStretch < 1) {
+			throw new IllegalArgumentException();
+		}
+		ArrayList<Route> found = new ArrayList<Route>();
+		if(k <= 0) {
+			return found;
+		}
+		int[] weights = new int[graph.arcCount()];
+		for(int arc = 0; arc < weights.length; arc++) {
+			weights[arc] = graph.arcWeight(arc);
+		}
+		HashSet<ArcKey> seen = new HashSet<ArcKey>();
+		long limit = 0;
+		for(int attempt = 0; attempt < 2 * k && found.size() < k; attempt++) {
+			Route r = engine.restrictedRoute(graph, source, target, weights, null, null, queueType);
+			if(r == null) {
+				break;
+			}
+			int[] arcs = r.getArcs();
+			int distance = 0;
+			for(int arc : arcs) {
+				distance += graph.arcWeight(arc);
+				penalize(weights, arc, penalty);
+				int back = graph.reverseArc(arc);
+				if(back != SearchWorkspace.NO_ARC) {
+					penalize(weights, back, penalty);
+				}
+			}
+			if(found.isEmpty()) {
+				limit = (long) Math.floor(distance * maxStretch);
+			}
+			if(distance <= limit && seen.add(new ArcKey(arcs))) {
+				found.add(new Route(graph, distance, arcs));
+			}
+		}
+		found.sort(BY_DISTANCE);
+		return found;
+	}
+
+	/**
+	 * Raise the weight of an arc by the penalty, by at least one so that arcs
+	 * of weight 0 are penalized too, without overflowing.
+	 */
+	private static void penalize(int[] weights, int arc, double penalty) {
+		long raised = Math.max(weights[arc] + 1L, (long) Math.ceil(weights[arc] * penalty));
+		weights[arc] = (int) Math.min(raised, Integer.MAX_VALUE / 4);
+	}
+
+	/**
+	 * The spur route of Yen's algorithm that leaves the last route at its
+	 * i-th town, joined to the root before it.
+	 *
+	 * @return The whole route, or null if the spur town cannot reach the target.
+	 */
+	private Route spur(ArrayList<Route> known, int[] last, int[] nodes, int[] rootDistance, int i, int target) {
+		int[] bannedArcs = new int[known.size()];
+		int banned = 0;
+		for(Route r : known) {
+			int[] arcs = r.getArcs();
+			if(arcs.length > i && Arrays.equals(arcs, 0, i, last, 0, i)) {
+				bannedArcs[banned++] = arcs[i];
+			}
+		}
+		Route spur = engine.restrictedRoute(graph, nodes[i], target, null, Arrays.copyOf(nodes, i),
+				Arrays.copyOf(bannedArcs, banned), queueType);
+		if(spur == null) {
+			return null;
+		}
+		int[] arcs = Arrays.copyOf(last, i + spur.size());
+		System.arraycopy(spur.getArcs(), 0, arcs, i, spur.size());
+		return new Route(graph, rootDistance[i] + spur.getDistance(), arcs);
+	}
+
+	/**
+	 * The towns a route passes through, from the source.
+	 */
+	private int[] towns(int source, int[] arcs) {
+		int[] nodes = new int[arcs.length + 1];
+		nodes[0] = source;
+		for(int i = 0; i < arcs.length; i++) {
+			nodes[i + 1] = graph.arcTarget(arcs[i]);
+		}
+		return nodes;
+	}
+
+	/**
+	 * The arcs of a route as a hash key, to tell routes found twice.
+	 */
+	private static final class ArcKey {
+		private final int[] arcs;
+		private final int hash;
+
+		ArcKey(int[] arcs) {
+			this.arcs = arcs;
+			this.hash = Arrays.hashCode(arcs);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof ArcKey && Arrays.equals(arcs, ((ArcKey) o).arcs);
+		}
+	}
+}
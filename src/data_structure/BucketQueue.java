@@ -0,0 +1,215 @@
+package data_structure;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import interfaces.IndexedPriorityQueue;
+/**
+ * Dial's bucket queue for small integer keys that never go below the last key
+ * polled, which is the case for Dijkstra's algorithm with integer road miles.
+ *
+ * Ids with the same key are chained in a doubly linked list threaded through
+ * int arrays. The buckets form a ring indexed by key modulo the ring size, so
+ * only the span between the smallest and the largest queued key has to fit,
+ * which for Dijkstra is the largest road weight plus one. The ring doubles
+ * when a key falls outside that span. Insert and decreaseKey are O(1) and poll
+ * scans forward over empty buckets from the last key polled.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class BucketQueue implements IndexedPriorityQueue{
+	private static final int NONE = -1;
+	private static final int ABSENT = -2;
+
+	private int[] buckets = new int[16];
+	private int[] keys = new int[0];
+	private int[] next = new int[0];
+	private int[] prev = new int[0];
+	private int floor = Integer.MIN_VALUE;
+	private int cursor;
+	private int maxKey;
+	private int size;
+
+	/**
+	 * Constructor to initialize an empty queue.
+	 */
+	public BucketQueue() {
+		Arrays.fill(buckets, NONE);
+	}
+
+	@Override
+	public void ensureCapacity(int capacity) {
+		if(keys.length < capacity) {
+			int old = keys.length;
+			keys = Arrays.copyOf(keys, capacity);
+			next = Arrays.copyOf(next, capacity);
+			prev = Arrays.copyOf(prev, capacity);
+			Arrays.fill(prev, old, capacity, ABSENT);
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return prev[id] != ABSENT;
+	}
+
+	/**
+	 * Adds an id that is not already queued.
+	 *
+	 * @throws IllegalArgumentException if the key is below the last key polled.
+	 */
+	@Override
+	public void insert(int id, int key) {
+		if(size == 0) {
+			cursor = key;
+			maxKey = key;
+		}
+		keys[id] = key;
+		place(id);
+		size++;
+	}
+
+	/**
+	 * Lowers the key of a queued id.
+	 *
+	 * @throws IllegalArgumentException if the key is below the last key polled.
+	 */
+	@Override
+	public void decreaseKey(int id, int key) {
+		unlink(id);
+		keys[id] = key;
+		place(id);
+	}
+
+	@Override
+	public int minKey() {
+		advance();
+		return cursor;
+	}
+
+	@Override
+	public int poll() {
+		advance();
+		floor = cursor;
+		int id = buckets[cursor & (buckets.length - 1)];
+		unlink(id);
+		prev[id] = ABSENT;
+		size--;
+		return id;
+	}
+
+	@Override
+	public void clear() {
+		if(size > 0) {
+			for(int b = 0; b < buckets.length; b++) {
+				for(int id = buckets[b]; id != NONE; id = next[id]) {
+					prev[id] = ABSENT;
+				}
+				buckets[b] = NONE;
+			}
+		}
+		floor = Integer.MIN_VALUE;
+		size = 0;
+	}
+
+	/**
+	 * Move the cursor to the first non-empty bucket.
+	 *
+	 * @throws NoSuchElementException if the queue is empty.
+	 */
+	private void advance() {
+		if(size == 0) {
+			throw new NoSuchElementException();
+		}
+		int mask = buckets.length - 1;
+		while(buckets[cursor & mask] == NONE) {
+			cursor++;
+		}
+	}
+
+	/**
+	 * Widen the window of queued keys to take in the key of an id, growing the
+	 * ring if needed, and chain the id into its bucket.
+	 *
+	 * @throws IllegalArgumentException if the key is below the last key polled.
+	 */
+	private void place(int id) {
+		int key = keys[id];
+		if(key < floor) {
+			throw new IllegalArgumentException("key " + key + " is below the last key polled " + floor);
+		}
+		if(key < cursor) {
+			cursor = key;
+		}
+		if(key > maxKey) {
+			maxKey = key;
+		}
+		if(maxKey - cursor >= buckets.length) {
+			grow(maxKey - cursor + 1);
+		}
+		link(id);
+	}
+
+	/**
+	 * Push an id onto the front of the bucket for its key.
+	 */
+	private void link(int id) {
+		int b = keys[id] & (buckets.length - 1);
+		int head = buckets[b];
+		next[id] = head;
+		prev[id] = NONE;
+		if(head != NONE) {
+			prev[head] = id;
+		}
+		buckets[b] = id;
+	}
+
+	/**
+	 * Take an id out of the bucket it is chained in.
+	 */
+	private void unlink(int id) {
+		int p = prev[id];
+		int n = next[id];
+		if(p == NONE) {
+			buckets[keys[id] & (buckets.length - 1)] = n;
+		}else {
+			next[p] = n;
+		}
+		if(n != NONE) {
+			prev[n] = p;
+		}
+	}
+
+	/**
+	 * Replace the ring with one that spans at least the given number of keys and
+	 * rechain every queued id.
+	 */
+	private void grow(int span) {
+		int length = buckets.length;
+		while(length < span) {
+			length <<= 1;
+		}
+		int[] old = buckets;
+		buckets = new int[length];
+		Arrays.fill(buckets, NONE);
+		for(int b = 0; b < old.length; b++) {
+			int id = old[b];
+			while(id != NONE) {
+				int n = next[id];
+				link(id);
+				id = n;
+			}
+		}
+	}
+}
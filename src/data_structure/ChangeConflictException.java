@@ -0,0 +1,44 @@
+package data_structure;
+/**
+ * Thrown by TownGraph.apply when a change in a ChangeLog does not fit the
+ * graph, such as removing a road that is not there. The graph is left as it
+ * was before the log was applied.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class ChangeConflictException extends IllegalArgumentException {
+	private static final long serialVersionUID = 1L;
+	private final int index;
+	private final String reason;
+
+	/**
+	 * Constructor to initialize a new ChangeConflictException.
+	 *
+	 * @param index Position in the log of the change that failed.
+	 * @param message What is wrong with the change.
+	 */
+	public ChangeConflictException(int index, String message) {
+		super("change " + index + ": " + message);
+		this.index = index;
+		this.reason = message;
+	}
+
+	/**
+	 * Get the position in the log of the change that failed.
+	 *
+	 * @return The index of the change.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Get what is wrong with the change, without its index.
+	 *
+	 * @return The reason the change failed.
+	 */
+	public String getReason() {
+		return reason;
+	}
+}
@@ -0,0 +1,141 @@
+package data_structure;
+
+import java.util.ArrayList;
+
+import data_element.Town;
+/**
+ * A batch of changes to the towns and roads of a TownGraph, applied all
+ * together or not at all by TownGraph.apply. Changes are applied in the order
+ * they were added, so a batch can for example remove a road and add it back
+ * with a new name.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class ChangeLog {
+	/**
+	 * The kinds of change a log can hold.
+	 */
+	public enum Kind {
+		/** Add a road, adding either town that is missing. */
+		ADD_ROAD,
+		/** Remove the road between two towns. */
+		REMOVE_ROAD,
+		/** Change the miles of the road between two towns. */
+		UPDATE_WEIGHT,
+		/** Add a town with no roads. */
+		ADD_TOWN,
+		/** Remove a town and every road touching it. */
+		REMOVE_TOWN
+	}
+
+	private final ArrayList<Change> changes = new ArrayList<Change>();
+
+	/**
+	 * Add a road between two towns. Applying it fails if the towns already
+	 * have a road between them.
+	 *
+	 * @param town1 Name of one town.
+	 * @param town2 Name of the other town.
+	 * @param weight Miles of the road.
+	 * @param name Name of the road.
+	 * @return This log.
+	 */
+	public ChangeLog addRoad(String town1, String town2, int weight, String name) {
+		changes.add(new Change(Kind.ADD_ROAD, new Town(town1), new Town(town2), weight, name));
+		return this;
+	}
+
+	/**
+	 * Remove the road between two towns. Applying it fails if there is none.
+	 *
+	 * @param town1 Name of one town.
+	 * @param town2 Name of the other town.
+	 * @return This log.
+	 */
+	public ChangeLog removeRoad(String town1, String town2) {
+		changes.add(new Change(Kind.REMOVE_ROAD, new Town(town1), new Town(town2), -1, null));
+		return this;
+	}
+
+	/**
+	 * Change the miles of the road between two towns, keeping its name.
+	 * Applying it fails if there is no such road.
+	 *
+	 * @param town1 Name of one town.
+	 * @param town2 Name of the other town.
+	 * @param weight New miles of the road.
+	 * @return This log.
+	 */
+	public ChangeLog updateWeight(String town1, String town2, int weight) {
+		changes.add(new Change(Kind.UPDATE_WEIGHT, new Town(town1), new Town(town2), weight, null));
+		return this;
+	}
+
+	/**
+	 * Add a town. Applying it fails if the town exists.
+	 *
+	 * @param name Name of the town.
+	 * @return This log.
+	 */
+	public ChangeLog addTown(String name) {
+		changes.add(new Change(Kind.ADD_TOWN, new Town(name), null, -1, null));
+		return this;
+	}
+
+	/**
+	 * Remove a town and its roads. Applying it fails if there is no such town.
+	 *
+	 * @param name Name of the town.
+	 * @return This log.
+	 */
+	public ChangeLog removeTown(String name) {
+		changes.add(new Change(Kind.REMOVE_TOWN, new Town(name), null, -1, null));
+		return this;
+	}
+
+	/**
+	 * Get the number of changes in the log.
+	 *
+	 * @return The change count.
+	 */
+	public int size() {
+		return changes.size();
+	}
+
+	/**
+	 * Get the kind of a change.
+	 *
+	 * @param index Position of the change in the log.
+	 * @return The kind of change.
+	 */
+	public Kind kind(int index) {
+		return changes.get(index).kind;
+	}
+
+	/**
+	 * Get a change.
+	 */
+	Change get(int index) {
+		return changes.get(index);
+	}
+
+	/**
+	 * One change. Towns are looked up by name when the change is applied.
+	 */
+	static final class Change {
+		final Kind kind;
+		final Town town1;
+		final Town town2;
+		final int weight;
+		final String name;
+
+		Change(Kind kind, Town town1, Town town2, int weight, String name) {
+			this.kind = kind;
+			this.town1 = town1;
+			this.town2 = town2;
+			this.weight = weight;
+			this.name = name;
+		}
+	}
+}
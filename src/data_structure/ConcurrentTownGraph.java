@@ -0,0 +1,399 @@
+package data_structure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import data_element.Road;
+import data_element.Town;
+import interfaces.GraphInterface;
+/**
+ * A TownGraph that can be read and written from many threads at once.
+ *
+ * The graph is a series of immutable TownGraphSnapshots. Readers take the
+ * current one from a volatile field without locking and keep a consistent
+ * view for as long as they hold it. Writers take a lock, copy only the
+ * adjacency segments and neighbour maps the change touches, share everything
+ * else with the previous snapshot and publish the result as the new current
+ * snapshot. A road closure therefore never waits for, or disturbs, the route
+ * queries already running, which simply finish on the version they started
+ * with.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class ConcurrentTownGraph implements GraphInterface<Town, Road>{
+	/**
+	 * The number of adjacency segments a graph is split into.
+	 */
+	public static final int DEFAULT_SEGMENTS = 64;
+
+	private final Object writeLock = new Object();
+	private volatile TownGraphSnapshot current;
+
+	/**
+	 * Constructor to initialize an empty graph with DEFAULT_SEGMENTS segments.
+	 */
+	public ConcurrentTownGraph() {
+		this(DEFAULT_SEGMENTS);
+	}
+
+	/**
+	 * Constructor to initialize an empty graph. More segments make every write
+	 * copy less, fewer make every write copy a shorter segment array.
+	 *
+	 * @param segmentCount The number of adjacency segments.
+	 */
+	public ConcurrentTownGraph(int segmentCount) {
+		if(segmentCount < 1) {
+			throw new IllegalArgumentException();
+		}
+		ArrayList<Map<Town, Map<Town, Road>>> segments = new ArrayList<Map<Town, Map<Town, Road>>>(segmentCount);
+		for(int i = 0; i < segmentCount; i++) {
+			segments.add(new HashMap<Town, Map<Town, Road>>());
+		}
+		current = new TownGraphSnapshot(0, segments, 0, null);
+	}
+
+	/**
+	 * Get the current snapshot. It never changes, so a reader that needs several
+	 * queries to agree should make all of them on one snapshot.
+	 *
+	 * @return The latest published snapshot.
+	 */
+	public TownGraphSnapshot snapshot() {
+		return current;
+	}
+
+	/**
+	 * Get the version of the current snapshot. It goes up by one with every
+	 * change.
+	 *
+	 * @return The current version.
+	 */
+	public long getVersion() {
+		return current.getVersion();
+	}
+
+	@Override
+	public Road getEdge(Town sourceVertex, Town destinationVertex) {
+		return current.getEdge(sourceVertex, destinationVertex);
+	}
+
+	/**
+     * Creates a road in both directions between two towns already in the
+     * graph and publishes a new snapshot.
+     *
+     * @param sourceVertex source vertex of the edge.
+     * @param destinationVertex target vertex of the edge.
+     * @param weight weight of the edge
+     * @param description description for edge
+     *
+     * @return The newly created edge if added to the graph, otherwise null.
+     *
+     * @throws IllegalArgumentException if source or target vertices are not
+     * found in the graph.
+     */
+	@Override
+	public Road addEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+		synchronized(writeLock) {
+			TownGraphSnapshot base = current;
+			if(!(base.containsVertex(sourceVertex) && base.containsVertex(destinationVertex))) {
+				throw new IllegalArgumentException();
+			}
+			if(base.containsEdge(sourceVertex, destinationVertex)) {
+				return null;
+			}
+			Road edgeTo = new Road(sourceVertex, destinationVertex, weight, description);
+			Road edgeFrom = new Road(destinationVertex, sourceVertex, weight, description);
+			Writer writer = new Writer(base);
+			writer.neighboursForWrite(sourceVertex).put(destinationVertex, edgeTo);
+			writer.neighboursForWrite(destinationVertex).put(sourceVertex, edgeFrom);
+			writer.structural();
+			writer.publish(base.vertexCount());
+			return edgeTo;
+		}
+	}
+
+	/**
+     * Adds a town if it is not already present and publishes a new snapshot.
+     *
+     * @param v vertex to be added to this graph.
+     * @return true if this graph did not already contain the specified
+     * vertex.
+     * @throws NullPointerException if the specified vertex is null.
+     */
+	@Override
+	public boolean addVertex(Town v) {
+		if(v == null) {
+			throw new NullPointerException();
+		}
+		synchronized(writeLock) {
+			TownGraphSnapshot base = current;
+			if(base.containsVertex(v)) {
+				return false;
+			}
+			Writer writer = new Writer(base);
+			writer.segmentForWrite(v).put(v, new LinkedHashMap<Town, Road>());
+			writer.structural();
+			writer.publish(base.vertexCount() + 1);
+			return true;
+		}
+	}
+
+	@Override
+	public boolean containsEdge(Town sourceVertex, Town destinationVertex) {
+		return current.containsEdge(sourceVertex, destinationVertex);
+	}
+
+	@Override
+	public boolean containsVertex(Town v) {
+		return current.containsVertex(v);
+	}
+
+	/**
+     * Returns a new set of the roads of the current snapshot.
+     *
+     * @return a set of the edges contained in this graph.
+     */
+	@Override
+	public Set<Road> edgeSet() {
+		return current.edgeSet();
+	}
+
+	@Override
+	public Set<Road> edgesOf(Town vertex) {
+		return current.edgesOf(vertex);
+	}
+
+	/**
+     * Removes the road between two towns in both directions and publishes a
+     * new snapshot. If weight is above -1 or description is not null, the road
+     * must match them to be removed.
+     *
+     * @param sourceVertex source vertex of the edge.
+     * @param destinationVertex target vertex of the edge.
+     * @param weight weight of the edge
+     * @param description description of the edge
+     *
+     * @return The removed edge, or null if no edge removed.
+     */
+	@Override
+	public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+		synchronized(writeLock) {
+			TownGraphSnapshot base = current;
+			Road r = base.getEdge(sourceVertex, destinationVertex);
+			if(r == null || (weight > -1 && r.getWeight() != weight)
+					|| (description != null && !description.equals(r.getName()))) {
+				return null;
+			}
+			Writer writer = new Writer(base);
+			writer.neighboursForWrite(sourceVertex).remove(destinationVertex);
+			writer.neighboursForWrite(destinationVertex).remove(sourceVertex);
+			writer.roadChanged(sourceVertex, destinationVertex, SnapshotDelta.REMOVED);
+			writer.publish(base.vertexCount());
+			return r;
+		}
+	}
+
+	/**
+     * Changes the miles of the road between two towns in both directions and
+     * publishes a new snapshot. The Roads of earlier snapshots are left as
+     * they were, so the road is replaced rather than changed in place.
+     *
+     * @param sourceVertex source vertex of the edge.
+     * @param destinationVertex target vertex of the edge.
+     * @param weight new weight of the edge
+     *
+     * @return The new edge, or null if there is no such edge.
+     *
+     * @throws IllegalArgumentException if weight is negative.
+     */
+	@Override
+	public Road updateWeight(Town sourceVertex, Town destinationVertex, int weight) {
+		if(weight < 0) {
+			throw new IllegalArgumentException();
+		}
+		synchronized(writeLock) {
+			TownGraphSnapshot base = current;
+			Road r = base.getEdge(sourceVertex, destinationVertex);
+			if(r == null) {
+				return null;
+			}
+			Road edgeTo = new Road(r.getSource(), r.getDestination(), weight, r.getName());
+			Road edgeFrom = new Road(r.getDestination(), r.getSource(), weight, r.getName());
+			Writer writer = new Writer(base);
+			writer.neighboursForWrite(sourceVertex).put(destinationVertex, edgeTo);
+			writer.neighboursForWrite(destinationVertex).put(sourceVertex, edgeFrom);
+			writer.roadChanged(sourceVertex, destinationVertex, weight);
+			writer.publish(base.vertexCount());
+			return edgeTo;
+		}
+	}
+
+	/**
+     * Removes a town and every road touching it and publishes a new snapshot.
+     *
+     * @param v vertex to be removed from this graph, if present.
+     * @return true if the graph contained the specified vertex;
+     * false otherwise.
+     */
+	@Override
+	public boolean removeVertex(Town v) {
+		if(v == null) {
+			return false;
+		}
+		synchronized(writeLock) {
+			TownGraphSnapshot base = current;
+			Map<Town, Road> neighbours = base.neighbours(v);
+			if(neighbours == null) {
+				return false;
+			}
+			Writer writer = new Writer(base);
+			writer.segmentForWrite(v).remove(v);
+			for(Town t : neighbours.keySet()) {
+				if(!t.equals(v)) {
+					writer.neighboursForWrite(t).remove(v);
+				}
+			}
+			writer.structural();
+			writer.publish(base.vertexCount() - 1);
+			return true;
+		}
+	}
+
+	@Override
+	public Set<Town> vertexSet() {
+		return current.vertexSet();
+	}
+
+	/**
+     * Find the shortest path on the current snapshot. No Town is written to.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @return A new arraylist of Strings that describe the path from sourceVertex
+     * to destinationVertex, empty if either town is missing or there is no path.
+     */
+	@Override
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+		return current.shortestPath(sourceVertex, destinationVertex, SearchMode.DIJKSTRA);
+	}
+
+	/**
+     * Find the shortest path on the current snapshot with the given search
+     * algorithm.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @param mode the search algorithm to use
+     * @return A new arraylist of Strings that describe the path from sourceVertex
+     * to destinationVertex, empty if either town is missing or there is no path.
+     */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex, SearchMode mode) {
+		return current.shortestPath(sourceVertex, destinationVertex, mode);
+	}
+
+	/**
+     * Dijkstra's Shortest Path Method on the current snapshot. This is the one
+     * method that writes the distance and predecessor of the Town objects, as
+     * the interface requires; concurrent readers should use shortestPath or a
+     * TownGraphSnapshot instead, which leave the towns alone.
+     * @param sourceVertex the vertex to find shortest path from
+     */
+	@Override
+	public void dijkstraShortestPath(Town sourceVertex) {
+		current.freeze().dijkstraShortestPath(sourceVertex);
+	}
+
+	/**
+	 * Builds the next snapshot from the current one, copying a segment or a
+	 * neighbour map the first time a change touches it. If every change only
+	 * reweights or closes roads and the base snapshot is already frozen, the
+	 * new snapshot gets the base CSR patched instead of building its own.
+	 */
+	private final class Writer {
+		private final TownGraphSnapshot base;
+		private final ArrayList<Map<Town, Map<Town, Road>>> segments;
+		private final boolean[] copiedSegments;
+		private final Map<Town, Map<Town, Road>> copiedNeighbours = new HashMap<Town, Map<Town, Road>>();
+		private final ArrayList<Integer> changedArcs = new ArrayList<Integer>();
+		private final ArrayList<Integer> newWeights = new ArrayList<Integer>();
+		private boolean structural;
+
+		Writer(TownGraphSnapshot base) {
+			this.base = base;
+			this.segments = new ArrayList<Map<Town, Map<Town, Road>>>(base.segments());
+			this.copiedSegments = new boolean[segments.size()];
+		}
+
+		/**
+		 * Get a private copy of the segment a town belongs in.
+		 */
+		Map<Town, Map<Town, Road>> segmentForWrite(Town v) {
+			int s = TownGraphSnapshot.segmentOf(v, segments.size());
+			if(!copiedSegments[s]) {
+				segments.set(s, new HashMap<Town, Map<Town, Road>>(segments.get(s)));
+				copiedSegments[s] = true;
+			}
+			return segments.get(s);
+		}
+
+		/**
+		 * Get a private copy of the neighbour map of a town in the graph.
+		 */
+		Map<Town, Road> neighboursForWrite(Town v) {
+			Map<Town, Road> copy = copiedNeighbours.get(v);
+			if(copy == null) {
+				copy = new LinkedHashMap<Town, Road>(base.neighbours(v));
+				segmentForWrite(v).put(v, copy);
+				copiedNeighbours.put(v, copy);
+			}
+			return copy;
+		}
+
+		/**
+		 * Note that the towns or the roads between them changed, so the CSR of
+		 * the base snapshot cannot be patched.
+		 */
+		void structural() {
+			structural = true;
+		}
+
+		/**
+		 * Note a road between two towns whose miles changed, or which was
+		 * dropped if the weight is SnapshotDelta.REMOVED.
+		 */
+		void roadChanged(Town sourceVertex, Town destinationVertex, int weight) {
+			CsrTownGraph frozen = base.isFrozen() ? base.freeze() : null;
+			if(frozen == null) {
+				return;
+			}
+			int arc = frozen.findArc(frozen.idOf(sourceVertex), frozen.idOf(destinationVertex));
+			changedArcs.add(arc);
+			newWeights.add(weight);
+			if(frozen.reverseArc(arc) != arc) {
+				changedArcs.add(frozen.reverseArc(arc));
+				newWeights.add(weight);
+			}
+		}
+
+		/**
+		 * Make the new segments the current snapshot.
+		 */
+		void publish(int vertexCount) {
+			long version = base.getVersion() + 1;
+			CsrTownGraph patched = null;
+			if(!structural && !changedArcs.isEmpty()) {
+				int[] arcs = new int[changedArcs.size()];
+				int[] weights = new int[arcs.length];
+				for(int i = 0; i < arcs.length; i++) {
+					arcs[i] = changedArcs.get(i);
+					weights[i] = newWeights.get(i);
+				}
+				patched = base.freeze().change(arcs, weights, version).after;
+			}
+			current = new TownGraphSnapshot(version, segments, vertexCount, patched);
+		}
+	}
+}
@@ -0,0 +1,557 @@
+package data_structure;
+
+import java.util.Arrays;
+
+import interfaces.IndexedPriorityQueue;
+/**
+ * A contraction hierarchy built from a CsrTownGraph, for fast point-to-point
+ * queries on a graph that does not change between rebuilds.
+ *
+ * Towns are contracted one at a time, least important first. Contracting a
+ * town removes it from the remaining graph and adds a shortcut between two of
+ * its neighbours whenever the route through it was the only shortest one, as
+ * found by a bounded witness search. Importance is the edge difference (the
+ * shortcuts a contraction would add less the roads it removes) plus the number
+ * of neighbours already contracted, which spreads contraction evenly over the
+ * graph. Priorities are refreshed lazily: a town is re-queued if its recomputed
+ * priority is no longer the smallest.
+ *
+ * Every shortcut remembers the town it bypasses and the two edges it replaces,
+ * and every original edge the arc it came from, so a route over shortcuts can
+ * be unpacked back into the arcs, and so the Road strings, of the snapshot. A
+ * query searches upwards in rank from both ends and the two searches meet at
+ * the highest town of the shortest route.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class ContractionHierarchy {
+	private static final int UNREACHED = SearchWorkspace.UNREACHED;
+	private static final int NONE = -1;
+	private static final int WITNESS_SETTLE_LIMIT = 500;
+	private static final int SIMULATION_SETTLE_LIMIT = 50;
+
+	private final CsrTownGraph graph;
+	private final ShortestPathEngine engine = new ShortestPathEngine();
+	private final int[] rank;
+
+	private int edgeCount;
+	private int[] edgeU = new int[16];
+	private int[] edgeV = new int[16];
+	private int[] edgeWeight = new int[16];
+	private int[] edgeArc = new int[16];
+	private int[] edgeMiddle = new int[16];
+	private int[] edgeFirst = new int[16];
+	private int[] edgeSecond = new int[16];
+
+	private int[] upOffsets;
+	private int[] upTargets;
+	private int[] upWeights;
+	private int[] upEdges;
+
+	private int[][] adjacency;
+	private int[] degree;
+	private boolean[] contracted;
+	private int[] deletedNeighbours;
+	private int[] targetMark;
+	private int targetStamp;
+
+	/**
+	 * Contract every town of a snapshot and build the upward search graph.
+	 *
+	 * @param graph The snapshot to preprocess. Its roads must have the same
+	 * weight in both directions, as TownGraph guarantees.
+	 */
+	public ContractionHierarchy(CsrTownGraph graph) {
+		this.graph = graph;
+		int n = graph.vertexCount();
+		this.rank = new int[n];
+		adjacency = new int[n][];
+		degree = new int[n];
+		contracted = new boolean[n];
+		deletedNeighbours = new int[n];
+		targetMark = new int[n];
+		for(int v = 0; v < n; v++) {
+			adjacency[v] = new int[Math.max(2, graph.endArc(v) - graph.firstArc(v))];
+		}
+		for(int arc = 0; arc < graph.arcCount(); arc++) {
+			int u = graph.arcSource(arc);
+			int v = graph.arcTarget(arc);
+			if(u < v) {
+				addEdge(u, v, graph.arcWeight(arc), arc, NONE, NONE, NONE);
+			}
+		}
+		contractAll();
+		buildUpwardGraph();
+		adjacency = null;
+		degree = null;
+		contracted = null;
+		deletedNeighbours = null;
+		targetMark = null;
+	}
+
+	/**
+	 * Get the snapshot the hierarchy was built from.
+	 *
+	 * @return The snapshot.
+	 */
+	public CsrTownGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Get the position of a town in the contraction order.
+	 *
+	 * @param v Id of the town.
+	 * @return 0 for the first town contracted, vertexCount() - 1 for the last.
+	 */
+	public int rank(int v) {
+		return rank[v];
+	}
+
+	/**
+	 * Get the number of shortcuts added during contraction.
+	 *
+	 * @return The number of shortcut edges.
+	 */
+	public int shortcutCount() {
+		int count = 0;
+		for(int e = 0; e < edgeCount; e++) {
+			if(edgeArc[e] == NONE) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Find the shortest route between two towns.
+	 *
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @return The route over the arcs of the snapshot, or null if the target
+	 * cannot be reached.
+	 */
+	public Route route(int source, int target) {
+		return route(source, target, QueueType.QUATERNARY_HEAP);
+	}
+
+	/**
+	 * Find the shortest route between two towns with an upward search from each
+	 * end. A side stops once its smallest queued key reaches the best meeting
+	 * distance found so far, and the query ends when both sides have stopped.
+	 *
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param type The priority queue to search with.
+	 * @return The route over the arcs of the snapshot, or null if the target
+	 * cannot be reached.
+	 */
+	public Route route(int source, int target, QueueType type) {
+		if(source == target) {
+			return new Route(graph, 0, new int[0]);
+		}
+		SearchWorkspace forward = engine.acquire();
+		SearchWorkspace backward = engine.acquire();
+		try {
+			int n = graph.vertexCount();
+			forward.begin(n);
+			backward.begin(n);
+			IndexedPriorityQueue forwardQueue = forward.queue(type);
+			IndexedPriorityQueue backwardQueue = backward.queue(type);
+			forward.reach(source, 0, NONE);
+			forwardQueue.insert(source, 0);
+			backward.reach(target, 0, NONE);
+			backwardQueue.insert(target, 0);
+			long best = UNREACHED;
+			int meet = NONE;
+			while(!forwardQueue.isEmpty() || !backwardQueue.isEmpty()) {
+				boolean isForward = !forwardQueue.isEmpty()
+						&& (backwardQueue.isEmpty() || forwardQueue.minKey() <= backwardQueue.minKey());
+				SearchWorkspace ws = isForward ? forward : backward;
+				SearchWorkspace other = isForward ? backward : forward;
+				IndexedPriorityQueue queue = isForward ? forwardQueue : backwardQueue;
+				if(queue.minKey() >= best) {
+					queue.clear();
+					continue;
+				}
+				int u = queue.poll();
+				ws.settle(u);
+				int d = ws.distance(u);
+				int otherDistance = other.distance(u);
+				if(otherDistance != UNREACHED && (long) d + otherDistance < best) {
+					best = (long) d + otherDistance;
+					meet = u;
+				}
+				for(int i = upOffsets[u], end = upOffsets[u + 1]; i < end; i++) {
+					int v = upTargets[i];
+					int nd = d + upWeights[i];
+					int old = ws.distance(v);
+					if(nd < old) {
+						ws.reach(v, nd, upEdges[i]);
+						if(old == UNREACHED) {
+							queue.insert(v, nd);
+						}else {
+							queue.decreaseKey(v, nd);
+						}
+					}
+				}
+			}
+			if(meet == NONE) {
+				return null;
+			}
+			return unpack(source, target, meet, (int) best, forward, backward);
+		} finally {
+			engine.release(backward);
+			engine.release(forward);
+		}
+	}
+
+	/**
+	 * Turn the two chains of hierarchy edges that meet at a town into the arcs
+	 * of the snapshot, from the source to the target.
+	 */
+	private Route unpack(int source, int target, int meet, int distance,
+			SearchWorkspace forward, SearchWorkspace backward) {
+		int up = 0;
+		for(int v = meet; v != source; v = other(forward.predArc(v), v)) {
+			up++;
+		}
+		int[] edges = new int[up];
+		int[] from = new int[up];
+		int i = up;
+		for(int v = meet; v != source; v = other(forward.predArc(v), v)) {
+			i--;
+			edges[i] = forward.predArc(v);
+			from[i] = other(edges[i], v);
+		}
+		int down = 0;
+		for(int v = meet; v != target; v = other(backward.predArc(v), v)) {
+			down++;
+		}
+		edges = Arrays.copyOf(edges, up + down);
+		from = Arrays.copyOf(from, up + down);
+		i = up;
+		for(int v = meet; v != target; v = other(backward.predArc(v), v)) {
+			edges[i] = backward.predArc(v);
+			from[i] = v;
+			i++;
+		}
+		int[] arcs = new int[8];
+		int count = 0;
+		int[] stackEdges = new int[16];
+		int[] stackFrom = new int[16];
+		for(int k = 0; k < edges.length; k++) {
+			int top = 0;
+			stackEdges[top] = edges[k];
+			stackFrom[top] = from[k];
+			top++;
+			while(top > 0) {
+				top--;
+				int e = stackEdges[top];
+				int x = stackFrom[top];
+				if(edgeArc[e] != NONE) {
+					if(count == arcs.length) {
+						arcs = Arrays.copyOf(arcs, count * 2);
+					}
+					int arc = edgeArc[e];
+					arcs[count++] = graph.arcSource(arc) == x ? arc : graph.reverseArc(arc);
+					continue;
+				}
+				if(top + 2 > stackEdges.length) {
+					stackEdges = Arrays.copyOf(stackEdges, stackEdges.length * 2);
+					stackFrom = Arrays.copyOf(stackFrom, stackFrom.length * 2);
+				}
+				int near = x == edgeU[e] ? edgeFirst[e] : edgeSecond[e];
+				int far = x == edgeU[e] ? edgeSecond[e] : edgeFirst[e];
+				stackEdges[top] = far;
+				stackFrom[top] = edgeMiddle[e];
+				top++;
+				stackEdges[top] = near;
+				stackFrom[top] = x;
+				top++;
+			}
+		}
+		return new Route(graph, distance, Arrays.copyOf(arcs, count));
+	}
+
+	/**
+	 * Get the end of an edge opposite a town.
+	 */
+	private int other(int e, int v) {
+		return edgeU[e] == v ? edgeV[e] : edgeU[e];
+	}
+
+	/**
+	 * Contract the towns in order of importance.
+	 */
+	private void contractAll() {
+		int n = graph.vertexCount();
+		DaryHeap queue = new DaryHeap(4);
+		queue.ensureCapacity(n);
+		int[] priority = new int[n];
+		SearchWorkspace ws = engine.acquire();
+		try {
+			for(int v = 0; v < n; v++) {
+				priority[v] = priority(v, ws);
+				queue.insert(v, priority[v]);
+			}
+			int order = 0;
+			while(!queue.isEmpty()) {
+				int v = queue.poll();
+				int p = priority(v, ws);
+				if(!queue.isEmpty() && p > queue.minKey()) {
+					priority[v] = p;
+					queue.insert(v, p);
+					continue;
+				}
+				shortcuts(v, ws, true);
+				contracted[v] = true;
+				rank[v] = order++;
+				for(int i = 0; i < degree[v]; i++) {
+					int x = other(adjacency[v][i], v);
+					if(contracted[x] || !detach(x, v)) {
+						continue;
+					}
+					deletedNeighbours[x]++;
+					int np = priority(x, ws);
+					if(np < priority[x]) {
+						priority[x] = np;
+						queue.decreaseKey(x, np);
+					}
+				}
+			}
+		} finally {
+			engine.release(ws);
+		}
+	}
+
+	/**
+	 * The importance of a town: edge difference plus contracted neighbours.
+	 */
+	private int priority(int v, SearchWorkspace ws) {
+		return shortcuts(v, ws, false) - degree[v] + deletedNeighbours[v];
+	}
+
+	/**
+	 * Remove the edges between a town and a neighbour that has just been
+	 * contracted, so later searches do not walk over them.
+	 *
+	 * @return True if any edge was removed, false if an earlier call for
+	 * a parallel edge already did.
+	 */
+	private boolean detach(int x, int contractedTown) {
+		int[] edges = adjacency[x];
+		int kept = 0;
+		for(int i = 0; i < degree[x]; i++) {
+			if(other(edges[i], x) != contractedTown) {
+				edges[kept++] = edges[i];
+			}
+		}
+		boolean removed = kept < degree[x];
+		degree[x] = kept;
+		return removed;
+	}
+
+	/**
+	 * Count, and optionally add, the shortcuts needed to contract a town. For
+	 * every pair of remaining neighbours u and x a shortcut is needed unless a
+	 * witness search from u that avoids the town finds a route to x no longer
+	 * than the one through it.
+	 *
+	 * @param v The town to contract.
+	 * @param ws Workspace for the witness searches.
+	 * @param add True to add the shortcuts, false to only count them.
+	 * @return The number of shortcuts needed.
+	 */
+	private int shortcuts(int v, SearchWorkspace ws, boolean add) {
+		int[] neighbours = new int[degree[v]];
+		int[] viaEdge = new int[degree[v]];
+		int count = 0;
+		for(int i = 0; i < degree[v]; i++) {
+			int e = adjacency[v][i];
+			int x = other(e, v);
+			int seen = indexOf(neighbours, count, x);
+			if(seen < 0) {
+				neighbours[count] = x;
+				viaEdge[count] = e;
+				count++;
+			}else if(edgeWeight[e] < edgeWeight[viaEdge[seen]]) {
+				viaEdge[seen] = e;
+			}
+		}
+		int needed = 0;
+		for(int i = 0; i < count - 1; i++) {
+			int u = neighbours[i];
+			int maxVia = 0;
+			for(int j = i + 1; j < count; j++) {
+				maxVia = Math.max(maxVia, edgeWeight[viaEdge[i]] + edgeWeight[viaEdge[j]]);
+			}
+			targetStamp++;
+			for(int j = i + 1; j < count; j++) {
+				targetMark[neighbours[j]] = targetStamp;
+			}
+			witness(u, v, maxVia, count - i - 1, add ? WITNESS_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT, ws);
+			for(int j = i + 1; j < count; j++) {
+				int via = edgeWeight[viaEdge[i]] + edgeWeight[viaEdge[j]];
+				if(ws.distance(neighbours[j]) > via) {
+					needed++;
+					if(add) {
+						shortcut(u, neighbours[j], via, v, viaEdge[i], viaEdge[j]);
+					}
+				}
+			}
+		}
+		return needed;
+	}
+
+	/**
+	 * Dijkstra's algorithm from u over the towns not yet contracted, leaving out
+	 * the town being contracted, until the distance passes the limit, every
+	 * marked target is settled or enough towns have been settled.
+	 */
+	private void witness(int u, int skip, int limit, int targets, int settleLimit, SearchWorkspace ws) {
+		ws.begin(graph.vertexCount());
+		IndexedPriorityQueue queue = ws.queue(QueueType.BINARY_HEAP);
+		ws.reach(u, 0, NONE);
+		queue.insert(u, 0);
+		int settled = 0;
+		while(!queue.isEmpty() && settled < settleLimit) {
+			if(queue.minKey() > limit) {
+				break;
+			}
+			int x = queue.poll();
+			settled++;
+			if(targetMark[x] == targetStamp && --targets == 0) {
+				break;
+			}
+			int d = ws.distance(x);
+			for(int i = 0; i < degree[x]; i++) {
+				int e = adjacency[x][i];
+				int y = other(e, x);
+				if(y == skip) {
+					continue;
+				}
+				int nd = d + edgeWeight[e];
+				int old = ws.distance(y);
+				if(nd < old) {
+					ws.reach(y, nd, e);
+					if(old == UNREACHED) {
+						queue.insert(y, nd);
+					}else {
+						queue.decreaseKey(y, nd);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add a shortcut between two towns, or lower the weight of the edge already
+	 * between them. Neither town is contracted yet, so no other shortcut refers
+	 * to that edge and it can be overwritten in place; keeping one edge per pair
+	 * stops the remaining graph from filling up with parallel shortcuts.
+	 */
+	private void shortcut(int u, int x, int weight, int middle, int first, int second) {
+		int existing = NONE;
+		for(int i = 0; i < degree[u]; i++) {
+			int e = adjacency[u][i];
+			if(other(e, u) == x && (existing == NONE || edgeWeight[e] < edgeWeight[existing])) {
+				existing = e;
+			}
+		}
+		if(existing == NONE) {
+			addEdge(u, x, weight, NONE, middle, first, second);
+		}else if(weight < edgeWeight[existing]) {
+			boolean sameWay = edgeU[existing] == u;
+			edgeWeight[existing] = weight;
+			edgeArc[existing] = NONE;
+			edgeMiddle[existing] = middle;
+			edgeFirst[existing] = sameWay ? first : second;
+			edgeSecond[existing] = sameWay ? second : first;
+		}
+	}
+
+	/**
+	 * Add an original edge or a shortcut between two towns.
+	 */
+	private void addEdge(int u, int v, int weight, int arc, int middle, int first, int second) {
+		if(edgeCount == edgeU.length) {
+			int capacity = edgeCount * 2;
+			edgeU = Arrays.copyOf(edgeU, capacity);
+			edgeV = Arrays.copyOf(edgeV, capacity);
+			edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+			edgeArc = Arrays.copyOf(edgeArc, capacity);
+			edgeMiddle = Arrays.copyOf(edgeMiddle, capacity);
+			edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+			edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+		}
+		int e = edgeCount++;
+		edgeU[e] = u;
+		edgeV[e] = v;
+		edgeWeight[e] = weight;
+		edgeArc[e] = arc;
+		edgeMiddle[e] = middle;
+		edgeFirst[e] = first;
+		edgeSecond[e] = second;
+		attach(u, e);
+		attach(v, e);
+	}
+
+	/**
+	 * Append an edge to the adjacency list of a town.
+	 */
+	private void attach(int v, int e) {
+		if(degree[v] == adjacency[v].length) {
+			adjacency[v] = Arrays.copyOf(adjacency[v], degree[v] * 2);
+		}
+		adjacency[v][degree[v]++] = e;
+	}
+
+	/**
+	 * Keep, for every town, only the edges leading to higher ranked towns, in
+	 * CSR form.
+	 */
+	private void buildUpwardGraph() {
+		int n = graph.vertexCount();
+		upOffsets = new int[n + 1];
+		for(int e = 0; e < edgeCount; e++) {
+			int low = rank[edgeU[e]] < rank[edgeV[e]] ? edgeU[e] : edgeV[e];
+			upOffsets[low + 1]++;
+		}
+		for(int v = 0; v < n; v++) {
+			upOffsets[v + 1] += upOffsets[v];
+		}
+		upTargets = new int[edgeCount];
+		upWeights = new int[edgeCount];
+		upEdges = new int[edgeCount];
+		int[] fill = Arrays.copyOf(upOffsets, n);
+		for(int e = 0; e < edgeCount; e++) {
+			boolean uLow = rank[edgeU[e]] < rank[edgeV[e]];
+			int low = uLow ? edgeU[e] : edgeV[e];
+			int i = fill[low]++;
+			upTargets[i] = uLow ? edgeV[e] : edgeU[e];
+			upWeights[i] = edgeWeight[e];
+			upEdges[i] = e;
+		}
+		edgeU = Arrays.copyOf(edgeU, edgeCount);
+		edgeV = Arrays.copyOf(edgeV, edgeCount);
+		edgeWeight = Arrays.copyOf(edgeWeight, edgeCount);
+		edgeArc = Arrays.copyOf(edgeArc, edgeCount);
+		edgeMiddle = Arrays.copyOf(edgeMiddle, edgeCount);
+		edgeFirst = Arrays.copyOf(edgeFirst, edgeCount);
+		edgeSecond = Arrays.copyOf(edgeSecond, edgeCount);
+	}
+
+	/**
+	 * Find the position of a value among the first count entries, or -1.
+	 */
+	private static int indexOf(int[] values, int count, int value) {
+		for(int i = 0; i < count; i++) {
+			if(values[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
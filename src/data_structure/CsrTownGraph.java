@@ -0,0 +1,984 @@
+package data_structure;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import data_element.Road;
+import data_element.Town;
+import interfaces.GraphInterface;
+/**
+ * An immutable compressed sparse row (CSR) snapshot of a TownGraph.
+ *
+ * Every town is given a dense int id from 0 to vertexCount() - 1. The roads
+ * leaving town v are the arcs offsets[v] up to offsets[v + 1], and each arc
+ * keeps its source, target and weight in parallel int arrays. Road names live
+ * in a side table that every arc indexes into, so a road name shared by many
+ * arcs is stored once. Both directions of every undirected road are present.
+ *
+ * Roads with a travel time profile keep it in four more flat arrays: the
+ * profile of each arc, or NO_PROFILE, where each profile's breakpoints start
+ * and end, and the breakpoint times and travel times of all profiles back to
+ * back. The two directions of a road share one profile.
+ *
+ * The snapshot implements GraphInterface so it can stand in for the graph it
+ * was built from, but all of the methods that would modify it throw
+ * UnsupportedOperationException.
+ *
+ * A snapshot can be saved to a binary file and loaded back without the text
+ * road file. The file is a fixed header, the CSR arrays, any travel time
+ * profiles and a string table of the town and road names, all little-endian.
+ * Loading is not zero-copy: it maps the file and copies each array out of the
+ * mapping into the heap in one bulk transfer, so every JVM that loads a
+ * snapshot holds its own copy of the arrays and only the file pages in the
+ * OS page cache are shared. The only objects made are one Town per town and
+ * one String per distinct road name. The offsets and string ends are checked
+ * before anything is built, so a corrupt file is an IOException.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class CsrTownGraph implements GraphInterface<Town, Road>{
+	private static final int NO_ARC = SearchWorkspace.NO_ARC;
+	private static final ShortestPathEngine ENGINE = new ShortestPathEngine();
+	/**
+	 * The first four bytes of a snapshot file, "TGCS".
+	 */
+	private static final int MAGIC = 0x53434754;
+	/**
+	 * The layout of the snapshot files written by save.
+	 */
+	private static final int FORMAT_VERSION = 2;
+	/**
+	 * Magic, format version, graph version, town, arc and name counts, largest
+	 * weight, string table length and profile count. Format 1 files have the
+	 * same layout with no profiles.
+	 */
+	private static final int HEADER_BYTES = 40;
+	/**
+	 * The profile of an arc whose road has none.
+	 */
+	public static final int NO_PROFILE = -1;
+
+	private final Town[] towns;
+	private final Map<Town, Integer> ids;
+	private final int[] offsets;
+	private final int[] sources;
+	private final int[] targets;
+	private final int[] weights;
+	private final int[] reverse;
+	private final int[] roadNames;
+	private final String[] names;
+	private final int maxWeight;
+	private final long version;
+	private final int[] profiles;
+	private final int[] profileEnds;
+	private final int[] profileTimes;
+	private final int[] profileMinutes;
+
+	/**
+	 * Compiles the adjacency of a TownGraph into CSR arrays. Town ids follow the
+	 * iteration order of the adjacency map.
+	 *
+	 * @param adjacency Every town mapped to its neighbours and the roads to them.
+	 * @param version The version of the graph the snapshot is taken from.
+	 */
+	CsrTownGraph(Map<Town, Map<Town, Road>> adjacency, long version) {
+		int vertexCount = adjacency.size();
+		int arcCount = 0;
+		for(Map<Town, Road> neighbours : adjacency.values()) {
+			arcCount += neighbours.size();
+		}
+		this.towns = new Town[vertexCount];
+		this.ids = new HashMap<Town, Integer>(vertexCount * 2);
+		this.offsets = new int[vertexCount + 1];
+		this.sources = new int[arcCount];
+		this.targets = new int[arcCount];
+		this.weights = new int[arcCount];
+		this.reverse = new int[arcCount];
+		this.roadNames = new int[arcCount];
+		this.version = version;
+
+		int id = 0;
+		for(Town t : adjacency.keySet()) {
+			towns[id] = t;
+			ids.put(t, id);
+			id++;
+		}
+		IdentityHashMap<Road, Integer> arcOf = new IdentityHashMap<Road, Integer>(arcCount * 2);
+		HashMap<String, Integer> nameIds = new HashMap<String, Integer>();
+		ArrayList<String> nameTable = new ArrayList<String>();
+		Road[] profiled = null;
+		int arc = 0;
+		int max = 0;
+		for(int v = 0; v < vertexCount; v++) {
+			offsets[v] = arc;
+			for(Road r : adjacency.get(towns[v]).values()) {
+				Integer nameId = nameIds.get(r.getName());
+				if(nameId == null) {
+					nameId = nameTable.size();
+					nameIds.put(r.getName(), nameId);
+					nameTable.add(r.getName());
+				}
+				sources[arc] = v;
+				targets[arc] = ids.get(r.getDestination());
+				weights[arc] = r.getWeight();
+				roadNames[arc] = nameId;
+				arcOf.put(r, arc);
+				max = Math.max(max, r.getWeight());
+				if(r.getProfileTimes() != null) {
+					if(profiled == null) {
+						profiled = new Road[arcCount];
+					}
+					profiled[arc] = r;
+				}
+				arc++;
+			}
+		}
+		offsets[vertexCount] = arc;
+		for(int a = 0; a < arcCount; a++) {
+			Road back = adjacency.get(towns[targets[a]]).get(towns[sources[a]]);
+			reverse[a] = back == null ? NO_ARC : arcOf.get(back);
+		}
+		this.names = nameTable.toArray(new String[nameTable.size()]);
+		this.maxWeight = max;
+		if(profiled == null) {
+			this.profiles = null;
+			this.profileEnds = null;
+			this.profileTimes = null;
+			this.profileMinutes = null;
+			return;
+		}
+		this.profiles = new int[arcCount];
+		int count = 0;
+		int points = 0;
+		for(int a = 0; a < arcCount; a++) {
+			Road r = profiled[a];
+			int b = reverse[a];
+			if(r == null) {
+				profiles[a] = NO_PROFILE;
+			}else if(b != NO_ARC && b < a && profiled[b] != null && sameProfile(profiled[b], r)) {
+				profiles[a] = profiles[b];
+			}else {
+				profiles[a] = count++;
+				points += r.getProfileTimes().length;
+			}
+		}
+		this.profileEnds = new int[count + 1];
+		this.profileTimes = new int[points];
+		this.profileMinutes = new int[points];
+		int next = 0;
+		for(int a = 0; a < arcCount && next < count; a++) {
+			if(profiles[a] == next) {
+				int[] t = profiled[a].getProfileTimes();
+				System.arraycopy(t, 0, profileTimes, profileEnds[next], t.length);
+				System.arraycopy(profiled[a].getProfileMinutes(), 0, profileMinutes, profileEnds[next], t.length);
+				profileEnds[next + 1] = profileEnds[next] + t.length;
+				next++;
+			}
+		}
+	}
+
+	/**
+	 * Whether two roads have equal travel time profiles.
+	 */
+	private static boolean sameProfile(Road a, Road b) {
+		return Arrays.equals(a.getProfileTimes(), b.getProfileTimes())
+				&& Arrays.equals(a.getProfileMinutes(), b.getProfileMinutes());
+	}
+
+	/**
+	 * Constructor for a snapshot read from a file. The source of every arc is
+	 * filled in from the offsets.
+	 */
+	private CsrTownGraph(Town[] towns, int[] offsets, int[] targets, int[] weights, int[] reverse,
+			int[] roadNames, String[] names, int maxWeight, long version, int[] profiles, int[] profileEnds,
+			int[] profileTimes, int[] profileMinutes) {
+		this.towns = towns;
+		this.ids = new HashMap<Town, Integer>(towns.length * 2);
+		this.offsets = offsets;
+		this.sources = new int[targets.length];
+		this.targets = targets;
+		this.weights = weights;
+		this.reverse = reverse;
+		this.roadNames = roadNames;
+		this.names = names;
+		this.maxWeight = maxWeight;
+		this.version = version;
+		this.profiles = profiles;
+		this.profileEnds = profileEnds;
+		this.profileTimes = profileTimes;
+		this.profileMinutes = profileMinutes;
+		for(int v = 0; v < towns.length; v++) {
+			ids.put(towns[v], v);
+			Arrays.fill(sources, offsets[v], offsets[v + 1], v);
+		}
+	}
+
+	/**
+	 * Constructor for a snapshot made from another by change, sharing what did
+	 * not change. The towns, road names and profile tables are always shared.
+	 */
+	private CsrTownGraph(CsrTownGraph from, int[] offsets, int[] sources, int[] targets, int[] weights,
+			int[] reverse, int[] roadNames, int maxWeight, long version, int[] profiles) {
+		this.towns = from.towns;
+		this.ids = from.ids;
+		this.offsets = offsets;
+		this.sources = sources;
+		this.targets = targets;
+		this.weights = weights;
+		this.reverse = reverse;
+		this.roadNames = roadNames;
+		this.names = from.names;
+		this.maxWeight = maxWeight;
+		this.version = version;
+		this.profiles = profiles;
+		this.profileEnds = from.profileEnds;
+		this.profileTimes = from.profileTimes;
+		this.profileMinutes = from.profileMinutes;
+	}
+
+	/**
+	 * Make the same snapshot under another graph version, sharing every array.
+	 *
+	 * @param nextVersion The version of the copy.
+	 * @return This snapshot if the version is the same, otherwise the copy.
+	 */
+	CsrTownGraph withVersion(long nextVersion) {
+		if(nextVersion == version) {
+			return this;
+		}
+		return new CsrTownGraph(this, offsets, sources, targets, weights, reverse, roadNames, maxWeight, nextVersion, profiles);
+	}
+
+	/**
+	 * Make the snapshot of the same towns after the miles of some arcs change
+	 * or some arcs are dropped, without going back to the TownGraph. Town ids
+	 * stay the same, and so do arc indexes unless arcs are dropped. The arrays
+	 * that do not change are shared with this snapshot.
+	 *
+	 * @param arcs The arcs that change. Both arcs of a road must be given.
+	 * @param newWeights The new weight of each arc, or SnapshotDelta.REMOVED
+	 * to drop it.
+	 * @param nextVersion The version of the graph after the change.
+	 * @return The two snapshots and how they differ.
+	 */
+	SnapshotDelta change(int[] arcs, int[] newWeights, long nextVersion) {
+		int[] oldWeights = new int[arcs.length];
+		int[] w = weights.clone();
+		int removed = 0;
+		int max = maxWeight;
+		boolean rescan = false;
+		for(int i = 0; i < arcs.length; i++) {
+			oldWeights[i] = weights[arcs[i]];
+			if(newWeights[i] == SnapshotDelta.REMOVED) {
+				removed++;
+			}else {
+				w[arcs[i]] = newWeights[i];
+				max = Math.max(max, newWeights[i]);
+			}
+			rescan |= oldWeights[i] == maxWeight && newWeights[i] < maxWeight;
+		}
+		if(removed == 0) {
+			if(rescan) {
+				max = max(w);
+			}
+			CsrTownGraph after = new CsrTownGraph(this, offsets, sources, targets, w, reverse, roadNames, max, nextVersion, profiles);
+			return new SnapshotDelta(this, after, arcs, oldWeights, newWeights, null);
+		}
+		int[] arcMap = new int[targets.length];
+		for(int i = 0; i < arcs.length; i++) {
+			if(newWeights[i] == SnapshotDelta.REMOVED) {
+				arcMap[arcs[i]] = NO_ARC;
+			}
+		}
+		int count = 0;
+		for(int a = 0; a < arcMap.length; a++) {
+			arcMap[a] = arcMap[a] == NO_ARC ? NO_ARC : count++;
+		}
+		int[] nextOffsets = new int[offsets.length];
+		int[] nextSources = new int[count];
+		int[] nextTargets = new int[count];
+		int[] nextWeights = new int[count];
+		int[] nextReverse = new int[count];
+		int[] nextNames = new int[count];
+		int[] nextProfiles = profiles == null ? null : new int[count];
+		int b = 0;
+		for(int v = 0; v < towns.length; v++) {
+			nextOffsets[v] = b;
+			for(int a = offsets[v]; a < offsets[v + 1]; a++) {
+				if(arcMap[a] != NO_ARC) {
+					nextSources[b] = v;
+					nextTargets[b] = targets[a];
+					nextWeights[b] = w[a];
+					nextReverse[b] = reverse[a] == NO_ARC ? NO_ARC : arcMap[reverse[a]];
+					nextNames[b] = roadNames[a];
+					if(nextProfiles != null) {
+						nextProfiles[b] = profiles[a];
+					}
+					b++;
+				}
+			}
+		}
+		nextOffsets[towns.length] = count;
+		if(rescan) {
+			max = max(nextWeights);
+		}
+		CsrTownGraph after = new CsrTownGraph(this, nextOffsets, nextSources, nextTargets, nextWeights, nextReverse,
+				nextNames, max, nextVersion, nextProfiles);
+		return new SnapshotDelta(this, after, arcs, oldWeights, newWeights, arcMap);
+	}
+
+	/**
+	 * The largest of some weights, 0 if there are none.
+	 */
+	private static int max(int[] weights) {
+		int max = 0;
+		for(int w : weights) {
+			max = Math.max(max, w);
+		}
+		return max;
+	}
+
+	/**
+	 * Write the snapshot to a binary file that load can map back in, replacing
+	 * the file if it exists.
+	 *
+	 * @param file The file to write.
+	 * @throws IOException if the file cannot be written, or the snapshot is
+	 * too large for one file mapping.
+	 */
+	public void save(File file) throws IOException {
+		byte[][] townBytes = new byte[towns.length][];
+		byte[][] nameBytes = new byte[names.length][];
+		long stringBytes = 0;
+		for(int v = 0; v < towns.length; v++) {
+			townBytes[v] = towns[v].getName().getBytes(StandardCharsets.UTF_8);
+			stringBytes += townBytes[v].length;
+		}
+		for(int n = 0; n < names.length; n++) {
+			nameBytes[n] = names[n].getBytes(StandardCharsets.UTF_8);
+			stringBytes += nameBytes[n].length;
+		}
+		int profileCount = profiles == null ? 0 : profileEnds.length - 1;
+		int pointCount = profiles == null ? 0 : profileTimes.length;
+		long size = fileSize(towns.length, targets.length, names.length, stringBytes, profileCount, pointCount);
+		if(size > Integer.MAX_VALUE) {
+			throw new IOException("Snapshot of " + size + " bytes is too large to map");
+		}
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			out.order(ByteOrder.LITTLE_ENDIAN);
+			out.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(version);
+			out.putInt(towns.length).putInt(targets.length).putInt(names.length).putInt(maxWeight);
+			out.putInt((int) stringBytes).putInt(profileCount);
+			putStringEnds(out, nameBytes, putStringEnds(out, townBytes, 0));
+			putInts(out, offsets);
+			putInts(out, targets);
+			putInts(out, weights);
+			putInts(out, reverse);
+			putInts(out, roadNames);
+			if(profileCount > 0) {
+				putInts(out, profiles);
+				putInts(out, profileEnds);
+				putInts(out, profileTimes);
+				putInts(out, profileMinutes);
+			}
+			for(byte[] b : townBytes) {
+				out.put(b);
+			}
+			for(byte[] b : nameBytes) {
+				out.put(b);
+			}
+			out.force();
+		}
+	}
+
+	/**
+	 * Load a snapshot written by save. Nothing is parsed: the file is mapped
+	 * and its arrays are copied out whole into the heap.
+	 *
+	 * @param file The file to read.
+	 * @return The snapshot, with the graph version it was saved with.
+	 * @throws IOException if the file cannot be read or is not a snapshot.
+	 */
+	public static CsrTownGraph load(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+				throw new IOException(file + " is not a town graph snapshot");
+			}
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			in.order(ByteOrder.LITTLE_ENDIAN);
+			if(in.getInt() != MAGIC) {
+				throw new IOException(file + " is not a town graph snapshot");
+			}
+			int format = in.getInt();
+			if(format != 1 && format != FORMAT_VERSION) {
+				throw new IOException(file + " has snapshot format " + format + ", expected " + FORMAT_VERSION);
+			}
+			long version = in.getLong();
+			int vertexCount = in.getInt();
+			int arcCount = in.getInt();
+			int nameCount = in.getInt();
+			int maxWeight = in.getInt();
+			int stringBytes = in.getInt();
+			int profileCount = in.getInt();
+			if(vertexCount < 0 || arcCount < 0 || nameCount < 0 || stringBytes < 0 || profileCount < 0
+					|| fileSize(vertexCount, arcCount, nameCount, stringBytes, profileCount, 0) > size) {
+				throw new IOException(file + " is truncated or corrupt");
+			}
+			int[] townEnds = getInts(in, vertexCount + 1);
+			int[] nameEnds = getInts(in, nameCount + 1);
+			int[] offsets = getInts(in, vertexCount + 1);
+			int[] targets = getInts(in, arcCount);
+			int[] weights = getInts(in, arcCount);
+			int[] reverse = getInts(in, arcCount);
+			int[] roadNames = getInts(in, arcCount);
+			if(offsets[0] != 0 || offsets[vertexCount] != arcCount || !ascending(offsets, arcCount)
+					|| !ascending(townEnds, stringBytes) || !ascending(nameEnds, stringBytes)) {
+				throw new IOException(file + " is truncated or corrupt");
+			}
+			int[] profiles = null;
+			int[] profileEnds = null;
+			int[] profileTimes = null;
+			int[] profileMinutes = null;
+			int pointCount = 0;
+			if(profileCount > 0) {
+				profiles = getInts(in, arcCount);
+				profileEnds = getInts(in, profileCount + 1);
+				pointCount = profileEnds[profileCount];
+				if(!ascending(profileEnds, pointCount) || fileSize(vertexCount, arcCount, nameCount, stringBytes, profileCount, pointCount) > size) {
+					throw new IOException(file + " is truncated or corrupt");
+				}
+				profileTimes = getInts(in, pointCount);
+				profileMinutes = getInts(in, pointCount);
+			}
+			if(fileSize(vertexCount, arcCount, nameCount, stringBytes, profileCount, pointCount) != size) {
+				throw new IOException(file + " is truncated or corrupt");
+			}
+			byte[] strings = new byte[stringBytes];
+			in.get(strings);
+			Town[] towns = new Town[vertexCount];
+			for(int v = 0; v < vertexCount; v++) {
+				towns[v] = new Town(new String(strings, townEnds[v], townEnds[v + 1] - townEnds[v], StandardCharsets.UTF_8));
+			}
+			String[] names = new String[nameCount];
+			for(int n = 0; n < nameCount; n++) {
+				names[n] = new String(strings, nameEnds[n], nameEnds[n + 1] - nameEnds[n], StandardCharsets.UTF_8);
+			}
+			return new CsrTownGraph(towns, offsets, targets, weights, reverse, roadNames, names, maxWeight, version,
+					profiles, profileEnds, profileTimes, profileMinutes);
+		} catch(IndexOutOfBoundsException e) {
+			throw new IOException(file + " is truncated or corrupt", e);
+		}
+	}
+
+	/**
+	 * Returns true if the values never go down and all lie between 0 and max.
+	 */
+	private static boolean ascending(int[] values, int max) {
+		int last = 0;
+		for(int value : values) {
+			if(value < last || value > max) {
+				return false;
+			}
+			last = value;
+		}
+		return true;
+	}
+
+	/**
+	 * The exact size of a snapshot file.
+	 */
+	private static long fileSize(int vertexCount, int arcCount, int nameCount, long stringBytes, int profileCount,
+			int pointCount) {
+		long size = HEADER_BYTES + 4L * (vertexCount + 1) * 2 + 4L * (nameCount + 1) + 4L * arcCount * 4 + stringBytes;
+		if(profileCount > 0) {
+			size += 4L * arcCount + 4L * (profileCount + 1) + 8L * pointCount;
+		}
+		return size;
+	}
+
+	/**
+	 * Write where each string starts in the string table, then where the
+	 * last one ends.
+	 *
+	 * @return Where the last string ends.
+	 */
+	private static int putStringEnds(ByteBuffer out, byte[][] bytes, int start) {
+		out.putInt(start);
+		for(byte[] b : bytes) {
+			start += b.length;
+			out.putInt(start);
+		}
+		return start;
+	}
+
+	/**
+	 * Write an int array in one bulk transfer.
+	 */
+	private static void putInts(ByteBuffer out, int[] values) {
+		out.asIntBuffer().put(values);
+		out.position(out.position() + 4 * values.length);
+	}
+
+	/**
+	 * Read an int array in one bulk transfer.
+	 */
+	private static int[] getInts(ByteBuffer in, int count) {
+		int[] values = new int[count];
+		in.asIntBuffer().get(values);
+		in.position(in.position() + 4 * count);
+		return values;
+	}
+
+	/**
+	 * Get the number of towns in the snapshot.
+	 *
+	 * @return The number of towns.
+	 */
+	public int vertexCount() {
+		return towns.length;
+	}
+
+	/**
+	 * Get the number of directed arcs in the snapshot, which is twice the
+	 * number of roads.
+	 *
+	 * @return The number of arcs.
+	 */
+	public int arcCount() {
+		return targets.length;
+	}
+
+	/**
+	 * Get the dense id of a town.
+	 *
+	 * @param town The town to look up.
+	 * @return The id of the town, or -1 if the town is not in the snapshot.
+	 */
+	public int idOf(Town town) {
+		if(town == null) {
+			return -1;
+		}
+		Integer id = ids.get(town);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Get the town with the given id.
+	 *
+	 * @param id Dense id of the town.
+	 * @return The town.
+	 */
+	public Town town(int id) {
+		return towns[id];
+	}
+
+	/**
+	 * Get the first arc leaving a town.
+	 *
+	 * @param v Id of the town.
+	 * @return Index of the first arc leaving the town.
+	 */
+	public int firstArc(int v) {
+		return offsets[v];
+	}
+
+	/**
+	 * Get the index one past the last arc leaving a town.
+	 *
+	 * @param v Id of the town.
+	 * @return Index one past the last arc leaving the town.
+	 */
+	public int endArc(int v) {
+		return offsets[v + 1];
+	}
+
+	/**
+	 * Get the town an arc starts at.
+	 *
+	 * @param arc Index of the arc.
+	 * @return Id of the source town.
+	 */
+	public int arcSource(int arc) {
+		return sources[arc];
+	}
+
+	/**
+	 * Get the town an arc leads to.
+	 *
+	 * @param arc Index of the arc.
+	 * @return Id of the target town.
+	 */
+	public int arcTarget(int arc) {
+		return targets[arc];
+	}
+
+	/**
+	 * Get the distance of an arc in miles.
+	 *
+	 * @param arc Index of the arc.
+	 * @return The weight of the arc.
+	 */
+	public int arcWeight(int arc) {
+		return weights[arc];
+	}
+
+	/**
+	 * Get the arc running the other way along the same road.
+	 *
+	 * @param arc Index of the arc.
+	 * @return Index of the opposite arc.
+	 */
+	public int reverseArc(int arc) {
+		return reverse[arc];
+	}
+
+	/**
+	 * Get the name of the road an arc belongs to.
+	 *
+	 * @param arc Index of the arc.
+	 * @return The road name.
+	 */
+	public String arcName(int arc) {
+		return names[roadNames[arc]];
+	}
+
+	/**
+	 * Find the arc going from one town to another.
+	 *
+	 * @param u Id of the source town.
+	 * @param v Id of the target town.
+	 * @return Index of the arc, or -1 if the towns are not connected.
+	 */
+	public int findArc(int u, int v) {
+		for(int a = offsets[u]; a < offsets[u + 1]; a++) {
+			if(targets[a] == v) {
+				return a;
+			}
+		}
+		return NO_ARC;
+	}
+
+	/**
+	 * Get the largest arc weight in the snapshot.
+	 *
+	 * @return The largest weight, or 0 if there are no roads.
+	 */
+	public int maxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Get the version of the TownGraph the snapshot was taken from.
+	 *
+	 * @return The graph version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Describe an arc the same way Road.toString does, as
+	 * "town1 via road to town2 weight mi".
+	 *
+	 * @param arc Index of the arc.
+	 * @return The description of the arc.
+	 */
+	public String describe(int arc) {
+		return towns[sources[arc]].getName() + " via " + arcName(arc) + " to "
+				+ towns[targets[arc]].getName() + " " + weights[arc] + " mi";
+	}
+
+	/**
+	 * Describe a path given as a sequence of arcs.
+	 *
+	 * @param arcs The arcs of the path in order from the source.
+	 * @return One description per arc, in the format of Road.toString.
+	 */
+	public ArrayList<String> describe(int[] arcs) {
+		ArrayList<String> path = new ArrayList<String>(arcs.length);
+		for(int arc : arcs) {
+			path.add(describe(arc));
+		}
+		return path;
+	}
+
+	/**
+	 * Build a Road object for an arc.
+	 *
+	 * @param arc Index of the arc.
+	 * @return A Road equal to the one the arc was compiled from.
+	 */
+	public Road road(int arc) {
+		Road road = new Road(towns[sources[arc]], towns[targets[arc]], weights[arc], arcName(arc));
+		int p = profile(arc);
+		if(p != NO_PROFILE) {
+			road.setProfile(Arrays.copyOfRange(profileTimes, profileEnds[p], profileEnds[p + 1]),
+					Arrays.copyOfRange(profileMinutes, profileEnds[p], profileEnds[p + 1]));
+		}
+		return road;
+	}
+
+	/**
+	 * Whether any road in the snapshot has a travel time profile.
+	 *
+	 * @return True if some arc has a profile.
+	 */
+	public boolean hasProfiles() {
+		return profiles != null;
+	}
+
+	/**
+	 * Get the travel time profile of an arc.
+	 *
+	 * @param arc Index of the arc.
+	 * @return The profile index, shared by both directions of a road, or
+	 * NO_PROFILE.
+	 */
+	public int profile(int arc) {
+		return profiles == null ? NO_PROFILE : profiles[arc];
+	}
+
+	/**
+	 * Get how long it takes to travel an arc when leaving at a given time. An
+	 * arc without a profile takes its weight in minutes at any time.
+	 *
+	 * @param arc Index of the arc.
+	 * @param departure The departure time in minutes after midnight. Later
+	 * days are taken modulo TravelTimeProfiles.PERIOD.
+	 * @return The travel time in minutes.
+	 */
+	public int travelTime(int arc, int departure) {
+		int p = profile(arc);
+		if(p == NO_PROFILE) {
+			return weights[arc];
+		}
+		return TravelTimeProfiles.evaluate(profileTimes, profileMinutes, profileEnds[p], profileEnds[p + 1], departure);
+	}
+
+	/**
+     * Returns an edge connecting source vertex to target vertex if such
+     * vertices and such edge exist in this graph. Otherwise returns
+     * null. If any of the specified vertices is null
+     * returns null
+     *
+     * @param sourceVertex source vertex of the edge.
+     * @param destinationVertex target vertex of the edge.
+     *
+     * @return an edge connecting source vertex to target vertex.
+     */
+	@Override
+	public Road getEdge(Town sourceVertex, Town destinationVertex) {
+		int u = idOf(sourceVertex);
+		int v = idOf(destinationVertex);
+		if(u < 0 || v < 0) {
+			return null;
+		}
+		int arc = findArc(u, v);
+		return arc == NO_ARC ? null : road(arc);
+	}
+
+	/**
+	 * The snapshot is immutable.
+	 *
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public Road addEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * The snapshot is immutable.
+	 *
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public boolean addVertex(Town v) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+     * Returns true if and only if this graph contains an edge going
+     * from the source vertex to the target vertex. If any of the specified
+     * vertices does not exist in the graph, or if is null, returns false.
+     *
+     * @param sourceVertex source vertex of the edge.
+     * @param destinationVertex target vertex of the edge.
+     *
+     * @return true if this graph contains the specified edge.
+     */
+	@Override
+	public boolean containsEdge(Town sourceVertex, Town destinationVertex) {
+		int u = idOf(sourceVertex);
+		int v = idOf(destinationVertex);
+		return u >= 0 && v >= 0 && findArc(u, v) != NO_ARC;
+	}
+
+	/**
+     * Returns true if this graph contains the specified vertex. If the
+     * specified vertex is null returns false.
+     *
+     * @param v vertex whose presence in this graph is to be tested.
+     *
+     * @return true if this graph contains the specified vertex.
+     */
+	@Override
+	public boolean containsVertex(Town v) {
+		return idOf(v) >= 0;
+	}
+
+	/**
+     * Returns a set of the edges contained in this graph, one Road per road
+     * name as TownGraph.edgeSet does.
+     *
+     * @return a set of the edges contained in this graph.
+     */
+	@Override
+	public Set<Road> edgeSet() {
+		HashMap<String, Road> hm = new HashMap<String, Road>();
+		for(int arc = 0; arc < targets.length; arc++) {
+			hm.put(arcName(arc), road(arc));
+		}
+		return new HashSet<Road>(hm.values());
+	}
+
+	/**
+     * Returns a set of all edges touching the specified vertex. If no edges
+     * are touching the specified vertex returns an empty set.
+     *
+     * @param vertex the vertex for which a set of touching edges is to be
+     * returned.
+     *
+     * @return a set of all edges touching the specified vertex.
+     *
+     * @throws IllegalArgumentException if vertex is not found in the graph.
+     * @throws NullPointerException if vertex is null.
+     */
+	@Override
+	public Set<Road> edgesOf(Town vertex) {
+		if(vertex == null) {
+			throw new NullPointerException();
+		}
+		int v = idOf(vertex);
+		if(v < 0) {
+			throw new IllegalArgumentException();
+		}
+		Set<Road> r = new HashSet<Road>();
+		for(int arc = offsets[v]; arc < offsets[v + 1]; arc++) {
+			r.add(road(arc));
+		}
+		return r;
+	}
+
+	/**
+	 * The snapshot is immutable.
+	 *
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * The snapshot is immutable.
+	 *
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public Road updateWeight(Town sourceVertex, Town destinationVertex, int weight) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * The snapshot is immutable.
+	 *
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public boolean removeVertex(Town v) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+     * Returns a set of the vertices contained in this graph.
+     *
+     * @return a set of the vertices contained in this graph.
+     */
+	@Override
+	public Set<Town> vertexSet() {
+		Set<Town> townCopy = new HashSet<Town>(towns.length * 2);
+		Collections.addAll(townCopy, towns);
+		return townCopy;
+	}
+
+	/**
+     * Find the shortest path from the sourceVertex to the destinationVertex.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @return An arraylist of Strings that describe the path from sourceVertex
+     * to destinationVertex, empty if there is no such path.
+     */
+	@Override
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+		int s = idOf(sourceVertex);
+		int t = idOf(destinationVertex);
+		if(s < 0 || t < 0) {
+			return new ArrayList<String>();
+		}
+		Route route = ENGINE.shortestRoute(this, s, t);
+		return route == null ? new ArrayList<String>() : route.describe();
+	}
+
+	/**
+     * Dijkstra's Shortest Path Method. The distance and predecessor of every
+     * town are written to the Town objects, towns that cannot be reached are
+     * reset to their initial values. The search itself runs in a pooled
+     * SearchWorkspace, only the final results are copied to the towns.
+     * @param sourceVertex the vertex to find shortest path from
+     */
+	@Override
+	public void dijkstraShortestPath(Town sourceVertex) {
+		int s = idOf(sourceVertex);
+		if(s < 0) {
+			return;
+		}
+		publish(new ShortestPathTree(this, s, ENGINE.getQueueType()));
+	}
+
+	/**
+	 * Write the distance and predecessor of every town in a tree to the Town
+	 * objects, the way dijkstraShortestPath leaves them.
+	 *
+	 * @param tree A tree computed on this snapshot.
+	 */
+	void publish(ShortestPathTree tree) {
+		for(int v = 0; v < towns.length; v++) {
+			int arc = tree.predArc(v);
+			if(tree.distance(v) == SearchWorkspace.UNREACHED) {
+				towns[v].setDistance(Town.MAX_DISTANCE);
+			}else {
+				towns[v].setDistance(tree.distance(v));
+			}
+			towns[v].setPred(arc == NO_ARC ? null : towns[sources[arc]]);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package data_structure;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import interfaces.IndexedPriorityQueue;
+/**
+ * An indexed d-ary heap. The heap array holds ids and a position array maps
+ * every id back to its slot, so decreaseKey sifts the id up from where it is.
+ * With d = 2 this is the usual binary heap, d = 4 gives a shallower tree that
+ * does fewer cache-missing moves per sift at the cost of more comparisons.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class DaryHeap implements IndexedPriorityQueue{
+	private final int arity;
+	private int[] heap = new int[0];
+	private int[] pos = new int[0];
+	private int[] keys = new int[0];
+	private int size;
+
+	/**
+	 * Constructor to initialize an empty heap.
+	 *
+	 * @param arity The number of children of every node, at least 2.
+	 */
+	public DaryHeap(int arity) {
+		if(arity < 2) {
+			throw new IllegalArgumentException();
+		}
+		this.arity = arity;
+	}
+
+	@Override
+	public void ensureCapacity(int capacity) {
+		if(pos.length < capacity) {
+			int old = pos.length;
+			heap = Arrays.copyOf(heap, capacity);
+			pos = Arrays.copyOf(pos, capacity);
+			keys = Arrays.copyOf(keys, capacity);
+			Arrays.fill(pos, old, capacity, -1);
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return pos[id] >= 0;
+	}
+
+	@Override
+	public void insert(int id, int key) {
+		keys[id] = key;
+		siftUp(size++, id);
+	}
+
+	@Override
+	public void decreaseKey(int id, int key) {
+		keys[id] = key;
+		siftUp(pos[id], id);
+	}
+
+	@Override
+	public int minKey() {
+		if(size == 0) {
+			throw new NoSuchElementException();
+		}
+		return keys[heap[0]];
+	}
+
+	@Override
+	public int poll() {
+		if(size == 0) {
+			throw new NoSuchElementException();
+		}
+		int top = heap[0];
+		pos[top] = -1;
+		int last = heap[--size];
+		if(size > 0) {
+			siftDown(0, last);
+		}
+		return top;
+	}
+
+	@Override
+	public void clear() {
+		for(int i = 0; i < size; i++) {
+			pos[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Move an id up from slot i until its parent has a smaller key.
+	 */
+	private void siftUp(int i, int id) {
+		int key = keys[id];
+		while(i > 0) {
+			int parent = (i - 1) / arity;
+			int p = heap[parent];
+			if(keys[p] <= key) {
+				break;
+			}
+			heap[i] = p;
+			pos[p] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+
+	/**
+	 * Move an id down from slot i until all of its children have larger keys.
+	 */
+	private void siftDown(int i, int id) {
+		int key = keys[id];
+		while(true) {
+			int first = i * arity + 1;
+			if(first >= size) {
+				break;
+			}
+			int best = first;
+			int bestKey = keys[heap[first]];
+			int end = Math.min(first + arity, size);
+			for(int c = first + 1; c < end; c++) {
+				int k = keys[heap[c]];
+				if(k < bestKey) {
+					best = c;
+					bestKey = k;
+				}
+			}
+			if(key <= bestKey) {
+				break;
+			}
+			heap[i] = heap[best];
+			pos[heap[i]] = i;
+			i = best;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+}
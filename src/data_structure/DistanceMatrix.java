@@ -0,0 +1,223 @@
+package data_structure;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * All-pairs shortest distances of a CsrTownGraph, computed with one search per
+ * source on a ForkJoinPool.
+ *
+ * The distances are kept row-major in a single int[] of V x V entries, and
+ * optionally a second one holds, for every source, the arc each town is
+ * reached through, so any route can be rebuilt without searching again.
+ * Sources are split recursively into ranges and every worker thread reuses
+ * the pooled SearchWorkspace of its thread, so the searches share nothing but
+ * the read-only snapshot and scale with the number of cores.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class DistanceMatrix {
+	/**
+	 * Receives the number of finished sources while a matrix is computed. It is
+	 * called from the worker threads, so it should be quick and thread safe.
+	 */
+	public interface ProgressListener {
+		/**
+		 * Report that another source is done.
+		 *
+		 * @param completed The number of sources finished so far.
+		 * @param total The number of sources.
+		 */
+		void progress(int completed, int total);
+	}
+
+	private final CsrTownGraph graph;
+	private final int n;
+	private final int[] dist;
+	private final int[] pred;
+
+	private DistanceMatrix(CsrTownGraph graph, boolean withPredecessors) {
+		this.graph = graph;
+		this.n = graph.vertexCount();
+		long cells = (long) n * n;
+		if(cells > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("A " + n + " x " + n + " matrix does not fit in one array");
+		}
+		this.dist = new int[(int) cells];
+		this.pred = withPredecessors ? new int[(int) cells] : null;
+	}
+
+	/**
+	 * Compute the matrix on the common ForkJoinPool.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param withPredecessors True to keep the predecessor rows as well.
+	 * @return The matrix.
+	 */
+	public static DistanceMatrix compute(CsrTownGraph graph, boolean withPredecessors) {
+		return compute(graph, withPredecessors, ForkJoinPool.commonPool(), null);
+	}
+
+	/**
+	 * Compute the matrix on a given pool.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param withPredecessors True to keep the predecessor rows as well.
+	 * @param pool The pool to run the searches on.
+	 * @param listener Told after every finished source, or null.
+	 * @return The matrix.
+	 */
+	public static DistanceMatrix compute(CsrTownGraph graph, boolean withPredecessors, ForkJoinPool pool,
+			ProgressListener listener) {
+		DistanceMatrix matrix = new DistanceMatrix(graph, withPredecessors);
+		int grain = Math.max(1, matrix.n / (pool.getParallelism() * 8));
+		pool.invoke(matrix.new Rows(0, matrix.n, grain, new AtomicInteger(), listener));
+		return matrix;
+	}
+
+	/**
+	 * Get the snapshot the matrix was computed on.
+	 *
+	 * @return The snapshot.
+	 */
+	public CsrTownGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Get the number of rows, the same as the number of columns.
+	 *
+	 * @return The number of towns.
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * Get whether predecessor rows were kept.
+	 *
+	 * @return True if predArc and route can be used.
+	 */
+	public boolean hasPredecessors() {
+		return pred != null;
+	}
+
+	/**
+	 * Get the distance between two towns.
+	 *
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @return The distance, or SearchWorkspace.UNREACHED.
+	 */
+	public int distance(int source, int target) {
+		return dist[source * n + target];
+	}
+
+	/**
+	 * Copy out the distances from one source.
+	 *
+	 * @param source Id of the source town.
+	 * @return A new array with one distance per town.
+	 */
+	public int[] row(int source) {
+		int[] row = new int[n];
+		System.arraycopy(dist, source * n, row, 0, n);
+		return row;
+	}
+
+	/**
+	 * Get the arc a town is reached through from a source.
+	 *
+	 * @param source Id of the source town.
+	 * @param v Id of the town.
+	 * @return The arc index, or SearchWorkspace.NO_ARC.
+	 * @throws IllegalStateException if predecessor rows were not kept.
+	 */
+	public int predArc(int source, int v) {
+		if(pred == null) {
+			throw new IllegalStateException("Predecessor rows were not computed");
+		}
+		return pred[source * n + v];
+	}
+
+	/**
+	 * Rebuild the route between two towns from the predecessor rows.
+	 *
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @return The route, or null if the target is unreached.
+	 * @throws IllegalStateException if predecessor rows were not kept.
+	 */
+	public Route route(int source, int target) {
+		if(pred == null) {
+			throw new IllegalStateException("Predecessor rows were not computed");
+		}
+		int distance = distance(source, target);
+		if(distance == SearchWorkspace.UNREACHED) {
+			return null;
+		}
+		int hops = 0;
+		for(int v = target; v != source; v = graph.arcSource(predArc(source, v))) {
+			hops++;
+		}
+		int[] arcs = new int[hops];
+		for(int v = target; v != source; v = graph.arcSource(predArc(source, v))) {
+			arcs[--hops] = predArc(source, v);
+		}
+		return new Route(graph, distance, arcs);
+	}
+
+	/**
+	 * Search from every source in a range, splitting the range in half until
+	 * it is no larger than the grain.
+	 */
+	private class Rows extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+		private final int grain;
+		private final AtomicInteger completed;
+		private final ProgressListener listener;
+
+		Rows(int from, int to, int grain, AtomicInteger completed, ProgressListener listener) {
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.completed = completed;
+			this.listener = listener;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from > grain) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Rows(from, mid, grain, completed, listener),
+						new Rows(mid, to, grain, completed, listener));
+				return;
+			}
+			ShortestPathEngine engine = new ShortestPathEngine();
+			SearchWorkspace ws = engine.acquire();
+			try {
+				for(int s = from; s < to; s++) {
+					engine.shortestPathTree(graph, s, ws);
+					int base = s * n;
+					for(int v = 0; v < n; v++) {
+						dist[base + v] = ws.distance(v);
+					}
+					if(pred != null) {
+						for(int v = 0; v < n; v++) {
+							pred[base + v] = ws.predArc(v);
+						}
+					}
+					int done = completed.incrementAndGet();
+					if(listener != null) {
+						listener.progress(done, n);
+					}
+				}
+			} finally {
+				engine.release(ws);
+			}
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package data_structure;
+
+import data_element.Town;
+/**
+ * The nearest facility of every town of a CsrTownGraph, such as the depot
+ * that should serve it, with the distance to it. Made by
+ * TownGraph.nearestFacilities with one search from all the facilities at
+ * once, and never changed after, so it can be read from many threads.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class FacilityAssignment {
+	private final CsrTownGraph graph;
+	private final int[] facility;
+	private final int[] distance;
+
+	/**
+	 * Constructor to initialize a new FacilityAssignment.
+	 *
+	 * @param graph The snapshot the ids belong to.
+	 * @param facility The id of the nearest facility of every town, or -1.
+	 * @param distance The distance of every town to its facility, or
+	 * SearchWorkspace.UNREACHED.
+	 */
+	FacilityAssignment(CsrTownGraph graph, int[] facility, int[] distance) {
+		this.graph = graph;
+		this.facility = facility;
+		this.distance = distance;
+	}
+
+	/**
+	 * Get the facility nearest to a town.
+	 *
+	 * @param town The town.
+	 * @return The facility, the town itself if it is one, or null if the town
+	 * is missing or cannot reach any facility.
+	 */
+	public Town getFacility(Town town) {
+		int v = graph.idOf(town);
+		return v < 0 || facility[v] < 0 ? null : graph.town(facility[v]);
+	}
+
+	/**
+	 * Get the distance from a town to its nearest facility.
+	 *
+	 * @param town The town.
+	 * @return The distance in miles, or SearchWorkspace.UNREACHED if the town
+	 * is missing or cannot reach any facility.
+	 */
+	public int getDistance(Town town) {
+		int v = graph.idOf(town);
+		return v < 0 ? SearchWorkspace.UNREACHED : distance[v];
+	}
+
+	/**
+	 * Get the number of towns that can reach a facility.
+	 *
+	 * @return The number of towns served, facilities included.
+	 */
+	public int servedCount() {
+		int served = 0;
+		for(int f : facility) {
+			if(f >= 0) {
+				served++;
+			}
+		}
+		return served;
+	}
+}
@@ -0,0 +1,297 @@
+package data_structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+/**
+ * Landmark distance tables for A* search with ALT (A*, landmarks and the
+ * triangle inequality) lower bounds over a CsrTownGraph.
+ *
+ * For every landmark L and town v the table holds d(L, v). Since roads are
+ * undirected, |d(L, t) - d(L, v)| never exceeds d(v, t), and the largest such
+ * difference over all landmarks is a consistent lower bound on the distance
+ * left to the target. The table is stored town-major, the k distances of a
+ * town side by side, so evaluating a bound reads a single short run of ints.
+ *
+ * Landmarks are picked by farthest-point selection: each new landmark is the
+ * town whose distance to the nearest landmark already picked is largest.
+ * Finding that town needs the distances from the landmarks before it, so the
+ * searches are run speculatively in parallel for the few towns that are
+ * currently farthest, and as many of them are accepted as the greedy order
+ * would have picked anyway.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class LandmarkIndex {
+	private static final int UNREACHED = SearchWorkspace.UNREACHED;
+
+	private final CsrTownGraph graph;
+	private final int[] landmarks;
+	private final int[] table;
+
+	/**
+	 * Pick landmarks by farthest-point selection and compute their distance
+	 * tables, running the searches in parallel.
+	 *
+	 * @param graph The snapshot to index.
+	 * @param count The number of landmarks wanted. Fewer are used if the graph
+	 * has fewer towns with roads.
+	 */
+	public LandmarkIndex(CsrTownGraph graph, int count) {
+		this(graph, count, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Pick landmarks by farthest-point selection and compute their distance
+	 * tables.
+	 *
+	 * @param graph The snapshot to index.
+	 * @param count The number of landmarks wanted.
+	 * @param parallelism The number of searches to run at once.
+	 */
+	public LandmarkIndex(CsrTownGraph graph, int count, int parallelism) {
+		this.graph = graph;
+		int n = graph.vertexCount();
+		int connected = 0;
+		for(int v = 0; v < n; v++) {
+			if(graph.endArc(v) > graph.firstArc(v)) {
+				connected++;
+			}
+		}
+		count = Math.min(count, connected);
+		ArrayList<int[]> rows = new ArrayList<int[]>();
+		int[] picked = new int[count];
+		if(count > 0) {
+			int[] nearest = new int[n];
+			Arrays.fill(nearest, UNREACHED);
+			int start = 0;
+			while(graph.endArc(start) == graph.firstArc(start)) {
+				start++;
+			}
+			update(nearest, distances(graph, start));
+			int found = 0;
+			while(found < count) {
+				int[] candidates = farthest(graph, nearest, Math.min(Math.max(1, parallelism), count - found));
+				if(candidates.length == 0) {
+					break;
+				}
+				int[][] candidateRows = distances(graph, candidates);
+				for(int c = 0; c < candidates.length && found < count; c++) {
+					int[] next = farthest(graph, nearest, 1);
+					int match = next.length == 0 ? -1 : indexOf(candidates, next[0]);
+					if(match < 0) {
+						break;
+					}
+					picked[found++] = next[0];
+					rows.add(candidateRows[match]);
+					update(nearest, candidateRows[match]);
+				}
+			}
+		}
+		this.landmarks = Arrays.copyOf(picked, rows.size());
+		this.table = interleave(rows, n);
+	}
+
+	/**
+	 * Compute the distance tables of the given landmarks in parallel.
+	 *
+	 * @param graph The snapshot to index.
+	 * @param landmarks Ids of the landmark towns.
+	 */
+	public LandmarkIndex(CsrTownGraph graph, int[] landmarks) {
+		this.graph = graph;
+		this.landmarks = landmarks.clone();
+		int[][] rows = distances(graph, this.landmarks);
+		this.table = interleave(Arrays.asList(rows), graph.vertexCount());
+	}
+
+	/**
+	 * Constructor for the same tables over another snapshot.
+	 */
+	private LandmarkIndex(CsrTownGraph graph, int[] landmarks, int[] table) {
+		this.graph = graph;
+		this.landmarks = landmarks;
+		this.table = table;
+	}
+
+	/**
+	 * Use the tables on a snapshot of the same towns whose roads are all at
+	 * least as long as here, some possibly removed. No distance can shrink, so
+	 * every bound is still below the real distance and still consistent, only
+	 * less tight. The tables are shared, not copied.
+	 *
+	 * @param next The later snapshot.
+	 * @return The index over that snapshot.
+	 */
+	LandmarkIndex carryOver(CsrTownGraph next) {
+		return new LandmarkIndex(next, landmarks, table);
+	}
+
+	/**
+	 * Get the snapshot the tables were computed for.
+	 *
+	 * @return The snapshot.
+	 */
+	public CsrTownGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Get the number of landmarks.
+	 *
+	 * @return The number of landmarks.
+	 */
+	public int size() {
+		return landmarks.length;
+	}
+
+	/**
+	 * Get the ids of the landmark towns.
+	 *
+	 * @return A copy of the landmark ids, in the order they were picked.
+	 */
+	public int[] getLandmarks() {
+		return landmarks.clone();
+	}
+
+	/**
+	 * Get the distance from a landmark to a town.
+	 *
+	 * @param landmark Index of the landmark, not its town id.
+	 * @param v Id of the town.
+	 * @return The distance, or SearchWorkspace.UNREACHED.
+	 */
+	public int distance(int landmark, int v) {
+		return table[v * landmarks.length + landmark];
+	}
+
+	/**
+	 * Copy the distances from every landmark to a target into a buffer, so
+	 * lowerBound does not have to read the target's row again for every town.
+	 *
+	 * @param target Id of the target town.
+	 * @param buffer Receives one distance per landmark, at least size() long.
+	 */
+	public void loadTarget(int target, int[] buffer) {
+		System.arraycopy(table, target * landmarks.length, buffer, 0, landmarks.length);
+	}
+
+	/**
+	 * Get a lower bound on the distance from a town to a target.
+	 *
+	 * @param v Id of the town.
+	 * @param target The landmark distances of the target, from loadTarget.
+	 * @return A lower bound that is consistent along every road.
+	 */
+	public int lowerBound(int v, int[] target) {
+		int k = landmarks.length;
+		int base = v * k;
+		int bound = 0;
+		for(int i = 0; i < k; i++) {
+			int dv = table[base + i];
+			int dt = target[i];
+			if(dv == UNREACHED || dt == UNREACHED) {
+				continue;
+			}
+			int diff = dt > dv ? dt - dv : dv - dt;
+			if(diff > bound) {
+				bound = diff;
+			}
+		}
+		return bound;
+	}
+
+	/**
+	 * Run one search per source in parallel and copy out the distances.
+	 */
+	private static int[][] distances(final CsrTownGraph graph, final int[] sources) {
+		final int[][] rows = new int[sources.length][];
+		IntStream.range(0, sources.length).parallel().forEach(i -> rows[i] = distances(graph, sources[i]));
+		return rows;
+	}
+
+	/**
+	 * Run a full search from one source and copy out the distances.
+	 */
+	private static int[] distances(CsrTownGraph graph, int source) {
+		ShortestPathEngine engine = new ShortestPathEngine();
+		SearchWorkspace ws = engine.acquire();
+		try {
+			engine.shortestPathTree(graph, source, ws);
+			int[] row = new int[graph.vertexCount()];
+			for(int v = 0; v < row.length; v++) {
+				row[v] = ws.distance(v);
+			}
+			return row;
+		} finally {
+			engine.release(ws);
+		}
+	}
+
+	/**
+	 * Lower the distance to the nearest landmark with the row of a new one.
+	 */
+	private static void update(int[] nearest, int[] row) {
+		for(int v = 0; v < nearest.length; v++) {
+			if(row[v] < nearest[v]) {
+				nearest[v] = row[v];
+			}
+		}
+	}
+
+	/**
+	 * Find the towns with roads that are farthest from their nearest landmark,
+	 * largest first. Towns no landmark reaches count as the farthest of all, so
+	 * every component of the graph gets a landmark. Ties go to the lower id.
+	 */
+	private static int[] farthest(CsrTownGraph graph, int[] nearest, int count) {
+		int[] best = new int[count];
+		int size = 0;
+		for(int v = 0; v < nearest.length; v++) {
+			if(nearest[v] == 0 || graph.endArc(v) == graph.firstArc(v)) {
+				continue;
+			}
+			if(size < count) {
+				size++;
+			}else if(nearest[v] <= nearest[best[size - 1]]) {
+				continue;
+			}
+			int i = size - 1;
+			while(i > 0 && nearest[best[i - 1]] < nearest[v]) {
+				best[i] = best[i - 1];
+				i--;
+			}
+			best[i] = v;
+		}
+		return Arrays.copyOf(best, size);
+	}
+
+	/**
+	 * Find the position of a value in an array, or -1.
+	 */
+	private static int indexOf(int[] values, int value) {
+		for(int i = 0; i < values.length; i++) {
+			if(values[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Lay the per-landmark rows out town-major.
+	 */
+	private static int[] interleave(List<int[]> rows, int n) {
+		int k = rows.size();
+		int[] table = new int[n * k];
+		for(int i = 0; i < k; i++) {
+			int[] row = rows.get(i);
+			for(int v = 0; v < n; v++) {
+				table[v * k + i] = row[v];
+			}
+		}
+		return table;
+	}
+}
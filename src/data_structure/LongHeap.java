@@ -0,0 +1,92 @@
+package data_structure;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+/**
+ * A binary min-heap of primitive longs, for searches whose queue entries are
+ * labels rather than towns and so cannot use an IndexedPriorityQueue. A
+ * search packs its key into the high bits and its label into the low bits of
+ * one long, so nothing is boxed and the array is reused between queries.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class LongHeap {
+	private long[] heap = new long[16];
+	private int size;
+
+	/**
+	 * Returns true if the heap holds no values.
+	 *
+	 * @return true if the heap is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Get the number of values in the heap.
+	 *
+	 * @return The size.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Add a value, growing the array if it is full.
+	 *
+	 * @param value The value to add.
+	 */
+	public void add(long value) {
+		if(size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		int i = size++;
+		while(i > 0) {
+			int parent = (i - 1) >>> 1;
+			if(heap[parent] <= value) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = value;
+	}
+
+	/**
+	 * Remove and return the smallest value.
+	 *
+	 * @return The smallest value.
+	 * @throws NoSuchElementException if the heap is empty.
+	 */
+	public long poll() {
+		if(size == 0) {
+			throw new NoSuchElementException();
+		}
+		long min = heap[0];
+		long last = heap[--size];
+		int i = 0;
+		int half = size >>> 1;
+		while(i < half) {
+			int child = 2 * i + 1;
+			if(child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if(last <= heap[child]) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return min;
+	}
+
+	/**
+	 * Remove every value, keeping the array.
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,180 @@
+package data_structure;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import interfaces.IndexedPriorityQueue;
+/**
+ * An indexed pairing heap kept in int arrays. Every id is a node with a first
+ * child, a next sibling and a back link that points to the previous sibling,
+ * or to the parent for a first child. decreaseKey cuts the node's subtree out
+ * and links it with the root in O(1); poll pairs up the root's children in the
+ * usual two passes.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class PairingHeap implements IndexedPriorityQueue{
+	private static final int NONE = -1;
+	private static final int ABSENT = -2;
+
+	private int[] keys = new int[0];
+	private int[] child = new int[0];
+	private int[] next = new int[0];
+	private int[] back = new int[0];
+	private int[] pairs = new int[0];
+	private int root = NONE;
+	private int size;
+
+	@Override
+	public void ensureCapacity(int capacity) {
+		if(keys.length < capacity) {
+			int old = keys.length;
+			keys = Arrays.copyOf(keys, capacity);
+			child = Arrays.copyOf(child, capacity);
+			next = Arrays.copyOf(next, capacity);
+			back = Arrays.copyOf(back, capacity);
+			pairs = Arrays.copyOf(pairs, capacity);
+			Arrays.fill(back, old, capacity, ABSENT);
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return back[id] != ABSENT;
+	}
+
+	@Override
+	public void insert(int id, int key) {
+		keys[id] = key;
+		child[id] = NONE;
+		next[id] = NONE;
+		back[id] = NONE;
+		root = root == NONE ? id : link(root, id);
+		size++;
+	}
+
+	@Override
+	public void decreaseKey(int id, int key) {
+		keys[id] = key;
+		if(id == root) {
+			return;
+		}
+		int b = back[id];
+		if(child[b] == id) {
+			child[b] = next[id];
+		}else {
+			next[b] = next[id];
+		}
+		if(next[id] != NONE) {
+			back[next[id]] = b;
+		}
+		next[id] = NONE;
+		back[id] = NONE;
+		root = link(root, id);
+	}
+
+	@Override
+	public int minKey() {
+		if(size == 0) {
+			throw new NoSuchElementException();
+		}
+		return keys[root];
+	}
+
+	@Override
+	public int poll() {
+		if(size == 0) {
+			throw new NoSuchElementException();
+		}
+		int top = root;
+		root = mergePairs(child[top]);
+		if(root != NONE) {
+			back[root] = NONE;
+		}
+		back[top] = ABSENT;
+		size--;
+		return top;
+	}
+
+	@Override
+	public void clear() {
+		if(root != NONE) {
+			int count = 0;
+			pairs[count++] = root;
+			for(int i = 0; i < count; i++) {
+				int node = pairs[i];
+				for(int c = child[node]; c != NONE; c = next[c]) {
+					pairs[count++] = c;
+				}
+				back[node] = ABSENT;
+			}
+		}
+		root = NONE;
+		size = 0;
+	}
+
+	/**
+	 * Make the root with the larger key the first child of the other one.
+	 *
+	 * @return The root of the linked tree.
+	 */
+	private int link(int a, int b) {
+		if(keys[b] < keys[a]) {
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+		int first = child[a];
+		next[b] = first;
+		if(first != NONE) {
+			back[first] = b;
+		}
+		back[b] = a;
+		child[a] = b;
+		next[a] = NONE;
+		return a;
+	}
+
+	/**
+	 * Link a list of sibling trees in two passes, left to right in pairs and then
+	 * right to left into one tree.
+	 *
+	 * @return The root of the merged tree, or NONE for an empty list.
+	 */
+	private int mergePairs(int first) {
+		int count = 0;
+		int node = first;
+		while(node != NONE) {
+			int a = node;
+			int b = next[a];
+			if(b == NONE) {
+				next[a] = NONE;
+				pairs[count++] = a;
+				break;
+			}
+			node = next[b];
+			next[a] = NONE;
+			next[b] = NONE;
+			pairs[count++] = link(a, b);
+		}
+		if(count == 0) {
+			return NONE;
+		}
+		int merged = pairs[--count];
+		while(count > 0) {
+			merged = link(pairs[--count], merged);
+		}
+		return merged;
+	}
+}
@@ -0,0 +1,46 @@
+package data_structure;
+
+import interfaces.IndexedPriorityQueue;
+/**
+ * The priority queues a shortest path search can run on. Which one is fastest
+ * depends on the shape of the graph, so it can be chosen per query.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public enum QueueType {
+	/**
+	 * Indexed binary heap.
+	 */
+	BINARY_HEAP,
+	/**
+	 * Indexed 4-ary heap, shallower than the binary heap.
+	 */
+	QUATERNARY_HEAP,
+	/**
+	 * Pairing heap with O(1) decrease-key.
+	 */
+	PAIRING_HEAP,
+	/**
+	 * Dial's bucket queue, suited to small integer road weights.
+	 */
+	BUCKET_QUEUE;
+
+	/**
+	 * Create an empty queue of this type.
+	 *
+	 * @return A new queue.
+	 */
+	public IndexedPriorityQueue create() {
+		switch(this) {
+		case BINARY_HEAP:
+			return new DaryHeap(2);
+		case QUATERNARY_HEAP:
+			return new DaryHeap(4);
+		case PAIRING_HEAP:
+			return new PairingHeap();
+		default:
+			return new BucketQueue();
+		}
+	}
+}
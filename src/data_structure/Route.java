@@ -0,0 +1,79 @@
+package data_structure;
+
+import java.util.ArrayList;
+/**
+ * A path found by a search over a CsrTownGraph, kept as the arcs it uses.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class Route {
+	private final CsrTownGraph graph;
+	private final int distance;
+	private final int[] arcs;
+
+	/**
+	 * Constructor to initialize a new Route.
+	 *
+	 * @param graph The snapshot the arcs belong to.
+	 * @param distance The total distance of the path in miles.
+	 * @param arcs The arcs of the path in order from the source.
+	 */
+	public Route(CsrTownGraph graph, int distance, int[] arcs) {
+		this.graph = graph;
+		this.distance = distance;
+		this.arcs = arcs;
+	}
+
+	/**
+	 * Get the snapshot the route was found in.
+	 *
+	 * @return The snapshot.
+	 */
+	public CsrTownGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Get the total distance of the route.
+	 *
+	 * @return The distance in miles.
+	 */
+	public int getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Get the arcs of the route.
+	 *
+	 * @return The arc indexes in order from the source.
+	 */
+	public int[] getArcs() {
+		return arcs;
+	}
+
+	/**
+	 * Get the number of roads on the route.
+	 *
+	 * @return The number of hops.
+	 */
+	public int size() {
+		return arcs.length;
+	}
+
+	/**
+	 * Describe every road on the route in the format of Road.toString.
+	 *
+	 * @return One string per road, in order from the source.
+	 */
+	public ArrayList<String> describe() {
+		return graph.describe(arcs);
+	}
+
+	/**
+	 * Display the route the same way as its list of roads.
+	 */
+	public String toString() {
+		return describe().toString();
+	}
+}
@@ -0,0 +1,146 @@
+package data_structure;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import data_element.Road;
+import data_element.Town;
+/**
+ * Limits on the route a single query may return: towns and roads to avoid, as
+ * when a road is closed for one delivery, and a limit on the number of roads
+ * and on the total miles. Nothing in the graph is changed; the search checks
+ * each arc against bitsets of the banned arcs and towns, compiled from these
+ * names against the snapshot it runs on. Queries with different constraints
+ * can therefore run at the same time on one graph.
+ *
+ * A closed road is closed both ways. Towns and roads that are not in the
+ * graph are ignored.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class RouteConstraints {
+	/**
+	 * The hop and mileage limit when none is set.
+	 */
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+
+	private final ArrayList<Town> towns = new ArrayList<Town>();
+	private final ArrayList<Town> roadEnds = new ArrayList<Town>();
+	private int maxHops = UNLIMITED;
+	private int maxMiles = UNLIMITED;
+
+	/**
+	 * Keep the route out of a town. A route from or to the town is impossible.
+	 *
+	 * @param name Name of the town.
+	 * @return These constraints.
+	 */
+	public RouteConstraints avoidTown(String name) {
+		towns.add(new Town(name));
+		return this;
+	}
+
+	/**
+	 * Keep the route off the road between two towns, in both directions.
+	 *
+	 * @param town1 Name of one town.
+	 * @param town2 Name of the other town.
+	 * @return These constraints.
+	 */
+	public RouteConstraints avoidRoad(String town1, String town2) {
+		roadEnds.add(new Town(town1));
+		roadEnds.add(new Town(town2));
+		return this;
+	}
+
+	/**
+	 * Keep the route off a road, in both directions.
+	 *
+	 * @param road The road.
+	 * @return These constraints.
+	 */
+	public RouteConstraints avoidRoad(Road road) {
+		return avoidRoad(road.getSource().getName(), road.getDestination().getName());
+	}
+
+	/**
+	 * Limit the number of roads on the route.
+	 *
+	 * @param hops The most roads the route may use, UNLIMITED for no limit.
+	 * @return These constraints.
+	 */
+	public RouteConstraints maxHops(int hops) {
+		if(hops < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.maxHops = hops;
+		return this;
+	}
+
+	/**
+	 * Limit the length of the route.
+	 *
+	 * @param miles The most miles the route may cover, UNLIMITED for no limit.
+	 * @return These constraints.
+	 */
+	public RouteConstraints maxMiles(int miles) {
+		if(miles < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.maxMiles = miles;
+		return this;
+	}
+
+	/**
+	 * Get the most roads a route may use.
+	 *
+	 * @return The hop limit, or UNLIMITED.
+	 */
+	public int getMaxHops() {
+		return maxHops;
+	}
+
+	/**
+	 * Get the most miles a route may cover.
+	 *
+	 * @return The mileage limit, or UNLIMITED.
+	 */
+	public int getMaxMiles() {
+		return maxMiles;
+	}
+
+	/**
+	 * The ids of the banned towns in a snapshot. The bitset is only as long as
+	 * the largest id banned.
+	 */
+	BitSet bannedTowns(CsrTownGraph graph) {
+		BitSet banned = new BitSet();
+		for(Town t : towns) {
+			int id = graph.idOf(t);
+			if(id >= 0) {
+				banned.set(id);
+			}
+		}
+		return banned;
+	}
+
+	/**
+	 * The indexes of the arcs of the banned roads in a snapshot, both ways.
+	 */
+	BitSet bannedArcs(CsrTownGraph graph) {
+		BitSet banned = new BitSet();
+		for(int i = 0; i < roadEnds.size(); i += 2) {
+			int u = graph.idOf(roadEnds.get(i));
+			int v = graph.idOf(roadEnds.get(i + 1));
+			int arc = u < 0 || v < 0 ? SearchWorkspace.NO_ARC : graph.findArc(u, v);
+			if(arc != SearchWorkspace.NO_ARC) {
+				banned.set(arc);
+				if(graph.reverseArc(arc) != SearchWorkspace.NO_ARC) {
+					banned.set(graph.reverseArc(arc));
+				}
+			}
+		}
+		return banned;
+	}
+}
@@ -0,0 +1,32 @@
+package data_structure;
+/**
+ * The algorithms TownGraph can answer a point-to-point shortest path query with.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public enum SearchMode {
+	/**
+	 * Dijkstra's algorithm from the source, stopping once the destination is
+	 * settled.
+	 */
+	DIJKSTRA,
+	/**
+	 * Dijkstra's algorithm run from both ends at once until the two searches
+	 * meet. Settles far fewer towns than a one-sided search on road networks.
+	 */
+	BIDIRECTIONAL,
+	/**
+	 * A* search with lower bounds from precomputed landmark distances. The
+	 * landmarks are picked the first time they are needed after the graph
+	 * changes, or ahead of time with TownGraph.preprocessLandmarks.
+	 */
+	ALT,
+	/**
+	 * Upward bidirectional search in a contraction hierarchy. The hierarchy is
+	 * built the first time it is needed after the graph changes, or ahead of
+	 * time with TownGraph.contract, so this mode suits graphs that change
+	 * rarely.
+	 */
+	CONTRACTION_HIERARCHY
+}
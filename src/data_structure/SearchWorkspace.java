@@ -0,0 +1,156 @@
+package data_structure;
+
+import java.util.Arrays;
+
+import interfaces.IndexedPriorityQueue;
+/**
+ * Reusable per-query state for a shortest path search over the dense town ids
+ * of a CsrTownGraph.
+ *
+ * Distances and predecessor arcs live in int arrays that are never cleared.
+ * Each entry carries the generation of the query that wrote it and anything
+ * stamped with an older generation reads as unreached, so starting a query is
+ * O(1) rather than an O(V) reset. A workspace belongs to one thread at a time.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class SearchWorkspace {
+	/**
+	 * The distance reported for a town the search has not reached.
+	 */
+	public static final int UNREACHED = Integer.MAX_VALUE;
+	/**
+	 * The predecessor reported for the source and for unreached towns.
+	 */
+	public static final int NO_ARC = -1;
+
+	private int[] dist = new int[0];
+	private int[] pred = new int[0];
+	private int[] reached = new int[0];
+	private int[] settled = new int[0];
+	private int generation;
+	private int[] buffer = new int[0];
+	private LongHeap labelQueue;
+	private final IndexedPriorityQueue[] queues = new IndexedPriorityQueue[QueueType.values().length];
+
+	/**
+	 * Start a new query over a graph with the given number of towns. Grows the
+	 * arrays if needed and invalidates everything the last query wrote.
+	 *
+	 * @param vertexCount Number of towns in the graph to be searched.
+	 */
+	public void begin(int vertexCount) {
+		if(dist.length < vertexCount) {
+			int capacity = Math.max(vertexCount, dist.length + (dist.length >> 1));
+			dist = Arrays.copyOf(dist, capacity);
+			pred = Arrays.copyOf(pred, capacity);
+			reached = Arrays.copyOf(reached, capacity);
+			settled = Arrays.copyOf(settled, capacity);
+		}
+		if(generation == Integer.MAX_VALUE) {
+			Arrays.fill(reached, 0);
+			Arrays.fill(settled, 0);
+			generation = 0;
+		}
+		generation++;
+	}
+
+	/**
+	 * Get the tentative or final distance of a town in the current query.
+	 *
+	 * @param v Id of the town.
+	 * @return The distance, or UNREACHED if the town has not been reached.
+	 */
+	public int distance(int v) {
+		return reached[v] == generation ? dist[v] : UNREACHED;
+	}
+
+	/**
+	 * Get the arc a town was reached through in the current query.
+	 *
+	 * @param v Id of the town.
+	 * @return The arc index, or NO_ARC for the source and unreached towns.
+	 */
+	public int predArc(int v) {
+		return reached[v] == generation ? pred[v] : NO_ARC;
+	}
+
+	/**
+	 * Record a new tentative distance for a town.
+	 *
+	 * @param v Id of the town.
+	 * @param d The distance from the source.
+	 * @param arc The arc the town was reached through.
+	 */
+	public void reach(int v, int d, int arc) {
+		reached[v] = generation;
+		dist[v] = d;
+		pred[v] = arc;
+	}
+
+	/**
+	 * Check if the distance of a town is final in the current query.
+	 *
+	 * @param v Id of the town.
+	 * @return True if the town has been settled.
+	 */
+	public boolean isSettled(int v) {
+		return settled[v] == generation;
+	}
+
+	/**
+	 * Mark the distance of a town as final.
+	 *
+	 * @param v Id of the town.
+	 */
+	public void settle(int v) {
+		settled[v] = generation;
+	}
+
+	/**
+	 * Get the queue of the given type, empty and large enough for the current
+	 * query. Queues are created on first use and kept with the workspace.
+	 *
+	 * @param type The kind of priority queue to search with.
+	 * @return The queue.
+	 */
+	public IndexedPriorityQueue queue(QueueType type) {
+		IndexedPriorityQueue queue = queues[type.ordinal()];
+		if(queue == null) {
+			queue = type.create();
+			queues[type.ordinal()] = queue;
+		}
+		queue.ensureCapacity(dist.length);
+		queue.clear();
+		return queue;
+	}
+
+	/**
+	 * Get the heap of packed labels for searches that queue labels rather than
+	 * towns, empty. It is created on first use and kept with the workspace.
+	 *
+	 * @return The heap.
+	 */
+	public LongHeap labelQueue() {
+		if(labelQueue == null) {
+			labelQueue = new LongHeap();
+		}
+		labelQueue.clear();
+		return labelQueue;
+	}
+
+	/**
+	 * Get a scratch array for small per-query values. Its contents are left
+	 * over from earlier queries.
+	 *
+	 * @param length The number of ints needed.
+	 * @return An array at least that long.
+	 */
+	public int[] buffer(int length) {
+		if(buffer.length < length) {
+			buffer = new int[length];
+		}
+		return buffer;
+	}
+}
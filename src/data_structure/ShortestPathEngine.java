@@ -0,0 +1,786 @@
+package data_structure;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+import interfaces.IndexedPriorityQueue;
+/**
+ * Runs Dijkstra's algorithm over a CsrTownGraph without writing anything to the
+ * Town objects. All per-query state is kept in a SearchWorkspace taken from a
+ * per-thread pool and handed back when the query ends, so queries allocate
+ * nothing once warmed up, can be nested on one thread, and can run on many
+ * threads at once against the same shared snapshot.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class ShortestPathEngine {
+	private static final ThreadLocal<ArrayDeque<SearchWorkspace>> POOL = new ThreadLocal<ArrayDeque<SearchWorkspace>>() {
+		@Override
+		protected ArrayDeque<SearchWorkspace> initialValue() {
+			return new ArrayDeque<SearchWorkspace>();
+		}
+	};
+	private final QueueType queueType;
+
+	/**
+	 * Constructor for an engine that searches with a 4-ary heap unless a query
+	 * asks for another queue.
+	 */
+	public ShortestPathEngine() {
+		this(QueueType.QUATERNARY_HEAP);
+	}
+
+	/**
+	 * Constructor for an engine with the given default priority queue.
+	 *
+	 * @param queueType The queue used by queries that do not name one.
+	 */
+	public ShortestPathEngine(QueueType queueType) {
+		this.queueType = queueType;
+	}
+
+	/**
+	 * Get the priority queue used by queries that do not name one.
+	 *
+	 * @return The default queue type.
+	 */
+	public QueueType getQueueType() {
+		return queueType;
+	}
+
+	/**
+	 * Take a workspace from the pool of the calling thread. It must be handed
+	 * back with release once the caller is done reading it.
+	 *
+	 * @return A workspace owned by the caller until released.
+	 */
+	public SearchWorkspace acquire() {
+		SearchWorkspace ws = POOL.get().poll();
+		return ws == null ? new SearchWorkspace() : ws;
+	}
+
+	/**
+	 * Return a workspace to the pool of the calling thread.
+	 *
+	 * @param ws The workspace taken with acquire.
+	 */
+	public void release(SearchWorkspace ws) {
+		POOL.get().push(ws);
+	}
+
+	/**
+	 * Find the shortest route between two towns, stopping as soon as the
+	 * target is settled.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @return The route, or null if the target cannot be reached.
+	 */
+	public Route shortestRoute(CsrTownGraph graph, int source, int target) {
+		return shortestRoute(graph, source, target, queueType);
+	}
+
+	/**
+	 * Find the shortest route between two towns using the given priority queue.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param type The priority queue to search with.
+	 * @return The route, or null if the target cannot be reached.
+	 */
+	public Route shortestRoute(CsrTownGraph graph, int source, int target, QueueType type) {
+		SearchWorkspace ws = acquire();
+		try {
+			search(graph, source, target, null, ws, type);
+			return route(graph, source, target, ws);
+		} finally {
+			release(ws);
+		}
+	}
+
+	/**
+	 * Find the shortest route between two towns over other arc weights, or
+	 * without some towns and some of the arcs leaving the source, as the spur
+	 * searches of Yen's algorithm and the penalty method need. Banned towns
+	 * are marked settled before the search starts, so leaving them out costs
+	 * nothing per arc.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param weights The weight of every arc, or null for the snapshot's own.
+	 * @param bannedTowns Ids of towns the route may not pass through, or null.
+	 * @param bannedArcs Arcs leaving the source the route may not start with,
+	 * or null.
+	 * @param type The priority queue to search with.
+	 * @return The route, whose distance is measured in the given weights, or
+	 * null if the target cannot be reached.
+	 */
+	public Route restrictedRoute(CsrTownGraph graph, int source, int target, int[] weights, int[] bannedTowns,
+			int[] bannedArcs, QueueType type) {
+		SearchWorkspace ws = acquire();
+		try {
+			ws.begin(graph.vertexCount());
+			if(bannedTowns != null) {
+				for(int v : bannedTowns) {
+					ws.settle(v);
+				}
+			}
+			IndexedPriorityQueue queue = ws.queue(type);
+			ws.reach(source, 0, SearchWorkspace.NO_ARC);
+			queue.insert(source, 0);
+			while(!queue.isEmpty()) {
+				int u = queue.poll();
+				ws.settle(u);
+				if(u == target) {
+					break;
+				}
+				int d = ws.distance(u);
+				for(int arc = graph.firstArc(u), end = graph.endArc(u); arc < end; arc++) {
+					int v = graph.arcTarget(arc);
+					if(ws.isSettled(v) || (u == source && contains(bannedArcs, arc))) {
+						continue;
+					}
+					int nd = d + (weights == null ? graph.arcWeight(arc) : weights[arc]);
+					int old = ws.distance(v);
+					if(nd < old) {
+						ws.reach(v, nd, arc);
+						if(old == SearchWorkspace.UNREACHED) {
+							queue.insert(v, nd);
+						}else {
+							queue.decreaseKey(v, nd);
+						}
+					}
+				}
+			}
+			return route(graph, source, target, ws);
+		} finally {
+			release(ws);
+		}
+	}
+
+	/**
+	 * Find the shortest route between two towns that keeps to some
+	 * constraints. The banned towns and roads are compiled into bitsets once
+	 * and checked as each arc is relaxed, and towns past the mileage limit are
+	 * never queued. Without a hop limit this is Dijkstra's algorithm; with one
+	 * see hopLimitedRoute.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param constraints The limits on the route.
+	 * @param type The priority queue to search with, unless there is a hop limit.
+	 * @return The route, or null if no route keeps to the constraints.
+	 */
+	public Route constrainedRoute(CsrTownGraph graph, int source, int target, RouteConstraints constraints, QueueType type) {
+		BitSet bannedArcs = constraints.bannedArcs(graph);
+		BitSet bannedTowns = constraints.bannedTowns(graph);
+		if(bannedTowns.get(source) || bannedTowns.get(target)) {
+			return null;
+		}
+		SearchWorkspace ws = acquire();
+		try {
+			if(constraints.getMaxHops() != RouteConstraints.UNLIMITED) {
+				return hopLimitedRoute(graph, source, target, bannedArcs, bannedTowns, constraints.getMaxHops(),
+						constraints.getMaxMiles(), ws);
+			}
+			int maxMiles = constraints.getMaxMiles();
+			ws.begin(graph.vertexCount());
+			IndexedPriorityQueue queue = ws.queue(type);
+			ws.reach(source, 0, SearchWorkspace.NO_ARC);
+			queue.insert(source, 0);
+			while(!queue.isEmpty()) {
+				int u = queue.poll();
+				ws.settle(u);
+				if(u == target) {
+					break;
+				}
+				int d = ws.distance(u);
+				for(int arc = graph.firstArc(u), end = graph.endArc(u); arc < end; arc++) {
+					int v = graph.arcTarget(arc);
+					if(bannedArcs.get(arc) || bannedTowns.get(v)) {
+						continue;
+					}
+					long nd = (long) d + graph.arcWeight(arc);
+					int old = ws.distance(v);
+					if(nd < old && nd <= maxMiles) {
+						ws.reach(v, (int) nd, arc);
+						if(old == SearchWorkspace.UNREACHED) {
+							queue.insert(v, (int) nd);
+						}else {
+							queue.decreaseKey(v, (int) nd);
+						}
+					}
+				}
+			}
+			return route(graph, source, target, ws);
+		} finally {
+			release(ws);
+		}
+	}
+
+	/**
+	 * The shortest route of at most maxHops roads. The shortest route to a
+	 * town may use too many roads while a longer one fits, so a town can be
+	 * settled more than once: the search queues labels of a town, its
+	 * distance and hop count, in order of distance, and a label is only worth
+	 * expanding if it uses fewer roads than every label of its town settled
+	 * before it. The workspace keeps that fewest hop count per town.
+	 */
+	private Route hopLimitedRoute(CsrTownGraph graph, int source, int target, BitSet bannedArcs, BitSet bannedTowns,
+			int maxHops, int maxMiles, SearchWorkspace ws) {
+		ws.begin(graph.vertexCount());
+		int[] town = new int[64];
+		int[] hops = new int[64];
+		int[] arcIn = new int[64];
+		int[] parent = new int[64];
+		int labels = 1;
+		town[0] = source;
+		arcIn[0] = SearchWorkspace.NO_ARC;
+		parent[0] = -1;
+		LongHeap queue = ws.labelQueue();
+		queue.add(0L);
+		while(!queue.isEmpty()) {
+			long key = queue.poll();
+			int label = (int) key;
+			int d = (int) (key >>> 32);
+			int u = town[label];
+			if(hops[label] >= ws.distance(u)) {
+				continue;
+			}
+			ws.reach(u, hops[label], arcIn[label]);
+			if(u == target) {
+				int[] arcs = new int[hops[label]];
+				for(int l = label; parent[l] >= 0; l = parent[l]) {
+					arcs[hops[l] - 1] = arcIn[l];
+				}
+				return new Route(graph, d, arcs);
+			}
+			int h = hops[label] + 1;
+			if(h > maxHops) {
+				continue;
+			}
+			for(int arc = graph.firstArc(u), end = graph.endArc(u); arc < end; arc++) {
+				int v = graph.arcTarget(arc);
+				long nd = (long) d + graph.arcWeight(arc);
+				if(bannedArcs.get(arc) || bannedTowns.get(v) || nd > maxMiles || h >= ws.distance(v)) {
+					continue;
+				}
+				if(labels == town.length) {
+					town = Arrays.copyOf(town, labels * 2);
+					hops = Arrays.copyOf(hops, labels * 2);
+					arcIn = Arrays.copyOf(arcIn, labels * 2);
+					parent = Arrays.copyOf(parent, labels * 2);
+				}
+				town[labels] = v;
+				hops[labels] = h;
+				arcIn[labels] = arc;
+				parent[labels] = label;
+				queue.add(nd << 32 | labels);
+				labels++;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Whether a short unsorted array, possibly null, holds a value.
+	 */
+	private static boolean contains(int[] values, int value) {
+		if(values != null) {
+			for(int x : values) {
+				if(x == value) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Find the quickest route between two towns when leaving at a given time,
+	 * with each arc taking CsrTownGraph.travelTime at the time it is entered.
+	 * The search is Dijkstra's algorithm keyed on the minutes since departure,
+	 * which finds the earliest arrival because every profile is FIFO: waiting
+	 * at a town never gets you anywhere sooner.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param departure The departure time in minutes after midnight.
+	 * @param type The priority queue to search with.
+	 * @return The route, whose distance is the travel time in minutes, or null
+	 * if the target cannot be reached.
+	 */
+	public Route timeDependentRoute(CsrTownGraph graph, int source, int target, int departure, QueueType type) {
+		SearchWorkspace ws = acquire();
+		try {
+			ws.begin(graph.vertexCount());
+			IndexedPriorityQueue queue = ws.queue(type);
+			ws.reach(source, 0, SearchWorkspace.NO_ARC);
+			queue.insert(source, 0);
+			while(!queue.isEmpty()) {
+				int u = queue.poll();
+				ws.settle(u);
+				if(u == target) {
+					break;
+				}
+				int d = ws.distance(u);
+				for(int arc = graph.firstArc(u), end = graph.endArc(u); arc < end; arc++) {
+					int v = graph.arcTarget(arc);
+					int nd = d + graph.travelTime(arc, departure + d);
+					int old = ws.distance(v);
+					if(nd < old) {
+						ws.reach(v, nd, arc);
+						if(old == SearchWorkspace.UNREACHED) {
+							queue.insert(v, nd);
+						}else {
+							queue.decreaseKey(v, nd);
+						}
+					}
+				}
+			}
+			return route(graph, source, target, ws);
+		} finally {
+			release(ws);
+		}
+	}
+
+	/**
+	 * Find the shortest route between two towns with a bidirectional search.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @return The route, or null if the target cannot be reached.
+	 */
+	public Route bidirectionalRoute(CsrTownGraph graph, int source, int target) {
+		return bidirectionalRoute(graph, source, target, queueType);
+	}
+
+	/**
+	 * Find the shortest route between two towns with a bidirectional search.
+	 * One search grows forward from the source and another backward from the
+	 * target over the reverse arcs, each step expanding the side with the
+	 * smaller queue. Every arc relaxed into a town the other side has reached
+	 * gives a candidate route, and the search ends once the two smallest queued
+	 * keys add up to no less than the best candidate, at which point it is
+	 * the shortest route.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param type The priority queue to search with.
+	 * @return The route, or null if the target cannot be reached.
+	 */
+	public Route bidirectionalRoute(CsrTownGraph graph, int source, int target, QueueType type) {
+		if(source == target) {
+			return new Route(graph, 0, new int[0]);
+		}
+		SearchWorkspace forward = acquire();
+		SearchWorkspace backward = acquire();
+		try {
+			forward.begin(graph.vertexCount());
+			backward.begin(graph.vertexCount());
+			IndexedPriorityQueue forwardQueue = forward.queue(type);
+			IndexedPriorityQueue backwardQueue = backward.queue(type);
+			forward.reach(source, 0, SearchWorkspace.NO_ARC);
+			forwardQueue.insert(source, 0);
+			backward.reach(target, 0, SearchWorkspace.NO_ARC);
+			backwardQueue.insert(target, 0);
+			long best = SearchWorkspace.UNREACHED;
+			int meet = -1;
+			while(!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+				if((long) forwardQueue.minKey() + backwardQueue.minKey() >= best) {
+					break;
+				}
+				boolean isForward = forwardQueue.size() <= backwardQueue.size();
+				SearchWorkspace ws = isForward ? forward : backward;
+				SearchWorkspace other = isForward ? backward : forward;
+				IndexedPriorityQueue queue = isForward ? forwardQueue : backwardQueue;
+				int u = queue.poll();
+				ws.settle(u);
+				int d = ws.distance(u);
+				for(int a = graph.firstArc(u), end = graph.endArc(u); a < end; a++) {
+					int v = graph.arcTarget(a);
+					int arc = isForward ? a : graph.reverseArc(a);
+					int nd = d + graph.arcWeight(arc);
+					int old = ws.distance(v);
+					if(nd < old) {
+						ws.reach(v, nd, arc);
+						if(old == SearchWorkspace.UNREACHED) {
+							queue.insert(v, nd);
+						}else {
+							queue.decreaseKey(v, nd);
+						}
+					}
+					int otherDistance = other.distance(v);
+					if(otherDistance != SearchWorkspace.UNREACHED && (long) ws.distance(v) + otherDistance < best) {
+						best = (long) ws.distance(v) + otherDistance;
+						meet = v;
+					}
+				}
+			}
+			if(meet < 0) {
+				return null;
+			}
+			return join(graph, source, target, meet, (int) best, forward, backward);
+		} finally {
+			release(backward);
+			release(forward);
+		}
+	}
+
+	/**
+	 * Find the shortest route between two towns with A* search guided by the
+	 * landmark lower bounds of an ALT index. Towns are queued by their distance
+	 * plus the bound on the distance left, so the search heads towards the
+	 * target and settles far fewer towns than Dijkstra's algorithm. Because
+	 * the bounds are consistent a town is never settled twice.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param landmarks Landmark tables computed for the same snapshot.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param type The priority queue to search with.
+	 * @return The route, or null if the target cannot be reached.
+	 */
+	public Route altRoute(CsrTownGraph graph, LandmarkIndex landmarks, int source, int target, QueueType type) {
+		SearchWorkspace ws = acquire();
+		try {
+			ws.begin(graph.vertexCount());
+			IndexedPriorityQueue queue = ws.queue(type);
+			int[] targetDistances = ws.buffer(landmarks.size());
+			landmarks.loadTarget(target, targetDistances);
+			ws.reach(source, 0, SearchWorkspace.NO_ARC);
+			queue.insert(source, landmarks.lowerBound(source, targetDistances));
+			while(!queue.isEmpty()) {
+				int u = queue.poll();
+				ws.settle(u);
+				if(u == target) {
+					break;
+				}
+				int d = ws.distance(u);
+				for(int arc = graph.firstArc(u), end = graph.endArc(u); arc < end; arc++) {
+					int v = graph.arcTarget(arc);
+					if(ws.isSettled(v)) {
+						continue;
+					}
+					int nd = d + graph.arcWeight(arc);
+					int old = ws.distance(v);
+					if(nd < old) {
+						ws.reach(v, nd, arc);
+						int key = nd + landmarks.lowerBound(v, targetDistances);
+						if(old == SearchWorkspace.UNREACHED) {
+							queue.insert(v, key);
+						}else {
+							queue.decreaseKey(v, key);
+						}
+					}
+				}
+			}
+			return route(graph, source, target, ws);
+		} finally {
+			release(ws);
+		}
+	}
+
+	/**
+	 * Compute the distance from the source to every reachable town. The
+	 * results stay readable in the workspace until it is used for another query.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param ws The workspace that receives the shortest path tree.
+	 */
+	public void shortestPathTree(CsrTownGraph graph, int source, SearchWorkspace ws) {
+		shortestPathTree(graph, source, ws, queueType);
+	}
+
+	/**
+	 * Compute the distance from the source to every reachable town using the
+	 * given priority queue.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param ws The workspace that receives the shortest path tree.
+	 * @param type The priority queue to search with.
+	 */
+	public void shortestPathTree(CsrTownGraph graph, int source, SearchWorkspace ws, QueueType type) {
+		search(graph, source, -1, null, ws, type);
+	}
+
+	/**
+	 * Search from the source until every one of the targets is settled, so a
+	 * route to each of them can be read from the workspace with route. Towns
+	 * the search did not settle read as the search left them and should not be
+	 * used.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param targets Ids of the target towns, duplicates allowed.
+	 * @param ws The workspace that receives the partial tree.
+	 * @param type The priority queue to search with.
+	 */
+	public void shortestPathTree(CsrTownGraph graph, int source, int[] targets, SearchWorkspace ws, QueueType type) {
+		search(graph, source, -1, targets, ws, type);
+	}
+
+	/**
+	 * Settle every town within a mileage budget of the source and no other.
+	 * Arcs that would take a town past the budget are not queued, so the
+	 * search ends as soon as the frontier passes the budget and the work
+	 * done grows with the size of the area, not of the graph.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param maxMiles The budget.
+	 * @param ws The workspace to search in, holding the distance and
+	 * predecessor of every town returned until it is released.
+	 * @param type The priority queue to search with.
+	 * @return The ids of the towns within the budget in order of distance,
+	 * starting with the source.
+	 */
+	public int[] reachableWithin(CsrTownGraph graph, int source, int maxMiles, SearchWorkspace ws, QueueType type) {
+		int[] settled = new int[16];
+		int count = 0;
+		ws.begin(graph.vertexCount());
+		IndexedPriorityQueue queue = ws.queue(type);
+		ws.reach(source, 0, SearchWorkspace.NO_ARC);
+		queue.insert(source, 0);
+		while(!queue.isEmpty()) {
+			int u = queue.poll();
+			ws.settle(u);
+			if(count == settled.length) {
+				settled = Arrays.copyOf(settled, count * 2);
+			}
+			settled[count++] = u;
+			int d = ws.distance(u);
+			for(int arc = graph.firstArc(u), end = graph.endArc(u); arc < end; arc++) {
+				int v = graph.arcTarget(arc);
+				long nd = (long) d + graph.arcWeight(arc);
+				int old = ws.distance(v);
+				if(nd < old && nd <= maxMiles) {
+					ws.reach(v, (int) nd, arc);
+					if(old == SearchWorkspace.UNREACHED) {
+						queue.insert(v, (int) nd);
+					}else {
+						queue.decreaseKey(v, (int) nd);
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(settled, count);
+	}
+
+	/**
+	 * Find the k towns nearest to the source that match a test, settling
+	 * towns in order of distance and stopping as soon as the k-th match is
+	 * settled. The source itself is a match if it passes the test.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param k The number of towns wanted.
+	 * @param match The test, given a town id.
+	 * @param ws The workspace to search in, holding the distance and
+	 * predecessor of every town returned until it is released.
+	 * @param type The priority queue to search with.
+	 * @return The ids of up to k matching towns, nearest first. Fewer if fewer
+	 * can be reached.
+	 */
+	public int[] nearest(CsrTownGraph graph, int source, int k, IntPredicate match, SearchWorkspace ws, QueueType type) {
+		int[] found = new int[Math.max(0, Math.min(k, graph.vertexCount()))];
+		int count = 0;
+		ws.begin(graph.vertexCount());
+		IndexedPriorityQueue queue = ws.queue(type);
+		ws.reach(source, 0, SearchWorkspace.NO_ARC);
+		queue.insert(source, 0);
+		while(!queue.isEmpty() && count < found.length) {
+			int u = queue.poll();
+			ws.settle(u);
+			if(match.test(u)) {
+				found[count++] = u;
+				if(count == found.length) {
+					break;
+				}
+			}
+			int d = ws.distance(u);
+			for(int arc = graph.firstArc(u), end = graph.endArc(u); arc < end; arc++) {
+				int v = graph.arcTarget(arc);
+				int nd = d + graph.arcWeight(arc);
+				int old = ws.distance(v);
+				if(nd < old) {
+					ws.reach(v, nd, arc);
+					if(old == SearchWorkspace.UNREACHED) {
+						queue.insert(v, nd);
+					}else {
+						queue.decreaseKey(v, nd);
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	/**
+	 * Find the nearest of several facilities for every town with one search
+	 * that starts from all of them at once. Each town inherits its facility
+	 * from the town it is reached from, so when a town is settled its
+	 * facility is the nearest one.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param facilities Ids of the facility towns.
+	 * @param facilityOf Filled in with the id of the nearest facility of every
+	 * town that is reached, at least vertexCount() long.
+	 * @param ws The workspace to search in, holding the distance of every town
+	 * to its nearest facility until it is released. Towns it reports as
+	 * UNREACHED cannot reach any facility.
+	 * @param type The priority queue to search with.
+	 */
+	public void nearestFacilities(CsrTownGraph graph, int[] facilities, int[] facilityOf, SearchWorkspace ws, QueueType type) {
+		ws.begin(graph.vertexCount());
+		IndexedPriorityQueue queue = ws.queue(type);
+		for(int f : facilities) {
+			if(ws.distance(f) == SearchWorkspace.UNREACHED) {
+				ws.reach(f, 0, SearchWorkspace.NO_ARC);
+				facilityOf[f] = f;
+				queue.insert(f, 0);
+			}
+		}
+		while(!queue.isEmpty()) {
+			int u = queue.poll();
+			ws.settle(u);
+			int d = ws.distance(u);
+			for(int arc = graph.firstArc(u), end = graph.endArc(u); arc < end; arc++) {
+				int v = graph.arcTarget(arc);
+				int nd = d + graph.arcWeight(arc);
+				int old = ws.distance(v);
+				if(nd < old) {
+					ws.reach(v, nd, arc);
+					facilityOf[v] = facilityOf[u];
+					if(old == SearchWorkspace.UNREACHED) {
+						queue.insert(v, nd);
+					}else {
+						queue.decreaseKey(v, nd);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rebuild the route to a target from the predecessor arcs in a workspace.
+	 *
+	 * @param graph The snapshot that was searched.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param ws The workspace holding the search results.
+	 * @return The route, or null if the target was not reached.
+	 */
+	public Route route(CsrTownGraph graph, int source, int target, SearchWorkspace ws) {
+		int distance = ws.distance(target);
+		if(distance == SearchWorkspace.UNREACHED) {
+			return null;
+		}
+		int hops = 0;
+		for(int v = target; v != source; v = graph.arcSource(ws.predArc(v))) {
+			hops++;
+		}
+		int[] arcs = new int[hops];
+		for(int v = target; v != source; v = graph.arcSource(ws.predArc(v))) {
+			arcs[--hops] = ws.predArc(v);
+		}
+		return new Route(graph, distance, arcs);
+	}
+
+	/**
+	 * Join the forward predecessor chain from the source to a meeting town with
+	 * the backward chain from that town to the target.
+	 *
+	 * @param graph The snapshot that was searched.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town.
+	 * @param meet Id of the town where the searches met.
+	 * @param distance Length of the joined route.
+	 * @param forward Workspace of the search from the source.
+	 * @param backward Workspace of the search from the target, whose
+	 * predecessor arcs lead towards the target.
+	 * @return The joined route.
+	 */
+	Route join(CsrTownGraph graph, int source, int target, int meet, int distance,
+			SearchWorkspace forward, SearchWorkspace backward) {
+		int hops = 0;
+		for(int v = meet; v != source; v = graph.arcSource(forward.predArc(v))) {
+			hops++;
+		}
+		int split = hops;
+		for(int v = meet; v != target; v = graph.arcTarget(backward.predArc(v))) {
+			hops++;
+		}
+		int[] arcs = new int[hops];
+		int i = split;
+		for(int v = meet; v != source; v = graph.arcSource(forward.predArc(v))) {
+			arcs[--i] = forward.predArc(v);
+		}
+		i = split;
+		for(int v = meet; v != target; v = graph.arcTarget(backward.predArc(v))) {
+			arcs[i++] = backward.predArc(v);
+		}
+		return new Route(graph, distance, arcs);
+	}
+
+	/**
+	 * Dijkstra's algorithm from source, stopping once target, or every one of
+	 * targets, is settled. Towns are queued once and their key is lowered in
+	 * place when a shorter way to them is found.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param target Id of the target town, or -1 to settle every reachable town.
+	 * @param targets Ids of several target towns, or null.
+	 * @param ws The workspace to search in.
+	 * @param type The priority queue to search with.
+	 */
+	private void search(CsrTownGraph graph, int source, int target, int[] targets, SearchWorkspace ws, QueueType type) {
+		int pending = 0;
+		ws.begin(graph.vertexCount());
+		IndexedPriorityQueue queue = ws.queue(type);
+		ws.reach(source, 0, SearchWorkspace.NO_ARC);
+		queue.insert(source, 0);
+		while(!queue.isEmpty()) {
+			int u = queue.poll();
+			ws.settle(u);
+			if(u == target) {
+				return;
+			}
+			if(targets != null) {
+				while(pending < targets.length && ws.isSettled(targets[pending])) {
+					pending++;
+				}
+				if(pending == targets.length) {
+					return;
+				}
+			}
+			int d = ws.distance(u);
+			for(int arc = graph.firstArc(u), end = graph.endArc(u); arc < end; arc++) {
+				int v = graph.arcTarget(arc);
+				int nd = d + graph.arcWeight(arc);
+				int old = ws.distance(v);
+				if(nd < old) {
+					ws.reach(v, nd, arc);
+					if(old == SearchWorkspace.UNREACHED) {
+						queue.insert(v, nd);
+					}else {
+						queue.decreaseKey(v, nd);
+					}
+				}
+			}
+		}
+	}
+}
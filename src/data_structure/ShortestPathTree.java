@@ -0,0 +1,275 @@
+package data_structure;
+
+import java.util.Arrays;
+
+import interfaces.IndexedPriorityQueue;
+/**
+ * The complete result of a search from one source over a CsrTownGraph: the
+ * distance to every town and the arc every town was reached through, copied
+ * out of the workspace into two plain int arrays. Any route from the source
+ * is then a walk along the predecessor arcs, O(route length) with no search.
+ *
+ * When roads change miles or are dropped, repair carries a tree over to the
+ * next snapshot doing work only where distances change. A longer or dropped
+ * tree road cuts off the subtree below it, whose towns are reset and searched
+ * again from the towns around it, while a shorter road is searched outward
+ * from for as long as it improves distances. This is the dynamic Dijkstra
+ * approach of Ramalingam and Reps.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class ShortestPathTree {
+	private final CsrTownGraph graph;
+	private final int source;
+	private final int[] dist;
+	private final int[] pred;
+	private final int repaired;
+
+	/**
+	 * Search a snapshot from a source and keep the whole tree.
+	 *
+	 * @param graph The snapshot to search.
+	 * @param source Id of the source town.
+	 * @param type The priority queue to search with.
+	 */
+	public ShortestPathTree(CsrTownGraph graph, int source, QueueType type) {
+		this.graph = graph;
+		this.source = source;
+		int n = graph.vertexCount();
+		this.dist = new int[n];
+		this.pred = new int[n];
+		ShortestPathEngine engine = new ShortestPathEngine(type);
+		SearchWorkspace ws = engine.acquire();
+		try {
+			engine.shortestPathTree(graph, source, ws);
+			for(int v = 0; v < n; v++) {
+				dist[v] = ws.distance(v);
+				pred[v] = ws.predArc(v);
+			}
+		} finally {
+			engine.release(ws);
+		}
+		this.repaired = -1;
+	}
+
+	/**
+	 * Constructor for a repaired tree.
+	 */
+	private ShortestPathTree(CsrTownGraph graph, int source, int[] dist, int[] pred, int repaired) {
+		this.graph = graph;
+		this.source = source;
+		this.dist = dist;
+		this.pred = pred;
+		this.repaired = repaired;
+	}
+
+	/**
+	 * Carry the tree over to the snapshot after a change. This tree is left
+	 * as it is; the repaired tree copies its arrays and then searches only the
+	 * towns whose distance or route changes.
+	 *
+	 * @param delta The change, which must start from the snapshot of this tree.
+	 * @param type The priority queue to search with.
+	 * @return The tree on delta.after.
+	 */
+	ShortestPathTree repair(SnapshotDelta delta, QueueType type) {
+		CsrTownGraph next = delta.after;
+		int n = dist.length;
+		int[] d = dist.clone();
+		int[] p = new int[n];
+		// cut marks the towns below a longer or dropped road, and later also
+		// every town whose distance went down, so each is counted once
+		boolean[] cut = new boolean[n];
+		int[] subtree = new int[16];
+		int size = 0;
+		for(int v = 0; v < n; v++) {
+			p[v] = delta.map(pred[v]);
+			if(pred[v] != SearchWorkspace.NO_ARC && p[v] == SearchWorkspace.NO_ARC) {
+				subtree = push(subtree, size++, v);
+				cut[v] = true;
+			}
+		}
+		for(int i = 0; i < delta.arcs.length; i++) {
+			int y = graph.arcTarget(delta.arcs[i]);
+			if(delta.newWeights[i] > delta.oldWeights[i] && pred[y] == delta.arcs[i] && !cut[y]) {
+				subtree = push(subtree, size++, y);
+				cut[y] = true;
+			}
+		}
+		for(int i = 0; i < size; i++) {
+			int v = subtree[i];
+			for(int a = next.firstArc(v); a < next.endArc(v); a++) {
+				int t = next.arcTarget(a);
+				if(!cut[t] && p[t] == a) {
+					cut[t] = true;
+					subtree = push(subtree, size++, t);
+				}
+			}
+		}
+		for(int i = 0; i < size; i++) {
+			d[subtree[i]] = SearchWorkspace.UNREACHED;
+			p[subtree[i]] = SearchWorkspace.NO_ARC;
+		}
+		ShortestPathEngine engine = new ShortestPathEngine(type);
+		SearchWorkspace ws = engine.acquire();
+		int changed = size;
+		try {
+			ws.begin(n);
+			IndexedPriorityQueue queue = ws.queue(type);
+			for(int i = 0; i < size; i++) {
+				int v = subtree[i];
+				for(int a = next.firstArc(v); a < next.endArc(v); a++) {
+					int u = next.arcTarget(a);
+					int back = next.reverseArc(a);
+					if(!cut[u] && d[u] != SearchWorkspace.UNREACHED && back != SearchWorkspace.NO_ARC
+							&& d[u] + next.arcWeight(back) < d[v]) {
+						d[v] = d[u] + next.arcWeight(back);
+						p[v] = back;
+					}
+				}
+				if(d[v] != SearchWorkspace.UNREACHED) {
+					queue.insert(v, d[v]);
+				}
+			}
+			for(int i = 0; i < delta.arcs.length; i++) {
+				if(delta.newWeights[i] < delta.oldWeights[i] && delta.newWeights[i] != SnapshotDelta.REMOVED) {
+					int a = delta.map(delta.arcs[i]);
+					int x = next.arcSource(a);
+					int y = next.arcTarget(a);
+					if(d[x] != SearchWorkspace.UNREACHED && d[x] + next.arcWeight(a) < d[y]) {
+						if(!cut[y]) {
+							cut[y] = true;
+							changed++;
+						}
+						d[y] = d[x] + next.arcWeight(a);
+						p[y] = a;
+						offer(queue, y, d[y]);
+					}
+				}
+			}
+			while(!queue.isEmpty()) {
+				int v = queue.poll();
+				for(int a = next.firstArc(v); a < next.endArc(v); a++) {
+					int t = next.arcTarget(a);
+					int nd = d[v] + next.arcWeight(a);
+					if(nd < d[t]) {
+						if(!cut[t]) {
+							cut[t] = true;
+							changed++;
+						}
+						d[t] = nd;
+						p[t] = a;
+						offer(queue, t, nd);
+					}
+				}
+			}
+		} finally {
+			engine.release(ws);
+		}
+		return new ShortestPathTree(next, source, d, p, changed);
+	}
+
+	/**
+	 * Add a town to the queue or lower its key.
+	 */
+	private static void offer(IndexedPriorityQueue queue, int v, int key) {
+		if(queue.contains(v)) {
+			queue.decreaseKey(v, key);
+		}else {
+			queue.insert(v, key);
+		}
+	}
+
+	/**
+	 * Append to a growable int stack.
+	 */
+	private static int[] push(int[] stack, int top, int v) {
+		if(top == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		stack[top] = v;
+		return stack;
+	}
+
+	/**
+	 * Get the number of towns whose distance the repair that made this tree
+	 * had to recompute, to see how far a change reached.
+	 *
+	 * @return The number of towns repaired, or -1 if the tree was built by a
+	 * full search.
+	 */
+	public int getRepairedCount() {
+		return repaired;
+	}
+
+	/**
+	 * Get the snapshot the tree was computed on.
+	 *
+	 * @return The snapshot.
+	 */
+	public CsrTownGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Get the source of the tree.
+	 *
+	 * @return Id of the source town.
+	 */
+	public int getSource() {
+		return source;
+	}
+
+	/**
+	 * Get the distance from the source to a town.
+	 *
+	 * @param v Id of the town.
+	 * @return The distance, or SearchWorkspace.UNREACHED.
+	 */
+	public int distance(int v) {
+		return dist[v];
+	}
+
+	/**
+	 * Get the arc a town is reached through from the source.
+	 *
+	 * @param v Id of the town.
+	 * @return The arc index, or SearchWorkspace.NO_ARC for the source and
+	 * unreached towns.
+	 */
+	public int predArc(int v) {
+		return pred[v];
+	}
+
+	/**
+	 * Walk the predecessor arcs back from a target.
+	 *
+	 * @param target Id of the target town.
+	 * @return The route from the source, or null if the target is unreached.
+	 */
+	public Route route(int target) {
+		int distance = dist[target];
+		if(distance == SearchWorkspace.UNREACHED) {
+			return null;
+		}
+		int hops = 0;
+		for(int v = target; v != source; v = graph.arcSource(pred[v])) {
+			hops++;
+		}
+		int[] arcs = new int[hops];
+		for(int v = target; v != source; v = graph.arcSource(pred[v])) {
+			arcs[--hops] = pred[v];
+		}
+		return new Route(graph, distance, arcs);
+	}
+
+	/**
+	 * Estimate the heap space taken by the tree.
+	 *
+	 * @return The size in bytes of the two arrays and their headers.
+	 */
+	public long memoryBytes() {
+		return 2L * (16 + 4L * dist.length) + 32;
+	}
+}
@@ -0,0 +1,219 @@
+package data_structure;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A cache of complete shortest path trees for the sources that are queried
+ * most, so that every later query from such a source is a predecessor walk.
+ *
+ * Trees are only kept for one snapshot; asking about another snapshot drops
+ * them all. The cache is bounded by an estimate of the bytes its trees take
+ * and evicts the least recently used tree first. A full tree costs more than
+ * an early-exit search, so a source is only admitted once it has missed a
+ * given number of times, and one-off sources never displace the hot ones.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class ShortestPathTreeCache {
+	private final long budgetBytes;
+	private final int admitAfter;
+	private final LinkedHashMap<Integer, ShortestPathTree> trees = new LinkedHashMap<Integer, ShortestPathTree>(16, 0.75f, true);
+	private CsrTownGraph graph;
+	private int[] missCounts = new int[0];
+	private long usedBytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Constructor to initialize an empty cache.
+	 *
+	 * @param budgetBytes The most heap the cached trees may take, estimated by
+	 * ShortestPathTree.memoryBytes.
+	 * @param admitAfter The number of misses from a source before its tree is
+	 * built, 1 to build it on the first miss.
+	 */
+	public ShortestPathTreeCache(long budgetBytes, int admitAfter) {
+		if(budgetBytes < 0 || admitAfter < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.budgetBytes = budgetBytes;
+		this.admitAfter = admitAfter;
+	}
+
+	/**
+	 * Get the cached tree of a source without counting a miss.
+	 *
+	 * @param graph The current snapshot.
+	 * @param source Id of the source town.
+	 * @return The tree, or null if it is not cached.
+	 */
+	public synchronized ShortestPathTree lookup(CsrTownGraph graph, int source) {
+		validate(graph);
+		ShortestPathTree tree = trees.get(source);
+		if(tree != null) {
+			hits++;
+		}
+		return tree;
+	}
+
+	/**
+	 * Get the tree of a source, building and caching it if the source has now
+	 * missed often enough.
+	 *
+	 * @param graph The current snapshot.
+	 * @param source Id of the source town.
+	 * @param type The priority queue to build the tree with.
+	 * @return The tree, or null if the source is not admitted yet.
+	 */
+	public ShortestPathTree treeFor(CsrTownGraph graph, int source, QueueType type) {
+		synchronized(this) {
+			validate(graph);
+			ShortestPathTree tree = trees.get(source);
+			if(tree != null) {
+				hits++;
+				return tree;
+			}
+			misses++;
+			if(++missCounts[source] < admitAfter) {
+				return null;
+			}
+		}
+		ShortestPathTree tree = new ShortestPathTree(graph, source, type);
+		put(tree);
+		return tree;
+	}
+
+	/**
+	 * Get the tree of a source, building and caching it on a miss.
+	 *
+	 * @param graph The current snapshot.
+	 * @param source Id of the source town.
+	 * @param type The priority queue to build the tree with.
+	 * @return The tree.
+	 */
+	public ShortestPathTree require(CsrTownGraph graph, int source, QueueType type) {
+		synchronized(this) {
+			validate(graph);
+			ShortestPathTree tree = trees.get(source);
+			if(tree != null) {
+				hits++;
+				return tree;
+			}
+			misses++;
+		}
+		ShortestPathTree tree = new ShortestPathTree(graph, source, type);
+		put(tree);
+		return tree;
+	}
+
+	/**
+	 * Add a tree, evicting the least recently used trees until the budget is
+	 * met. A tree built for an older snapshot is ignored, as is one too large
+	 * for the budget on its own.
+	 *
+	 * @param tree The tree to cache.
+	 */
+	public synchronized void put(ShortestPathTree tree) {
+		if(graph != null && tree.getGraph() != graph) {
+			if(tree.getGraph().getVersion() < graph.getVersion()) {
+				return;
+			}
+		}
+		validate(tree.getGraph());
+		long size = tree.memoryBytes();
+		if(size > budgetBytes) {
+			return;
+		}
+		ShortestPathTree old = trees.put(tree.getSource(), tree);
+		if(old != null) {
+			usedBytes -= old.memoryBytes();
+		}
+		usedBytes += size;
+		Iterator<ShortestPathTree> itr = trees.values().iterator();
+		while(usedBytes > budgetBytes && itr.hasNext()) {
+			ShortestPathTree eldest = itr.next();
+			itr.remove();
+			usedBytes -= eldest.memoryBytes();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Drop every cached tree and forget the miss counts.
+	 */
+	public synchronized void clear() {
+		trees.clear();
+		usedBytes = 0;
+		graph = null;
+		missCounts = new int[0];
+	}
+
+	/**
+	 * Get the number of cached trees.
+	 *
+	 * @return The number of trees.
+	 */
+	public synchronized int size() {
+		return trees.size();
+	}
+
+	/**
+	 * Get the estimated heap taken by the cached trees.
+	 *
+	 * @return The size in bytes.
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * Get the most heap the cached trees may take.
+	 *
+	 * @return The budget in bytes.
+	 */
+	public long getBudgetBytes() {
+		return budgetBytes;
+	}
+
+	/**
+	 * Get the number of queries answered from a cached tree.
+	 *
+	 * @return The hit count.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of queries whose source had no cached tree.
+	 *
+	 * @return The miss count.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of trees dropped to stay within the budget.
+	 *
+	 * @return The eviction count.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Start over if the trees belong to a different snapshot.
+	 */
+	private void validate(CsrTownGraph current) {
+		if(current != graph) {
+			trees.clear();
+			usedBytes = 0;
+			graph = current;
+			missCounts = new int[current.vertexCount()];
+		}
+	}
+}
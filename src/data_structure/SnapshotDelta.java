@@ -0,0 +1,52 @@
+package data_structure;
+/**
+ * The difference between two CsrTownGraph snapshots of the same towns where
+ * the second only changes the miles of some roads or drops them, as made by
+ * CsrTownGraph.change. Shortest path trees on the first snapshot are repaired
+ * onto the second from it.
+ *
+ * @author Ryan Koepke
+ *
+ */
+final class SnapshotDelta {
+	/**
+	 * The new weight of a dropped arc.
+	 */
+	static final int REMOVED = -1;
+
+	final CsrTownGraph before;
+	final CsrTownGraph after;
+	/**
+	 * The changed arcs, by their index in before.
+	 */
+	final int[] arcs;
+	/**
+	 * The weight of each changed arc in before.
+	 */
+	final int[] oldWeights;
+	/**
+	 * The weight of each changed arc in after, or REMOVED.
+	 */
+	final int[] newWeights;
+	/**
+	 * The index in after of every arc of before, or NO_ARC if it was dropped;
+	 * null if no arc was dropped and the indexes are unchanged.
+	 */
+	final int[] arcMap;
+
+	SnapshotDelta(CsrTownGraph before, CsrTownGraph after, int[] arcs, int[] oldWeights, int[] newWeights, int[] arcMap) {
+		this.before = before;
+		this.after = after;
+		this.arcs = arcs;
+		this.oldWeights = oldWeights;
+		this.newWeights = newWeights;
+		this.arcMap = arcMap;
+	}
+
+	/**
+	 * Get the index in after of an arc of before.
+	 */
+	int map(int arc) {
+		return arcMap == null || arc == SearchWorkspace.NO_ARC ? arc : arcMap[arc];
+	}
+}
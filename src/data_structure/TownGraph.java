@@ -1,12 +1,16 @@
 package data_structure;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 import data_element.Road;
 import data_element.Town;
@@ -25,14 +29,108 @@ import interfaces.GraphInterface;
  * E and all sub-types.
  */
 public class TownGraph implements GraphInterface<Town, Road>{
-	private Set<Town> towns;
-	private Set<Road> roads;
-	private ArrayList<String> paths = new ArrayList<String>();
+	/**
+	 * Every town mapped to its neighbours, and each neighbour to the directed road
+	 * leading there. Both directions of an undirected road are stored, so the
+	 * neighbour map of a town holds exactly its outgoing roads.
+	 */
+	private volatile Map<Town, Map<Town, Road>> adjacency;
+	/**
+	 * Every town mapped to itself, to find the stored instance of a town from
+	 * any town equal to it.
+	 */
+	private Map<Town, Town> towns;
+	private final ShortestPathEngine engine = new ShortestPathEngine();
+	private long version;
+	private volatile CsrTownGraph snapshot;
+	private volatile LandmarkIndex landmarks;
+	private volatile ContractionHierarchy hierarchy;
+	private final ShortestPathTreeCache trees = new ShortestPathTreeCache(DEFAULT_TREE_CACHE_BYTES, TREE_ADMIT_AFTER);
+	/**
+	 * The shortest path tree of every monitored source, repaired instead of
+	 * dropped when roads only change miles or are removed.
+	 */
+	private final Map<Town, ShortestPathTree> monitored = new ConcurrentHashMap<Town, ShortestPathTree>();
+	/**
+	 * The last snapshot while every change since it only changed the miles
+	 * of roads or removed them, and those changes, as each changed arc of the
+	 * snapshot mapped to its new weight. The next snapshot is made from them.
+	 */
+	private CsrTownGraph base;
+	private LinkedHashMap<Integer, Integer> pending;
+	
+	/**
+	 * The number of landmarks picked when an ALT query finds none.
+	 */
+	public static final int DEFAULT_LANDMARKS = 8;
+	/**
+	 * The heap budget of the cache of shortest path trees.
+	 */
+	public static final long DEFAULT_TREE_CACHE_BYTES = 64L << 20;
+	/**
+	 * The number of Dijkstra, bidirectional or batch queries from a source
+	 * that are searched before a full tree is built for it.
+	 */
+	public static final int TREE_ADMIT_AFTER = 2;
 
 	 public TownGraph(){
-		 this.towns = new HashSet<Town>();
-		 this.roads = new HashSet<Road>();
+		 this.adjacency = new LinkedHashMap<Town, Map<Town, Road>>();
+		 this.towns = new HashMap<Town, Town>();
 	   }
+	 
+	/**
+	 * Constructor for a graph opened on a snapshot, such as one loaded with
+	 * CsrTownGraph.load. Searches run on the snapshot straight away; the town
+	 * and road maps are only built from it the first time they are needed,
+	 * to change the graph or to hand out its Road objects.
+	 * 
+	 * @param snapshot The towns and roads of the graph.
+	 */
+	public TownGraph(CsrTownGraph snapshot) {
+		this.snapshot = snapshot;
+		this.version = snapshot.getVersion();
+	}
+	
+	/**
+	 * Constructor for a graph opened on a snapshot at a given version rather
+	 * than the one the snapshot was saved with, so that a graph replacing
+	 * another can carry on from the version of the one it replaces.
+	 * 
+	 * @param snapshot The towns and roads of the graph.
+	 * @param version The version of the new graph.
+	 */
+	public TownGraph(CsrTownGraph snapshot, long version) {
+		this(snapshot.withVersion(version));
+	}
+	
+	/**
+	 * Get the adjacency, first building it from the snapshot the graph was
+	 * opened on if that has not been done yet.
+	 */
+	private Map<Town, Map<Town, Road>> adjacency() {
+		Map<Town, Map<Town, Road>> adj = adjacency;
+		if(adj == null) {
+			synchronized(this) {
+				adj = adjacency;
+				if(adj == null) {
+					CsrTownGraph frozen = snapshot;
+					adj = new LinkedHashMap<Town, Map<Town, Road>>(frozen.vertexCount() * 2);
+					Map<Town, Town> index = new HashMap<Town, Town>(frozen.vertexCount() * 2);
+					for(int v = 0; v < frozen.vertexCount(); v++) {
+						Map<Town, Road> neighbours = new LinkedHashMap<Town, Road>();
+						for(int arc = frozen.firstArc(v); arc < frozen.endArc(v); arc++) {
+							neighbours.put(frozen.town(frozen.arcTarget(arc)), frozen.road(arc));
+						}
+						adj.put(frozen.town(v), neighbours);
+						index.put(frozen.town(v), frozen.town(v));
+					}
+					towns = index;
+					adjacency = adj;
+				}
+			}
+		}
+		return adj;
+	}
 	 /**
      * Returns an edge connecting source vertex to target vertex if such
      * vertices and such edge exist in this graph. Otherwise returns
@@ -49,18 +147,14 @@ public class TownGraph implements GraphInterface<Town, Road>{
      */
 	@Override
 	public Road getEdge(Town sourceVertex, Town destinationVertex) {
-		if (!(containsEdge(sourceVertex, destinationVertex)) || (sourceVertex == null || destinationVertex == null)) {
+		if(sourceVertex == null || destinationVertex == null) {
 			return null;
-		}else {
-			Iterator<Road> itr = roads.iterator();
-			while(itr.hasNext()) {
-				Road r = itr.next();
-				if((r.getSource().compareTo(sourceVertex) == 0) && (r.getDestination().compareTo(destinationVertex) == 0)) {
-					return r;
-				}
-			}
 		}
-		return null;
+		Map<Town, Road> neighbours = adjacency().get(sourceVertex);
+		if(neighbours == null) {
+			return null;
+		}
+		return neighbours.get(destinationVertex);
 	}
 	
 	/**
@@ -92,13 +186,319 @@ public class TownGraph implements GraphInterface<Town, Road>{
 		if(!(containsEdge(sourceVertex, destinationVertex))){
 			Road edgeTo = new Road (sourceVertex, destinationVertex, weight, description);
 			Road edgeFrom = new Road (destinationVertex, sourceVertex, weight, description);
-			roads.add(edgeTo);
-			roads.add(edgeFrom);
+			adjacency().get(sourceVertex).put(destinationVertex, edgeTo);
+			adjacency().get(destinationVertex).put(sourceVertex, edgeFrom);
+			modified();
 			return edgeTo;
 		}
 		return null;
 	}
 	
+	/**
+	 * Adds many towns and roads at once, as a file loader produces them, with a
+	 * single version change at the end instead of one per road. Towns are added
+	 * in array order, skipping any already present. Each road is added in both
+	 * directions like addEdge, and a road between two towns that already have
+	 * one is skipped.
+	 *
+	 * @param towns the towns the roads refer to by index.
+	 * @param sources the index in towns of the source of each road.
+	 * @param destinations the index in towns of the destination of each road.
+	 * @param weights the miles of each road.
+	 * @param names the name of each road.
+	 * @param count the number of roads to add from the arrays.
+	 *
+	 * @return the number of roads added.
+	 */
+	public int addRoads(Town[] towns, int[] sources, int[] destinations, int[] weights, String[] names, int count) {
+		Map<Town, Map<Town, Road>> adj = adjacency();
+		Town[] stored = new Town[towns.length];
+		Map<Town, Road>[] neighbours = newNeighbourArray(towns.length);
+		for(int i = 0; i < towns.length; i++) {
+			Town existing = this.towns.get(towns[i]);
+			if(existing == null) {
+				existing = towns[i];
+				adj.put(existing, new LinkedHashMap<Town, Road>());
+				this.towns.put(existing, existing);
+			}
+			stored[i] = existing;
+			neighbours[i] = adj.get(existing);
+		}
+		int added = 0;
+		for(int r = 0; r < count; r++) {
+			Town source = stored[sources[r]];
+			Town destination = stored[destinations[r]];
+			Map<Town, Road> out = neighbours[sources[r]];
+			if(out.containsKey(destination)) {
+				continue;
+			}
+			out.put(destination, new Road(source, destination, weights[r], names[r]));
+			neighbours[destinations[r]].put(source, new Road(destination, source, weights[r], names[r]));
+			added++;
+		}
+		modified();
+		return added;
+	}
+	
+	/**
+	 * Applies a batch of changes all together or not at all. Only the
+	 * neighbour maps of the towns a change touches are copied to the undo log
+	 * and changed, and the version changes once for the whole batch. If a
+	 * change does not fit, every earlier change is undone from the log before
+	 * the exception is thrown.
+	 * 
+	 * Searches running at the same time see the graph either as it was
+	 * before the batch or as it is after, never in between.
+	 * 
+	 * @param log the changes to apply, in order.
+	 * 
+	 * @return the number of changes applied.
+	 * 
+	 * @throws ChangeConflictException if a change does not fit the graph, such
+	 * as adding a road that already exists.
+	 */
+	public synchronized int apply(ChangeLog log) {
+		Map<Town, Map<Town, Road>> adj = adjacency();
+		HashMap<Town, Map<Town, Road>> undo = new HashMap<Town, Map<Town, Road>>();
+		boolean roadsOnly = true;
+		for(int i = 0; i < log.size(); i++) {
+			ChangeLog.Kind kind = log.kind(i);
+			roadsOnly &= kind == ChangeLog.Kind.UPDATE_WEIGHT || kind == ChangeLog.Kind.REMOVE_ROAD;
+		}
+		try {
+			for(int i = 0; i < log.size(); i++) {
+				apply(adj, log.get(i), i, undo);
+			}
+		} catch(RuntimeException e) {
+			for(Map.Entry<Town, Map<Town, Road>> saved : undo.entrySet()) {
+				Town t = saved.getKey();
+				Town current = towns.get(t);
+				if(current != null && (saved.getValue() == null || current != t)) {
+					adj.remove(t);
+					towns.remove(t);
+				}
+				if(saved.getValue() != null) {
+					adj.put(t, saved.getValue());
+					towns.put(t, t);
+				}
+			}
+			throw e;
+		}
+		if(roadsOnly && log.size() > 0) {
+			Town[] from = new Town[log.size()];
+			Town[] to = new Town[log.size()];
+			int[] weights = new int[log.size()];
+			for(int i = 0; i < log.size(); i++) {
+				ChangeLog.Change change = log.get(i);
+				from[i] = change.town1;
+				to[i] = change.town2;
+				weights[i] = change.kind == ChangeLog.Kind.REMOVE_ROAD ? SnapshotDelta.REMOVED : change.weight;
+			}
+			roadsChanged(from, to, weights, log.size());
+		}else if(log.size() > 0) {
+			modified();
+		}
+		return log.size();
+	}
+	
+	/**
+	 * Apply one change, first saving the neighbours of every town it touches.
+	 */
+	private void apply(Map<Town, Map<Town, Road>> adj, ChangeLog.Change change, int index,
+			HashMap<Town, Map<Town, Road>> undo) {
+		Town t1 = towns.get(change.town1);
+		Town t2 = change.town2 == null ? null : towns.get(change.town2);
+		switch(change.kind) {
+		case ADD_TOWN:
+			if(t1 != null) {
+				throw new ChangeConflictException(index, "town " + t1.getName() + " already exists");
+			}
+			addTown(adj, undo, change.town1);
+			return;
+		case REMOVE_TOWN:
+			if(t1 == null) {
+				throw new ChangeConflictException(index, "no town " + change.town1.getName());
+			}
+			save(adj, undo, t1);
+			for(Town t : adj.get(t1).keySet()) {
+				if(!t.equals(t1)) {
+					save(adj, undo, t);
+					adj.get(t).remove(t1);
+				}
+			}
+			adj.remove(t1);
+			towns.remove(t1);
+			return;
+		case ADD_ROAD:
+			if(t1 == null) {
+				t1 = addTown(adj, undo, change.town1);
+			}
+			if(t2 == null) {
+				t2 = addTown(adj, undo, change.town2);
+			}
+			if(adj.get(t1).containsKey(t2)) {
+				throw new ChangeConflictException(index, "towns " + t1.getName() + " and " + t2.getName() + " already have a road");
+			}
+			break;
+		default:
+			if(t1 == null || t2 == null || !adj.get(t1).containsKey(t2)) {
+				throw new ChangeConflictException(index, "no road between " + change.town1.getName() + " and " + change.town2.getName());
+			}
+		}
+		save(adj, undo, t1);
+		save(adj, undo, t2);
+		if(change.kind == ChangeLog.Kind.REMOVE_ROAD) {
+			adj.get(t1).remove(t2);
+			adj.get(t2).remove(t1);
+			return;
+		}
+		Road old = adj.get(t1).get(t2);
+		String name = change.kind == ChangeLog.Kind.ADD_ROAD ? change.name : old.getName();
+		Road edgeTo = new Road(t1, t2, change.weight, name);
+		Road edgeFrom = new Road(t2, t1, change.weight, name);
+		if(old != null) {
+			edgeTo.setProfile(old.getProfileTimes(), old.getProfileMinutes());
+			edgeFrom.setProfile(old.getProfileTimes(), old.getProfileMinutes());
+		}
+		adj.get(t1).put(t2, edgeTo);
+		adj.get(t2).put(t1, edgeFrom);
+	}
+	
+	/**
+	 * Add a town for a change, noting in the undo log that it was not there.
+	 */
+	private Town addTown(Map<Town, Map<Town, Road>> adj, HashMap<Town, Map<Town, Road>> undo, Town t) {
+		save(adj, undo, t);
+		adj.put(t, new LinkedHashMap<Town, Road>());
+		towns.put(t, t);
+		return t;
+	}
+	
+	/**
+	 * Copy the neighbours of a town to the undo log the first time a change
+	 * touches it, or note that the town did not exist.
+	 */
+	private static void save(Map<Town, Map<Town, Road>> adj, HashMap<Town, Map<Town, Road>> undo, Town t) {
+		if(!undo.containsKey(t)) {
+			Map<Town, Road> neighbours = adj.get(t);
+			undo.put(t, neighbours == null ? null : new LinkedHashMap<Town, Road>(neighbours));
+		}
+	}
+	
+	/**
+	 * Changes the weight of a road in place, in both directions. Only the two
+	 * Road objects are touched; the version changes so cached results are
+	 * dropped, and the next snapshot is patched from the last one rather than
+	 * rebuilt.
+	 * 
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 * @param weight new weight of the edge
+	 * 
+	 * @return The updated edge, or null if there is no such edge.
+	 * 
+	 * @throws IllegalArgumentException if weight is negative.
+	 */
+	@Override
+	public synchronized Road updateWeight(Town sourceVertex, Town destinationVertex, int weight) {
+		if(weight < 0) {
+			throw new IllegalArgumentException();
+		}
+		Road edgeTo = getEdge(sourceVertex, destinationVertex);
+		if(edgeTo == null) {
+			return null;
+		}
+		edgeTo.setWeight(weight);
+		adjacency().get(destinationVertex).get(sourceVertex).setWeight(weight);
+		roadsChanged(new Town[] {sourceVertex}, new Town[] {destinationVertex}, new int[] {weight}, 1);
+		return edgeTo;
+	}
+	
+	/**
+	 * Gives a road a travel time that depends on the time of day, in both
+	 * directions. The two Road objects share one copy of the arrays, and the
+	 * snapshot stores the profile once for both.
+	 * 
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 * @param times breakpoint times in minutes after midnight, strictly
+	 * increasing, or null to remove the profile.
+	 * @param minutes the travel time in minutes when leaving at each
+	 * breakpoint, or null.
+	 * 
+	 * @return The edge, or null if there is no such edge.
+	 * 
+	 * @throws IllegalArgumentException if the profile is not valid, see
+	 * TravelTimeProfiles.check.
+	 */
+	public synchronized Road setProfile(Town sourceVertex, Town destinationVertex, int[] times, int[] minutes) {
+		if(times != null || minutes != null) {
+			TravelTimeProfiles.check(times, minutes);
+			times = times.clone();
+			minutes = minutes.clone();
+		}
+		Road edgeTo = getEdge(sourceVertex, destinationVertex);
+		if(edgeTo == null) {
+			return null;
+		}
+		edgeTo.setProfile(times, minutes);
+		adjacency().get(destinationVertex).get(sourceVertex).setProfile(times, minutes);
+		modified();
+		return edgeTo;
+	}
+	
+	/**
+	 * Changes the weights of many roads in place with a single version change,
+	 * as a feed of traffic updates produces them. A later update of the same
+	 * road wins, and roads that are not in the graph are skipped.
+	 * 
+	 * @param sources one town of each road.
+	 * @param destinations the other town of each road.
+	 * @param weights the new weight of each road.
+	 * @param count the number of updates to apply from the arrays.
+	 * 
+	 * @return the number of updates applied.
+	 * 
+	 * @throws IllegalArgumentException if a weight is negative, before any
+	 * road is changed.
+	 */
+	public synchronized int updateWeights(Town[] sources, Town[] destinations, int[] weights, int count) {
+		for(int i = 0; i < count; i++) {
+			if(weights[i] < 0) {
+				throw new IllegalArgumentException();
+			}
+		}
+		Map<Town, Map<Town, Road>> adj = adjacency();
+		Town[] from = new Town[count];
+		Town[] to = new Town[count];
+		int[] applied = new int[count];
+		int updated = 0;
+		for(int i = 0; i < count; i++) {
+			Map<Town, Road> out = sources[i] == null ? null : adj.get(sources[i]);
+			Road edgeTo = out == null || destinations[i] == null ? null : out.get(destinations[i]);
+			if(edgeTo == null) {
+				continue;
+			}
+			edgeTo.setWeight(weights[i]);
+			adj.get(destinations[i]).get(sources[i]).setWeight(weights[i]);
+			from[updated] = sources[i];
+			to[updated] = destinations[i];
+			applied[updated++] = weights[i];
+		}
+		if(updated > 0) {
+			roadsChanged(from, to, applied, updated);
+		}
+		return updated;
+	}
+	
+	/**
+	 * Allocate an array of neighbour maps.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Map<Town, Road>[] newNeighbourArray(int length) {
+		return new Map[length];
+	}
+	
 	/**
      * Adds the specified vertex to this graph if not already present. More
      * formally, adds the specified vertex, v, to this graph if
@@ -123,7 +523,9 @@ public class TownGraph implements GraphInterface<Town, Road>{
 		if(containsVertex(v)) {
 			return false;
 		}else {
-			towns.add(v);
+			adjacency().put(v, new LinkedHashMap<Town, Road>());
+			towns.put(v, v);
+			modified();
 			return true;
 		}
 	}
@@ -141,17 +543,28 @@ public class TownGraph implements GraphInterface<Town, Road>{
      */
 	@Override
 	public boolean containsEdge(Town sourceVertex, Town destinationVertex) {
-		Iterator<Road> itr = roads.iterator();
-		while(itr.hasNext()) {
-			Road r = itr.next();
-			if(sourceVertex == null || destinationVertex == null) {
-				return false;
-			}if((r.getSource().equals(sourceVertex)) && (r.getDestination().equals(destinationVertex))) {
-				return true;	
-			}
+		return getEdge(sourceVertex, destinationVertex) != null;
+	}
+	/**
+	 * Returns the town stored in this graph that is equal to the given town,
+	 * so the instance with the search results can be found by name.
+	 *
+	 * @param v a town equal to the one wanted, may be null.
+	 *
+	 * @return the stored town, or null if the graph has no such town.
+	 */
+	public Town getVertex(Town v) {
+		if(v == null) {
+			return null;
+		}
+		if(adjacency == null) {
+			CsrTownGraph frozen = snapshot;
+			int id = frozen.idOf(v);
+			return id < 0 ? null : frozen.town(id);
 		}
-		return false;
+		return towns.get(v);
 	}
+	
 	/**
      * Returns true if this graph contains the specified vertex. More
      * formally, returns true if and only if this graph contains a
@@ -167,11 +580,10 @@ public class TownGraph implements GraphInterface<Town, Road>{
 		if(v == null) {
 			return false;
 		}
-		if(towns.contains(v)) {
-			return true;
-		}else {
-			return false;
+		if(adjacency == null) {
+			return snapshot.containsVertex(v);
 		}
+		return adjacency.containsKey(v);
 	}
 	
 	/**
@@ -186,19 +598,13 @@ public class TownGraph implements GraphInterface<Town, Road>{
 	@Override
 	public Set<Road> edgeSet() {
 		Set<Road> rds = new HashSet<Road>();
-		Iterator<Road> itr = roads.iterator();
 		HashMap<String, Road> hm = new HashMap<String, Road>();
-		while(itr.hasNext()) {
-			Road rd = itr.next();
-			hm.put(rd.getName(), rd);
-		}
-		Set<String> keys = hm.keySet();
-		Iterator<String> i = keys.iterator();
-		while(i.hasNext()) {
-			String key = i.next();
-			Road entryRoad = hm.get(key);
-			rds.add(entryRoad);
+		for(Map<Town, Road> neighbours : adjacency().values()) {
+			for(Road rd : neighbours.values()) {
+				hm.put(rd.getName(), rd);
+			}
 		}
+		rds.addAll(hm.values());
 		return rds;
 	}
 	
@@ -220,19 +626,11 @@ public class TownGraph implements GraphInterface<Town, Road>{
 		if(vertex == null) {
 			throw new NullPointerException();
 		}
-		Set<Road> r = new HashSet<Road>();
-		if(containsVertex(vertex)) {
-			Iterator<Town> itr = towns.iterator();
-			while(itr.hasNext()) {
-				Town t = itr.next();
-				if(containsEdge(vertex, t)) {
-					r.add(getEdge(vertex, t));
-				}
-			}
-		}else {
+		Map<Town, Road> neighbours = adjacency().get(vertex);
+		if(neighbours == null) {
 			throw new IllegalArgumentException();
 		}
-		return r;
+		return new HashSet<Road>(neighbours.values());
 	}
 	/**
      * Removes an edge going from source vertex to target vertex, if such
@@ -253,11 +651,14 @@ public class TownGraph implements GraphInterface<Town, Road>{
      */
 	@Override
 	public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
-		Road r = null;
-		if((weight > -1 && description != null) && containsEdge(sourceVertex, destinationVertex)) {
-			r = new Road(sourceVertex, destinationVertex, weight, description);
-			roads.remove(r);
+		Road r = getEdge(sourceVertex, destinationVertex);
+		if(r == null || (weight > -1 && r.getWeight() != weight)
+				|| (description != null && !description.equals(r.getName()))) {
+			return null;
 		}
+		adjacency().get(sourceVertex).remove(destinationVertex);
+		adjacency().get(destinationVertex).remove(sourceVertex);
+		roadsChanged(new Town[] {sourceVertex}, new Town[] {destinationVertex}, new int[] {SnapshotDelta.REMOVED}, 1);
 		return r;
 	}
 	/**
@@ -281,12 +682,18 @@ public class TownGraph implements GraphInterface<Town, Road>{
 		if(v == null) {
 			return false;
 		}
-		if(towns.contains(v)) {
-			towns.remove(v);
-			return true;
-		}else {
+		Map<Town, Road> neighbours = adjacency().remove(v);
+		if(neighbours == null) {
 			return false;
 		}
+		towns.remove(v);
+		for(Town t : neighbours.keySet()) {
+			if(!t.equals(v)) {
+				adjacency().get(t).remove(v);
+			}
+		}
+		modified();
+		return true;
 	}
 	
 	/**
@@ -300,77 +707,717 @@ public class TownGraph implements GraphInterface<Town, Road>{
      */
 	@Override
 	public Set<Town> vertexSet() {
-		Set<Town> townCopy = new HashSet<Town>();
-		Iterator<Town> itr= towns.iterator();
-		while(itr.hasNext()) {
-			townCopy.add(itr.next());
+		if(adjacency == null) {
+			return snapshot.vertexSet();
 		}
+		Set<Town> townCopy = new HashSet<Town>(adjacency.keySet());
 		return townCopy;
 	}
 	/**
-     * Find the shortest path from the sourceVertex to the destinationVertex
-     * call the dijkstraShortestPath with the sourceVertex
+	 * Get the version of the graph. The version changes every time a town or
+	 * road is added or removed.
+	 * 
+	 * @return The current version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Compile the graph into an immutable CSR snapshot with dense int town ids.
+	 * The snapshot is built once and shared until the graph is next modified.
+	 * 
+	 * @return A snapshot of the current towns and roads.
+	 */
+	public CsrTownGraph freeze() {
+		CsrTownGraph frozen = snapshot;
+		if(frozen == null) {
+			synchronized(this) {
+				frozen = snapshot;
+				if(frozen == null && base != null) {
+					frozen = patch();
+				}else if(frozen == null) {
+					frozen = new CsrTownGraph(adjacency(), version);
+					snapshot = frozen;
+				}
+			}
+		}
+		return frozen;
+	}
+	
+	/**
+	 * Pick landmarks on the current snapshot and compute their distance tables
+	 * for ALT queries. The tables are dropped when the graph is next modified,
+	 * unless the change only lengthens or removes roads.
+	 * 
+	 * @param count The number of landmarks.
+	 * @return The landmark index.
+	 */
+	public LandmarkIndex preprocessLandmarks(int count) {
+		LandmarkIndex index = new LandmarkIndex(freeze(), count);
+		landmarks = index;
+		return index;
+	}
+	
+	/**
+	 * Get the landmark index ALT queries on the current snapshot would use.
+	 * 
+	 * @return The landmark index, or null if none has been computed since the
+	 * last change that dropped it.
+	 */
+	public LandmarkIndex getLandmarkIndex() {
+		CsrTownGraph frozen = freeze();
+		LandmarkIndex index = landmarks;
+		return index != null && index.getGraph() == frozen ? index : null;
+	}
+	
+	/**
+	 * Get the landmark index for the current snapshot, computing one with
+	 * DEFAULT_LANDMARKS landmarks if there is none.
+	 * 
+	 * @param frozen The current snapshot.
+	 * @return The landmark index.
+	 */
+	private LandmarkIndex landmarks(CsrTownGraph frozen) {
+		LandmarkIndex index = landmarks;
+		if(index == null || index.getGraph() != frozen) {
+			synchronized(this) {
+				index = landmarks;
+				if(index == null || index.getGraph() != frozen) {
+					index = new LandmarkIndex(frozen, DEFAULT_LANDMARKS);
+					landmarks = index;
+				}
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Build a contraction hierarchy on the current snapshot. The hierarchy is
+	 * dropped when the graph is next modified, including by a weight update,
+	 * so it suits a graph that changes rarely rather than one under a traffic
+	 * feed.
+	 * 
+	 * @return The contraction hierarchy.
+	 */
+	public ContractionHierarchy contract() {
+		ContractionHierarchy ch = new ContractionHierarchy(freeze());
+		hierarchy = ch;
+		return ch;
+	}
+	
+	/**
+	 * Get the contraction hierarchy for the current snapshot, building it if
+	 * there is none.
+	 * 
+	 * @param frozen The current snapshot.
+	 * @return The contraction hierarchy.
+	 */
+	private ContractionHierarchy hierarchy(CsrTownGraph frozen) {
+		ContractionHierarchy ch = hierarchy;
+		if(ch == null || ch.getGraph() != frozen) {
+			synchronized(this) {
+				ch = hierarchy;
+				if(ch == null || ch.getGraph() != frozen) {
+					ch = new ContractionHierarchy(frozen);
+					hierarchy = ch;
+				}
+			}
+		}
+		return ch;
+	}
+	
+	/**
+	 * Compute the distance between every pair of towns, one search per source
+	 * run in parallel on the common ForkJoinPool.
+	 * 
+	 * @param withPredecessors True to also keep the predecessor rows, so routes
+	 * can be rebuilt from the matrix.
+	 * @return The matrix over the ids of the current snapshot.
+	 */
+	public DistanceMatrix distanceMatrix(boolean withPredecessors) {
+		return DistanceMatrix.compute(freeze(), withPredecessors);
+	}
+	
+	/**
+	 * Get the cache of shortest path trees, for its counters.
+	 * 
+	 * @return The tree cache.
+	 */
+	public ShortestPathTreeCache getTreeCache() {
+		return trees;
+	}
+	
+	/**
+	 * Keep the shortest path tree from a source up to date as the graph
+	 * changes. When roads only change miles or are removed the tree is
+	 * repaired where the change reaches instead of being searched again, and
+	 * paths from the source are read from it.
+	 * 
+	 * @param source the town to monitor.
+	 * 
+	 * @return the current tree of the source.
+	 * 
+	 * @throws IllegalArgumentException if the town is not in the graph.
+	 */
+	public ShortestPathTree monitor(Town source) {
+		CsrTownGraph frozen = freeze();
+		int id = frozen.idOf(source);
+		if(id < 0) {
+			throw new IllegalArgumentException();
+		}
+		Town stored = frozen.town(id);
+		monitored.putIfAbsent(stored, new ShortestPathTree(frozen, id, engine.getQueueType()));
+		return monitoredTree(stored, frozen);
+	}
+	
+	/**
+	 * Stop keeping the tree of a source up to date.
+	 * 
+	 * @param source the town to stop monitoring.
+	 * 
+	 * @return true if the town was monitored.
+	 */
+	public boolean unmonitor(Town source) {
+		return source != null && monitored.remove(source) != null;
+	}
+	
+	/**
+	 * Get the tree of a monitored source on the current snapshot.
+	 * 
+	 * @param source the monitored town.
+	 * 
+	 * @return the tree, or null if the town is not monitored.
+	 */
+	public ShortestPathTree getMonitoredTree(Town source) {
+		return monitoredTree(source, freeze());
+	}
+	
+	/**
+	 * Get the tree of a monitored source on a snapshot, searching it again if
+	 * a change to the towns or adding a road made it stale.
+	 * 
+	 * @param source the town.
+	 * @param frozen the current snapshot.
+	 * @return the tree, or null if the town is not monitored or no longer in
+	 * the graph.
+	 */
+	private ShortestPathTree monitoredTree(Town source, CsrTownGraph frozen) {
+		if(source == null || monitored.isEmpty()) {
+			return null;
+		}
+		ShortestPathTree tree = monitored.get(source);
+		if(tree == null || tree.getGraph() == frozen) {
+			return tree;
+		}
+		int id = frozen.idOf(source);
+		if(id < 0) {
+			return null;
+		}
+		ShortestPathTree fresh = new ShortestPathTree(frozen, id, engine.getQueueType());
+		monitored.replace(source, tree, fresh);
+		return fresh;
+	}
+	
+	/**
+	 * Record that some roads changed miles or were removed and nothing else
+	 * changed. The changes are kept against the last snapshot, so a stream of
+	 * them costs O(1) each, and the next snapshot is made from that one by
+	 * patch instead of from the adjacency. If every road only got longer or
+	 * was removed the landmark index is kept, its bounds still valid; any
+	 * shorter road drops it. The contraction hierarchy is dropped on every
+	 * change, so it should not be used while a traffic feed is running.
+	 * 
+	 * @param from one town of each changed road.
+	 * @param to the other town of each changed road.
+	 * @param weights the new miles of each road, or SnapshotDelta.REMOVED.
+	 * @param count the number of roads changed.
+	 */
+	private synchronized void roadsChanged(Town[] from, Town[] to, int[] weights, int count) {
+		if(snapshot != null) {
+			base = snapshot;
+			pending = new LinkedHashMap<Integer, Integer>();
+		}
+		if(base == null) {
+			modified();
+			return;
+		}
+		boolean longer = true;
+		for(int i = 0; i < count; i++) {
+			int arc = base.findArc(base.idOf(from[i]), base.idOf(to[i]));
+			if(arc == SearchWorkspace.NO_ARC) {
+				modified();
+				return;
+			}
+			pending.put(arc, weights[i]);
+			pending.put(base.reverseArc(arc), weights[i]);
+			longer &= weights[i] == SnapshotDelta.REMOVED || weights[i] >= base.arcWeight(arc);
+		}
+		version++;
+		snapshot = null;
+		if(!longer) {
+			landmarks = null;
+		}
+		hierarchy = null;
+		trees.clear();
+	}
+	
+	/**
+	 * Make the next snapshot from the last one and the road changes since,
+	 * and repair the monitored trees onto it. Called with the lock held.
+	 * 
+	 * @return The new snapshot.
+	 */
+	private CsrTownGraph patch() {
+		int[] arcs = new int[pending.size()];
+		int[] newWeights = new int[arcs.length];
+		int i = 0;
+		for(Map.Entry<Integer, Integer> e : pending.entrySet()) {
+			arcs[i] = e.getKey();
+			newWeights[i++] = e.getValue();
+		}
+		SnapshotDelta delta = base.change(arcs, newWeights, version);
+		for(Map.Entry<Town, ShortestPathTree> e : monitored.entrySet()) {
+			if(e.getValue().getGraph() == base) {
+				e.setValue(e.getValue().repair(delta, engine.getQueueType()));
+			}
+		}
+		LandmarkIndex index = landmarks;
+		landmarks = index != null && index.getGraph() == base ? index.carryOver(delta.after) : null;
+		base = null;
+		pending = null;
+		snapshot = delta.after;
+		return delta.after;
+	}
+	
+	/**
+	 * Record a change to the towns or roads, dropping the cached snapshot and
+	 * everything computed from it.
+	 */
+	private void modified() {
+		version++;
+		snapshot = null;
+		base = null;
+		pending = null;
+		landmarks = null;
+		hierarchy = null;
+		trees.clear();
+	}
+	
+	/**
+     * Find the shortest path from the sourceVertex to the destinationVertex.
+     * A single search runs over the frozen snapshot of the graph and stops as
+     * soon as the destination is settled, then the predecessor chain is walked
+     * once to build the path.
      * @param sourceVertex starting vertex
      * @param destinationVertex ending vertex
-     * @return An arraylist of Strings that describe the path from sourceVertex
-     * to destinationVertex
+     * @return A new arraylist of Strings that describe the path from sourceVertex
+     * to destinationVertex, empty if either town is missing or there is no path.
      */  
 	
 	@Override
 	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
-		dijkstraShortestPath(sourceVertex);
-		Town destination = null;
-		Iterator<Town> itr = towns.iterator();
-		if(!(containsVertex(sourceVertex) || containsVertex(destinationVertex))){
-			return paths;
+		return shortestPath(sourceVertex, destinationVertex, engine.getQueueType());
+	}
+	
+	/**
+     * Find the shortest path from the sourceVertex to the destinationVertex
+     * using the given priority queue for the search.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @param queueType the priority queue to search with
+     * @return A new arraylist of Strings that describe the path from sourceVertex
+     * to destinationVertex, empty if either town is missing or there is no path.
+     */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex, QueueType queueType) {
+		return shortestPath(sourceVertex, destinationVertex, SearchMode.DIJKSTRA, queueType);
+	}
+	
+	/**
+     * Find the shortest path from the sourceVertex to the destinationVertex
+     * with the given search algorithm.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @param mode the search algorithm to use
+     * @return A new arraylist of Strings that describe the path from sourceVertex
+     * to destinationVertex, empty if either town is missing or there is no path.
+     */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex, SearchMode mode) {
+		return shortestPath(sourceVertex, destinationVertex, mode, engine.getQueueType());
+	}
+	
+	/**
+     * Find the shortest path from the sourceVertex to the destinationVertex
+     * with the given search algorithm and priority queue.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @param mode the search algorithm to use
+     * @param queueType the priority queue to search with
+     * @return A new arraylist of Strings that describe the path from sourceVertex
+     * to destinationVertex, empty if either town is missing or there is no path.
+     */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex, SearchMode mode, QueueType queueType) {
+		Route route = route(sourceVertex, destinationVertex, mode, queueType);
+		if(route == null) {
+			return new ArrayList<String>();
+		}
+		return route.describe();
+	}
+	
+	/**
+     * Find the shortest path from the sourceVertex to the destinationVertex
+     * that keeps to the given constraints, such as roads closed for this query
+     * only. The graph is not changed, so other queries are not affected.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @param constraints the towns and roads to avoid and the hop and mileage limits
+     * @return A new arraylist of Strings that describe the path from sourceVertex
+     * to destinationVertex, empty if either town is missing or no path keeps
+     * to the constraints.
+     */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex, RouteConstraints constraints) {
+		Route route = route(sourceVertex, destinationVertex, constraints);
+		if(route == null) {
+			return new ArrayList<String>();
+		}
+		return route.describe();
+	}
+	
+	/**
+	 * Find the shortest route between two towns that keeps to the given
+	 * constraints, over the frozen snapshot. Cached trees do not apply, so
+	 * this always searches.
+	 * 
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @param constraints the towns and roads to avoid and the hop and mileage limits
+	 * @return The route, or null if either town is missing or no path keeps
+	 * to the constraints.
+	 */
+	public Route route(Town sourceVertex, Town destinationVertex, RouteConstraints constraints) {
+		CsrTownGraph frozen = freeze();
+		int source = frozen.idOf(sourceVertex);
+		int destination = frozen.idOf(destinationVertex);
+		if(source < 0 || destination < 0) {
+			return null;
+		}
+		return engine.constrainedRoute(frozen, source, destination, constraints, engine.getQueueType());
+	}
+	
+	/**
+	 * Find every town within a number of miles of a town, as the service area
+	 * of a depot. The search stops once it passes the budget, so it never
+	 * explores more of the graph than the area itself.
+	 * 
+	 * @param sourceVertex the town to measure from
+	 * @param maxMiles the budget in miles
+	 * @return Each town within the budget, the source included, mapped to its
+	 * distance, in order of distance. Empty if the town is missing.
+	 */
+	public LinkedHashMap<Town, Integer> reachableWithin(Town sourceVertex, int maxMiles) {
+		if(maxMiles < 0) {
+			throw new IllegalArgumentException();
+		}
+		LinkedHashMap<Town, Integer> area = new LinkedHashMap<Town, Integer>();
+		CsrTownGraph frozen = freeze();
+		int source = frozen.idOf(sourceVertex);
+		if(source < 0) {
+			return area;
 		}
-		while(itr.hasNext()) {
-			Town t = itr.next();
-			if(t.equals(destinationVertex)) {
-				destination = t;
+		SearchWorkspace ws = engine.acquire();
+		try {
+			for(int v : engine.reachableWithin(frozen, source, maxMiles, ws, engine.getQueueType())) {
+				area.put(frozen.town(v), ws.distance(v));
 			}
+		} finally {
+			engine.release(ws);
+		}
+		return area;
+	}
+	
+	/**
+	 * Find the k towns nearest to a town that match a test, such as the
+	 * nearest towns with a depot. The search stops as soon as the k-th match
+	 * is settled, and nothing is written to the Town objects, so queries can
+	 * run at the same time.
+	 * 
+	 * @param sourceVertex the town to measure from, itself a match if it
+	 * passes the test
+	 * @param k the number of towns wanted
+	 * @param predicate the test
+	 * @return Up to k matching towns mapped to their distance, nearest first.
+	 * Empty if the town is missing.
+	 */
+	public LinkedHashMap<Town, Integer> nearestTowns(Town sourceVertex, int k, Predicate<Town> predicate) {
+		LinkedHashMap<Town, Integer> nearest = new LinkedHashMap<Town, Integer>();
+		CsrTownGraph frozen = freeze();
+		int source = frozen.idOf(sourceVertex);
+		if(source < 0) {
+			return nearest;
 		}
-		if(!(destination.equals(sourceVertex)) ){
-			Road path = getEdge(destination.getPred(), destination);
-			if(path != null) {
-				paths.add(path.toString());
-				shortestPath(sourceVertex, destination.getPred());
+		SearchWorkspace ws = engine.acquire();
+		try {
+			for(int v : engine.nearest(frozen, source, k, id -> predicate.test(frozen.town(id)), ws, engine.getQueueType())) {
+				nearest.put(frozen.town(v), ws.distance(v));
 			}
-		}else {
-			if(paths.size() > 0) {
-				Collections.reverse(paths);
+		} finally {
+			engine.release(ws);
+		}
+		return nearest;
+	}
+	
+	/**
+	 * Find the nearest facility of every town with one search that starts
+	 * from all the facilities at once, instead of one search per town.
+	 * 
+	 * @param facilities the facility towns; ones not in the graph are ignored
+	 * @return The facility and distance of every town.
+	 */
+	public FacilityAssignment nearestFacilities(Collection<Town> facilities) {
+		CsrTownGraph frozen = freeze();
+		int[] ids = new int[facilities.size()];
+		int count = 0;
+		for(Town f : facilities) {
+			int id = frozen.idOf(f);
+			if(id >= 0) {
+				ids[count++] = id;
+			}
+		}
+		int n = frozen.vertexCount();
+		int[] facility = new int[n];
+		int[] distance = new int[n];
+		SearchWorkspace ws = engine.acquire();
+		try {
+			engine.nearestFacilities(frozen, Arrays.copyOf(ids, count), facility, ws, engine.getQueueType());
+			for(int v = 0; v < n; v++) {
+				distance[v] = ws.distance(v);
+				if(distance[v] == SearchWorkspace.UNREACHED) {
+					facility[v] = -1;
+				}
+			}
+		} finally {
+			engine.release(ws);
+		}
+		return new FacilityAssignment(frozen, facility, distance);
+	}
+	
+	/**
+     * Find the k shortest loopless paths from the sourceVertex to the
+     * destinationVertex with Yen's algorithm.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @param k the number of paths wanted
+     * @return Up to k arraylists of Strings that each describe a path, shortest
+     * first, empty if either town is missing or there is no path.
+     */
+	public ArrayList<ArrayList<String>> kShortestPaths(Town sourceVertex, Town destinationVertex, int k) {
+		return describe(alternativeRoutes(sourceVertex, destinationVertex, k, true));
+	}
+	
+	/**
+     * Find up to k alternative paths from the sourceVertex to the
+     * destinationVertex with the penalty method, which runs one search per
+     * path and so suits interactive use where the exact k shortest paths take
+     * too long.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @param k the number of paths wanted
+     * @return Up to k arraylists of Strings that each describe a path, shortest
+     * first, empty if either town is missing or there is no path.
+     */
+	public ArrayList<ArrayList<String>> alternativePaths(Town sourceVertex, Town destinationVertex, int k) {
+		return describe(alternativeRoutes(sourceVertex, destinationVertex, k, false));
+	}
+	
+	/**
+	 * Find several routes between two towns over the frozen snapshot.
+	 * 
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @param k the number of routes wanted
+	 * @param exact true for the k shortest loopless routes, false for the
+	 * faster penalty method
+	 * @return Up to k routes, shortest first, empty if either town is missing
+	 * or there is no path.
+	 */
+	public ArrayList<Route> alternativeRoutes(Town sourceVertex, Town destinationVertex, int k, boolean exact) {
+		CsrTownGraph frozen = freeze();
+		int source = frozen.idOf(sourceVertex);
+		int destination = frozen.idOf(destinationVertex);
+		if(source < 0 || destination < 0) {
+			return new ArrayList<Route>();
+		}
+		AlternativeRoutes finder = new AlternativeRoutes(frozen, engine, engine.getQueueType());
+		return exact ? finder.kShortest(source, destination, k) : finder.penalized(source, destination, k);
+	}
+	
+	/**
+	 * Describe each of a list of routes.
+	 */
+	private static ArrayList<ArrayList<String>> describe(ArrayList<Route> routes) {
+		ArrayList<ArrayList<String>> paths = new ArrayList<ArrayList<String>>(routes.size());
+		for(Route r : routes) {
+			paths.add(r.describe());
+		}
+		return paths;
+	}
+	
+	/**
+     * Find the quickest path from the sourceVertex to the destinationVertex
+     * when leaving at the given time. Roads with a profile take the travel
+     * time it gives for the moment they are entered; other roads take their
+     * weight in minutes.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @param departureTime minutes after midnight
+     * @return A new arraylist of Strings that describe the path from sourceVertex
+     * to destinationVertex, empty if either town is missing or there is no path.
+     */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex, int departureTime) {
+		Route route = timeDependentRoute(sourceVertex, destinationVertex, departureTime);
+		if(route == null) {
+			return new ArrayList<String>();
+		}
+		return route.describe();
+	}
+	
+	/**
+	 * Find the quickest route between two towns when leaving at the given
+	 * time, over the frozen snapshot. The trees cached for static weights do
+	 * not apply, so this always searches.
+	 * 
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @param departureTime minutes after midnight
+	 * @return The route, whose distance is the travel time in minutes, or
+	 * null if either town is missing or there is no path.
+	 */
+	public Route timeDependentRoute(Town sourceVertex, Town destinationVertex, int departureTime) {
+		CsrTownGraph frozen = freeze();
+		int source = frozen.idOf(sourceVertex);
+		int destination = frozen.idOf(destinationVertex);
+		if(source < 0 || destination < 0) {
+			return null;
+		}
+		return engine.timeDependentRoute(frozen, source, destination, departureTime, engine.getQueueType());
+	}
+	
+	/**
+	 * Find the shortest paths from one source to many destinations with a
+	 * single search that stops once every destination is settled, or with no
+	 * search at all if the source has a cached shortest path tree. A source
+	 * that keeps coming back here gets a tree built for it.
+	 * @param sourceVertex starting vertex
+	 * @param destinations the ending vertices
+	 * @return One arraylist of Strings per destination, in the same order, each
+	 * empty if that town is missing or cannot be reached.
+	 */
+	public ArrayList<ArrayList<String>> shortestPaths(Town sourceVertex, List<Town> destinations) {
+		ArrayList<ArrayList<String>> paths = new ArrayList<ArrayList<String>>(destinations.size());
+		CsrTownGraph frozen = freeze();
+		int source = frozen.idOf(sourceVertex);
+		int[] ids = new int[destinations.size()];
+		int[] targets = new int[ids.length];
+		int found = 0;
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = frozen.idOf(destinations.get(i));
+			if(ids[i] >= 0) {
+				targets[found++] = ids[i];
+			}
+		}
+		if(source < 0) {
+			for(int i = 0; i < ids.length; i++) {
+				paths.add(new ArrayList<String>());
+			}
+			return paths;
+		}
+		ShortestPathTree tree = monitoredTree(sourceVertex, frozen);
+		if(tree == null) {
+			tree = trees.treeFor(frozen, source, engine.getQueueType());
+		}
+		SearchWorkspace ws = null;
+		if(tree == null) {
+			ws = engine.acquire();
+			engine.shortestPathTree(frozen, source, Arrays.copyOf(targets, found), ws, engine.getQueueType());
+		}
+		try {
+			for(int target : ids) {
+				Route route = null;
+				if(target >= 0) {
+					route = tree != null ? tree.route(target) : engine.route(frozen, source, target, ws);
+				}
+				paths.add(route == null ? new ArrayList<String>() : route.describe());
+			}
+		} finally {
+			if(ws != null) {
+				engine.release(ws);
 			}
 		}
 		return paths;
 	}
 	
+	/**
+	 * Find the shortest route between two towns over the frozen snapshot. If
+	 * the source is monitored or has a cached shortest path tree the route is
+	 * read from that tree whatever the mode; a source that keeps coming back to a Dijkstra or
+	 * bidirectional search gets a tree built for it.
+	 * 
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @param mode the search algorithm to use
+	 * @param queueType the priority queue to search with
+	 * @return The route, or null if either town is missing or there is no path.
+	 */
+	public Route route(Town sourceVertex, Town destinationVertex, SearchMode mode, QueueType queueType) {
+		CsrTownGraph frozen = freeze();
+		int source = frozen.idOf(sourceVertex);
+		int destination = frozen.idOf(destinationVertex);
+		if(source < 0 || destination < 0) {
+			return null;
+		}
+		ShortestPathTree tree = monitoredTree(sourceVertex, frozen);
+		if(tree != null) {
+			return tree.route(destination);
+		}
+		if(mode == SearchMode.DIJKSTRA || mode == SearchMode.BIDIRECTIONAL) {
+			tree = trees.treeFor(frozen, source, queueType);
+		}else {
+			tree = trees.lookup(frozen, source);
+		}
+		if(tree != null) {
+			return tree.route(destination);
+		}
+		switch(mode) {
+		case BIDIRECTIONAL:
+			return engine.bidirectionalRoute(frozen, source, destination, queueType);
+		case ALT:
+			return engine.altRoute(frozen, landmarks(frozen), source, destination, queueType);
+		case CONTRACTION_HIERARCHY:
+			return hierarchy(frozen).route(source, destination, queueType);
+		default:
+			return engine.shortestRoute(frozen, source, destination, queueType);
+		}
+	}
+	
 	/**
      * Dijkstra's Shortest Path Method.  Internal structures are built which
      * hold the ability to retrieve the path, shortest distance from the
      * sourceVertex to all the other vertices in the graph, etc.
+     * 
+     * The search runs over the frozen snapshot of the graph and then writes
+     * the distance and predecessor of every town, so nothing is left over from
+     * an earlier query. The tree is kept in the tree cache, so later paths
+     * from the same source are read from it without another search.
      * @param sourceVertex the vertex to find shortest path from
      * 
      */
 	@Override
 	public void dijkstraShortestPath(Town sourceVertex) {
-		sourceVertex.setDistance(0);
-		PriorityQueue<Town> priorityQueue = new PriorityQueue<>();
-		priorityQueue.add(sourceVertex);
-		while(!priorityQueue.isEmpty() ){
-			Town source = priorityQueue.poll();
-			Set<Road> roadList = edgesOf(source);
-			Iterator<Road> itr = roadList.iterator();
-			while(itr.hasNext()) {
-				Road r = itr.next();
-				Town destination = r.getDestination();
-				int distance = source.getDistance() + r.getWeight();
-				if(distance < destination.getDistance()) {
-					priorityQueue.remove(source);
-					destination.setDistance(distance);
-					destination.setPred(source);
-					priorityQueue.add(destination);
-				}
-			}
+		CsrTownGraph frozen = freeze();
+		int source = frozen.idOf(sourceVertex);
+		if(source < 0) {
+			return;
 		}
+		frozen.publish(trees.require(frozen, source, engine.getQueueType()));
 	}
 }
\ No newline at end of file
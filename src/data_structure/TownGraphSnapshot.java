@@ -0,0 +1,289 @@
+package data_structure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import data_element.Road;
+import data_element.Town;
+/**
+ * One immutable version of a ConcurrentTownGraph.
+ *
+ * The towns are spread over a fixed number of segments by hash, each segment
+ * mapping its towns to their neighbour maps. Nothing reachable from a
+ * snapshot is ever changed: a writer copies the segments and neighbour maps it
+ * touches and shares the rest with the snapshot before it. Everything a query
+ * needs, the CSR arrays and any ALT or contraction hierarchy preprocessing,
+ * is built lazily and belongs to the snapshot, so a reader holding one sees a
+ * consistent graph however many writes happen meanwhile. A write that only
+ * changes or closes roads hands the next snapshot its CSR patched in place of
+ * a rebuild, and the ALT and contraction hierarchy preprocessing is only
+ * redone if a query asks for that mode again.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public class TownGraphSnapshot {
+	private final ShortestPathEngine engine = new ShortestPathEngine();
+	private final long version;
+	private final List<Map<Town, Map<Town, Road>>> segments;
+	private final int vertexCount;
+	private volatile CsrTownGraph csr;
+	private volatile LandmarkIndex landmarks;
+	private volatile ContractionHierarchy hierarchy;
+
+	/**
+	 * Constructor for a snapshot over the given segments, which are owned by the
+	 * snapshot from now on and must not be changed.
+	 *
+	 * @param version The version of the graph.
+	 * @param segments The segments of the adjacency.
+	 * @param vertexCount The number of towns over all segments.
+	 * @param csr The CSR form of the segments, or null to build it on first use.
+	 */
+	TownGraphSnapshot(long version, List<Map<Town, Map<Town, Road>>> segments, int vertexCount, CsrTownGraph csr) {
+		this.version = version;
+		this.segments = segments;
+		this.vertexCount = vertexCount;
+		this.csr = csr;
+	}
+
+	/**
+	 * Get the version of the graph this snapshot was published at.
+	 *
+	 * @return The version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get the number of towns.
+	 *
+	 * @return The number of towns.
+	 */
+	public int vertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * Returns the road from the source town to the destination town, or null.
+	 *
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 * @return The road, or null if there is none or either town is null.
+	 */
+	public Road getEdge(Town sourceVertex, Town destinationVertex) {
+		if(sourceVertex == null || destinationVertex == null) {
+			return null;
+		}
+		Map<Town, Road> neighbours = neighbours(sourceVertex);
+		return neighbours == null ? null : neighbours.get(destinationVertex);
+	}
+
+	/**
+	 * Returns true if there is a road between the two towns.
+	 *
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 * @return true if the snapshot contains the road.
+	 */
+	public boolean containsEdge(Town sourceVertex, Town destinationVertex) {
+		return getEdge(sourceVertex, destinationVertex) != null;
+	}
+
+	/**
+	 * Returns true if the snapshot contains the town.
+	 *
+	 * @param v the town, may be null.
+	 * @return true if the town is present.
+	 */
+	public boolean containsVertex(Town v) {
+		return v != null && neighbours(v) != null;
+	}
+
+	/**
+	 * Returns a new set of the roads touching a town.
+	 *
+	 * @param vertex the town.
+	 * @return The roads leaving the town.
+	 * @throws IllegalArgumentException if the town is not in the snapshot.
+	 * @throws NullPointerException if the town is null.
+	 */
+	public Set<Road> edgesOf(Town vertex) {
+		if(vertex == null) {
+			throw new NullPointerException();
+		}
+		Map<Town, Road> neighbours = neighbours(vertex);
+		if(neighbours == null) {
+			throw new IllegalArgumentException();
+		}
+		return new HashSet<Road>(neighbours.values());
+	}
+
+	/**
+	 * Returns a new set of the roads, one per road name as TownGraph does.
+	 *
+	 * @return The roads.
+	 */
+	public Set<Road> edgeSet() {
+		HashMap<String, Road> byName = new HashMap<String, Road>();
+		for(Map<Town, Map<Town, Road>> segment : segments) {
+			for(Map<Town, Road> neighbours : segment.values()) {
+				for(Road rd : neighbours.values()) {
+					byName.put(rd.getName(), rd);
+				}
+			}
+		}
+		return new HashSet<Road>(byName.values());
+	}
+
+	/**
+	 * Returns a new set of the towns.
+	 *
+	 * @return The towns.
+	 */
+	public Set<Town> vertexSet() {
+		HashSet<Town> towns = new HashSet<Town>(vertexCount * 2);
+		for(Map<Town, Map<Town, Road>> segment : segments) {
+			towns.addAll(segment.keySet());
+		}
+		return towns;
+	}
+
+	/**
+	 * Returns true if the CSR form of this snapshot is already built, either by
+	 * freeze or carried over from the snapshot before.
+	 *
+	 * @return true if freeze will not have to build anything.
+	 */
+	public boolean isFrozen() {
+		return csr != null;
+	}
+
+	/**
+	 * Compile the snapshot into a CsrTownGraph, once.
+	 *
+	 * @return The CSR form of this snapshot.
+	 */
+	public CsrTownGraph freeze() {
+		CsrTownGraph frozen = csr;
+		if(frozen == null) {
+			synchronized(this) {
+				frozen = csr;
+				if(frozen == null) {
+					LinkedHashMap<Town, Map<Town, Road>> adjacency = new LinkedHashMap<Town, Map<Town, Road>>(vertexCount * 2);
+					for(Map<Town, Map<Town, Road>> segment : segments) {
+						adjacency.putAll(segment);
+					}
+					frozen = new CsrTownGraph(adjacency, version);
+					csr = frozen;
+				}
+			}
+		}
+		return frozen;
+	}
+
+	/**
+	 * Find the shortest path between two towns.
+	 *
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @param mode the search algorithm to use
+	 * @return The path in the format of Road.toString, empty if either town is
+	 * missing or there is no path.
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex, SearchMode mode) {
+		Route route = route(sourceVertex, destinationVertex, mode, engine.getQueueType());
+		return route == null ? new ArrayList<String>() : route.describe();
+	}
+
+	/**
+	 * Find the shortest route between two towns.
+	 *
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @param mode the search algorithm to use
+	 * @param queueType the priority queue to search with
+	 * @return The route, or null if either town is missing or there is no path.
+	 */
+	public Route route(Town sourceVertex, Town destinationVertex, SearchMode mode, QueueType queueType) {
+		CsrTownGraph frozen = freeze();
+		int source = frozen.idOf(sourceVertex);
+		int destination = frozen.idOf(destinationVertex);
+		if(source < 0 || destination < 0) {
+			return null;
+		}
+		switch(mode) {
+		case BIDIRECTIONAL:
+			return engine.bidirectionalRoute(frozen, source, destination, queueType);
+		case ALT:
+			return engine.altRoute(frozen, landmarks(frozen), source, destination, queueType);
+		case CONTRACTION_HIERARCHY:
+			return hierarchy(frozen).route(source, destination, queueType);
+		default:
+			return engine.shortestRoute(frozen, source, destination, queueType);
+		}
+	}
+
+	/**
+	 * Get the segments, for a writer to copy from.
+	 */
+	List<Map<Town, Map<Town, Road>>> segments() {
+		return segments;
+	}
+
+	/**
+	 * Get the neighbour map of a town, or null if it is not present.
+	 */
+	Map<Town, Road> neighbours(Town v) {
+		return segments.get(segmentOf(v, segments.size())).get(v);
+	}
+
+	/**
+	 * Get the segment a town belongs in.
+	 */
+	static int segmentOf(Town v, int segmentCount) {
+		int h = v.hashCode();
+		h ^= h >>> 16;
+		return (h & 0x7fffffff) % segmentCount;
+	}
+
+	/**
+	 * Get the landmark index of this snapshot, computing it on first use.
+	 */
+	private LandmarkIndex landmarks(CsrTownGraph frozen) {
+		LandmarkIndex index = landmarks;
+		if(index == null) {
+			synchronized(this) {
+				index = landmarks;
+				if(index == null) {
+					index = new LandmarkIndex(frozen, TownGraph.DEFAULT_LANDMARKS);
+					landmarks = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Get the contraction hierarchy of this snapshot, building it on first use.
+	 */
+	private ContractionHierarchy hierarchy(CsrTownGraph frozen) {
+		ContractionHierarchy ch = hierarchy;
+		if(ch == null) {
+			synchronized(this) {
+				ch = hierarchy;
+				if(ch == null) {
+					ch = new ContractionHierarchy(frozen);
+					hierarchy = ch;
+				}
+			}
+		}
+		return ch;
+	}
+}
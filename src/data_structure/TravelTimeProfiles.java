@@ -0,0 +1,104 @@
+package data_structure;
+/**
+ * Piecewise-linear travel time functions of the departure time, one per road
+ * that has one. A profile is two int arrays of equal length: breakpoint times
+ * in minutes after midnight, strictly increasing within one day, and the
+ * minutes it takes to travel the road when leaving at each of them. Between
+ * breakpoints the travel time is interpolated, and the profile repeats every
+ * day, so after the last breakpoint it runs back towards the first.
+ *
+ * Every profile must be FIFO: leaving later never means arriving earlier, so
+ * the travel time may not fall by more than one minute per minute. Under that
+ * rule Dijkstra's algorithm keyed on arrival time still finds the earliest
+ * arrival.
+ *
+ * A CsrTownGraph keeps all of its profiles in flat int arrays, so even a large
+ * network has no object per breakpoint.
+ *
+ * @author Ryan Koepke
+ *
+ */
+public final class TravelTimeProfiles {
+	/**
+	 * The length of a day in minutes, after which every profile repeats.
+	 */
+	public static final int PERIOD = 24 * 60;
+
+	private TravelTimeProfiles() {
+	}
+
+	/**
+	 * Check that two arrays form a valid FIFO profile.
+	 *
+	 * @param times Breakpoint times in minutes after midnight.
+	 * @param minutes Travel time when leaving at each breakpoint.
+	 * @throws IllegalArgumentException if the arrays are empty or of different
+	 * lengths, a time is out of order or outside the day, a travel time is
+	 * negative, or the travel time falls faster than time passes.
+	 */
+	public static void check(int[] times, int[] minutes) {
+		if(times.length == 0 || times.length != minutes.length) {
+			throw new IllegalArgumentException("A profile needs one travel time per breakpoint");
+		}
+		for(int i = 0; i < times.length; i++) {
+			if(times[i] < 0 || times[i] >= PERIOD || (i > 0 && times[i] <= times[i - 1])) {
+				throw new IllegalArgumentException("Breakpoint " + i + " is out of order or outside the day");
+			}
+			if(minutes[i] < 0) {
+				throw new IllegalArgumentException("Breakpoint " + i + " has a negative travel time");
+			}
+			int next = (i + 1) % times.length;
+			int span = next == 0 ? times[0] + PERIOD - times[i] : times[next] - times[i];
+			if(times.length > 1 && minutes[next] - minutes[i] < -span) {
+				throw new IllegalArgumentException("Leaving after breakpoint " + i + " would arrive earlier");
+			}
+		}
+	}
+
+	/**
+	 * Evaluate a profile stored in a slice of two flat arrays.
+	 *
+	 * @param times Breakpoint times of all profiles.
+	 * @param minutes Travel times of all profiles.
+	 * @param from Index of the first breakpoint of the profile.
+	 * @param to Index one past its last breakpoint.
+	 * @param departure The departure time in minutes, any day.
+	 * @return The travel time in minutes, rounded down.
+	 */
+	public static int evaluate(int[] times, int[] minutes, int from, int to, int departure) {
+		int last = to - 1;
+		if(from == last) {
+			return minutes[from];
+		}
+		int t = Math.floorMod(departure, PERIOD);
+		int t0;
+		int t1;
+		int m0;
+		int m1;
+		if(t < times[from] || t >= times[last]) {
+			t0 = times[last];
+			m0 = minutes[last];
+			t1 = times[from] + PERIOD;
+			m1 = minutes[from];
+			if(t < times[from]) {
+				t += PERIOD;
+			}
+		}else {
+			int lo = from;
+			int hi = last;
+			while(hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				if(times[mid] <= t) {
+					lo = mid;
+				}else {
+					hi = mid;
+				}
+			}
+			t0 = times[lo];
+			m0 = minutes[lo];
+			t1 = times[hi];
+			m1 = minutes[hi];
+		}
+		return m0 + (int) Math.floorDiv((long) (m1 - m0) * (t - t0), t1 - t0);
+	}
+}
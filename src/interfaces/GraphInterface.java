@@ -148,6 +148,21 @@ public interface GraphInterface<V, E>
      */
     public E removeEdge(V sourceVertex, V destinationVertex, int weight, String description);
 
+    /**
+     * Changes the weight of the edge between source vertex and target vertex,
+     * in both directions, if such vertices and such edge exist in this graph.
+     * 
+     * Returns the edge if updated
+     * or null otherwise.
+     *
+     * @param sourceVertex source vertex of the edge.
+     * @param destinationVertex target vertex of the edge.
+     * @param weight new weight of the edge
+     *
+     * @return The updated edge, or null if there is no such edge.
+     */
+    public E updateWeight(V sourceVertex, V destinationVertex, int weight);
+
 
     /**
      * Removes the specified vertex from this graph including all its touching
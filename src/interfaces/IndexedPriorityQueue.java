@@ -0,0 +1,82 @@
+package interfaces;
+
+/**
+ * A min priority queue over int ids 0 to capacity - 1 in which every id is
+ * present at most once and its key can be lowered in place. Used by the
+ * shortest path searches with town ids as elements and distances as keys.
+ *
+ * Implementations keep their index arrays between queries; clear only
+ * touches the ids still queued, so a queue can be reused across searches
+ * without an O(capacity) reset.
+ */
+public interface IndexedPriorityQueue
+{
+    /**
+     * Makes room for ids up to capacity - 1.
+     *
+     * @param capacity the number of ids the queue must be able to hold.
+     */
+    public void ensureCapacity(int capacity);
+
+    /**
+     * Returns true if no ids are queued.
+     *
+     * @return true if the queue is empty.
+     */
+    public boolean isEmpty();
+
+    /**
+     * Returns the number of queued ids.
+     *
+     * @return the size of the queue.
+     */
+    public int size();
+
+    /**
+     * Returns true if the id is currently queued.
+     *
+     * @param id the id to check.
+     *
+     * @return true if the id is in the queue.
+     */
+    public boolean contains(int id);
+
+    /**
+     * Adds an id that is not already queued.
+     *
+     * @param id the id to add.
+     * @param key the priority of the id.
+     */
+    public void insert(int id, int key);
+
+    /**
+     * Lowers the key of a queued id.
+     *
+     * @param id the queued id.
+     * @param key the new key, no larger than the current one.
+     */
+    public void decreaseKey(int id, int key);
+
+    /**
+     * Returns the smallest key in the queue without removing it.
+     *
+     * @return the smallest key.
+     *
+     * @throws java.util.NoSuchElementException if the queue is empty.
+     */
+    public int minKey();
+
+    /**
+     * Removes the id with the smallest key.
+     *
+     * @return the removed id.
+     *
+     * @throws java.util.NoSuchElementException if the queue is empty.
+     */
+    public int poll();
+
+    /**
+     * Removes every queued id.
+     */
+    public void clear();
+}
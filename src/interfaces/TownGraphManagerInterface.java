@@ -3,6 +3,7 @@ package interfaces;
 import java.util.*;
 
 import data_element.Town;
+import data_element.TownPair;
 
 public interface TownGraphManagerInterface {
 	
@@ -89,4 +90,12 @@ public interface TownGraphManagerInterface {
 	 */
 	public ArrayList<String> getPath(String town1, String town2);
 	
+	/**
+	 * Returns the shortest path for every pair of towns in a batch
+	 * @param pairs the source and destination names of the paths wanted
+	 * @return one Arraylist of roads per pair, in the same order, empty if the
+	 * towns of that pair have no path to connect them.
+	 */
+	public ArrayList<ArrayList<String>> getPaths(List<TownPair> pairs);
+	
 }
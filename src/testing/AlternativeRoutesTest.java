@@ -0,0 +1,140 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Town;
+import data_manager.TownGraphManager;
+import data_structure.AlternativeRoutes;
+import data_structure.CsrTownGraph;
+import data_structure.QueueType;
+import data_structure.Route;
+import data_structure.SearchMode;
+import data_structure.TownGraph;
+
+
+public class AlternativeRoutesTest {
+	private TownGraph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(5);
+		graph = new TownGraph();
+		town = new Town[10];
+		for(int i = 0; i < town.length; i++) {
+			town[i] = new Town("Town_" + i);
+			graph.addVertex(town[i]);
+		}
+		for(int i = 1; i < town.length; i++) {
+			graph.addEdge(town[i], town[random.nextInt(i)], 1 + random.nextInt(20), "Road_" + i);
+		}
+		for(int i = 0; i < 14; i++) {
+			int a = random.nextInt(town.length);
+			int b = random.nextInt(town.length);
+			if(a != b) {
+				graph.addEdge(town[a], town[b], 1 + random.nextInt(20), "Extra_" + i);
+			}
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		town = null;
+	}
+
+	@Test
+	public void testKShortestMatchesEnumeration() {
+		CsrTownGraph csr = graph.freeze();
+		for(int s = 0; s < town.length; s++) {
+			for(int t = 0; t < town.length; t++) {
+				if(s == t) {
+					continue;
+				}
+				ArrayList<Integer> all = new ArrayList<Integer>();
+				enumerate(csr, csr.idOf(town[s]), csr.idOf(town[t]), new boolean[town.length], 0, all);
+				Collections.sort(all);
+				ArrayList<Route> routes = graph.alternativeRoutes(town[s], town[t], 6, true);
+				assertEquals(Math.min(6, all.size()), routes.size());
+				HashSet<String> distinct = new HashSet<String>();
+				for(int i = 0; i < routes.size(); i++) {
+					Route r = routes.get(i);
+					assertEquals(all.get(i).intValue(), r.getDistance());
+					assertTrue(distinct.add(r.describe().toString()));
+					HashSet<Integer> visited = new HashSet<Integer>();
+					visited.add(csr.idOf(town[s]));
+					int sum = 0;
+					for(int arc : r.getArcs()) {
+						assertTrue(visited.add(csr.arcTarget(arc)));
+						sum += csr.arcWeight(arc);
+					}
+					assertEquals(sum, r.getDistance());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPenalized() {
+		ArrayList<Route> routes = graph.alternativeRoutes(town[0], town[9], 4, false);
+		Route shortest = graph.route(town[0], town[9], SearchMode.DIJKSTRA, QueueType.BINARY_HEAP);
+		assertFalse(routes.isEmpty());
+		assertEquals(shortest.getDistance(), routes.get(0).getDistance());
+		HashSet<String> distinct = new HashSet<String>();
+		for(int i = 0; i < routes.size(); i++) {
+			assertTrue(distinct.add(routes.get(i).describe().toString()));
+			assertTrue(routes.get(i).getDistance() <= shortest.getDistance() * AlternativeRoutes.DEFAULT_MAX_STRETCH);
+			if(i > 0) {
+				assertTrue(routes.get(i - 1).getDistance() <= routes.get(i).getDistance());
+			}
+		}
+		assertTrue(graph.alternativePaths(town[0], new Town("Nowhere"), 3).isEmpty());
+	}
+
+	@Test
+	public void testManagerAlternativePaths() {
+		TownGraphManager manager = new TownGraphManager();
+		for(int i = 1; i <= 4; i++) {
+			manager.addTown("Town_" + i);
+		}
+		manager.addRoad("Town_1", "Town_2", 10, "Road_1");
+		manager.addRoad("Town_2", "Town_4", 10, "Road_2");
+		manager.addRoad("Town_1", "Town_3", 12, "Road_3");
+		manager.addRoad("Town_3", "Town_4", 12, "Road_4");
+		manager.addRoad("Town_2", "Town_3", 5, "Road_5");
+		ArrayList<ArrayList<String>> paths = manager.getAlternativePaths("Town_1", "Town_4", 5, true);
+		assertEquals(4, paths.size());
+		assertEquals("Town_1 via Road_1 to Town_2 10 mi", paths.get(0).get(0));
+		assertEquals("Town_2 via Road_2 to Town_4 10 mi", paths.get(0).get(1));
+		assertEquals(3, paths.get(3).size());
+		assertEquals(paths.get(1), manager.getAlternativePaths("Town_1", "Town_4", 2, false).get(1));
+		assertTrue(manager.getAlternativePaths("Town_1", "Town_9", 2, true).isEmpty());
+	}
+
+	/**
+	 * Add the length of every loopless path from u to t to lengths.
+	 */
+	private static void enumerate(CsrTownGraph csr, int u, int t, boolean[] onPath, int length, ArrayList<Integer> lengths) {
+		if(u == t) {
+			lengths.add(length);
+			return;
+		}
+		onPath[u] = true;
+		for(int arc = csr.firstArc(u); arc < csr.endArc(u); arc++) {
+			int v = csr.arcTarget(arc);
+			if(!onPath[v]) {
+				enumerate(csr, v, t, onPath, length + csr.arcWeight(arc), lengths);
+			}
+		}
+		onPath[u] = false;
+	}
+}
@@ -0,0 +1,203 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Road;
+import data_element.Town;
+import data_structure.ConcurrentTownGraph;
+import data_structure.QueueType;
+import data_structure.Route;
+import data_structure.SearchMode;
+import data_structure.TownGraph;
+import data_structure.TownGraphSnapshot;
+
+
+public class ConcurrentTownGraphTest {
+	private ConcurrentTownGraph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		  graph = new ConcurrentTownGraph(4);
+		  town = new Town[12];
+
+		  for (int i = 1; i < 12; i++) {
+			  town[i] = new Town("Town_" + i);
+			  graph.addVertex(town[i]);
+		  }
+
+		  graph.addEdge(town[1], town[2], 2, "Road_1");
+		  graph.addEdge(town[1], town[3], 4, "Road_2");
+		  graph.addEdge(town[1], town[5], 6, "Road_3");
+		  graph.addEdge(town[3], town[7], 1, "Road_4");
+		  graph.addEdge(town[3], town[8], 2, "Road_5");
+		  graph.addEdge(town[4], town[8], 3, "Road_6");
+		  graph.addEdge(town[6], town[9], 3, "Road_7");
+		  graph.addEdge(town[9], town[10], 4, "Road_8");
+		  graph.addEdge(town[8], town[10], 2, "Road_9");
+		  graph.addEdge(town[5], town[10], 5, "Road_10");
+		  graph.addEdge(town[10], town[11], 3, "Road_11");
+		  graph.addEdge(town[2], town[11], 6, "Road_12");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		town = null;
+	}
+
+	@Test
+	public void testSameAnswersAsTownGraph() {
+		TownGraph plain = new TownGraph();
+		for(int i = 1; i < 12; i++) {
+			plain.addVertex(town[i]);
+		}
+		for(int i = 1; i < 12; i++) {
+			for(Road r : graph.edgesOf(town[i])) {
+				plain.addEdge(r.getSource(), r.getDestination(), r.getWeight(), r.getName());
+			}
+		}
+		assertEquals(plain.edgeSet().size(), graph.edgeSet().size());
+		assertEquals(plain.vertexSet(), graph.vertexSet());
+		for(int s = 1; s < 12; s++) {
+			for(int t = 1; t < 12; t++) {
+				assertEquals(pathLength(plain.shortestPath(town[s], town[t])),
+						pathLength(graph.shortestPath(town[s], town[t])));
+			}
+		}
+		assertEquals(graph.shortestPath(town[1], town[6]), graph.shortestPath(town[1], town[6], SearchMode.ALT));
+	}
+
+	@Test
+	public void testEdits() {
+		assertTrue(graph.containsEdge(town[2], town[11]));
+		assertNull(graph.addEdge(town[11], town[2], 6, "Road_12"));
+		assertNull(graph.removeEdge(town[2], town[11], 5, null));
+		assertNotNull(graph.removeEdge(town[11], town[2], 6, "Road_12"));
+		assertFalse(graph.containsEdge(town[2], town[11]));
+		assertTrue(graph.removeVertex(town[10]));
+		assertFalse(graph.containsVertex(town[10]));
+		assertFalse(graph.containsEdge(town[9], town[10]));
+		assertEquals(1, graph.edgesOf(town[9]).size());
+		assertEquals(10, graph.vertexSet().size());
+		try {
+			graph.addEdge(town[10], town[1], 1, "Road_13");
+			fail("Expected IllegalArgumentException");
+		}catch(IllegalArgumentException e) {
+		}
+		try {
+			graph.updateWeight(town[1], town[2], -1);
+			fail("Expected IllegalArgumentException");
+		}catch(IllegalArgumentException e) {
+		}
+		assertEquals(2, graph.getEdge(town[1], town[2]).getWeight());
+	}
+
+	@Test
+	public void testRemoveVertexWithSelfLoop() {
+		graph.addEdge(town[4], town[4], 1, "Road_13");
+		assertTrue(graph.removeVertex(town[4]));
+		assertFalse(graph.containsVertex(town[4]));
+		assertFalse(graph.containsEdge(town[8], town[4]));
+		assertEquals(10, graph.vertexSet().size());
+		assertEquals(10, graph.snapshot().vertexCount());
+	}
+
+	@Test
+	public void testRoadChangesPatchFrozenSnapshot() {
+		graph.snapshot().freeze();
+		graph.updateWeight(town[8], town[10], 10);
+		assertTrue(graph.snapshot().isFrozen());
+		assertEquals(graph.getVersion(), graph.snapshot().freeze().getVersion());
+		assertEquals(18, graph.snapshot().route(town[1], town[6], SearchMode.DIJKSTRA, QueueType.BINARY_HEAP).getDistance());
+		graph.removeEdge(town[1], town[5], 6, "Road_3");
+		assertTrue(graph.snapshot().isFrozen());
+		TownGraph plain = new TownGraph();
+		for(int i = 1; i < 12; i++) {
+			plain.addVertex(town[i]);
+		}
+		for(int i = 1; i < 12; i++) {
+			for(Road r : graph.edgesOf(town[i])) {
+				plain.addEdge(r.getSource(), r.getDestination(), r.getWeight(), r.getName());
+			}
+		}
+		for(int s = 1; s < 12; s++) {
+			for(int t = 1; t < 12; t++) {
+				assertEquals(plain.shortestPath(town[s], town[t]), graph.shortestPath(town[s], town[t]));
+				assertEquals(pathLength(plain.shortestPath(town[s], town[t])),
+						pathLength(graph.shortestPath(town[s], town[t], SearchMode.ALT)));
+			}
+		}
+		graph.addEdge(town[1], town[11], 1, "Road_13");
+		assertFalse(graph.snapshot().isFrozen());
+	}
+
+	@Test
+	public void testSnapshotIsolation() {
+		TownGraphSnapshot before = graph.snapshot();
+		long version = graph.getVersion();
+		graph.removeEdge(town[8], town[10], 2, "Road_9");
+		graph.addEdge(town[1], town[11], 1, "Road_13");
+		assertEquals(version + 2, graph.getVersion());
+		assertEquals(version, before.getVersion());
+		assertTrue(before.containsEdge(town[8], town[10]));
+		assertFalse(before.containsEdge(town[1], town[11]));
+		Route old = before.route(town[1], town[6], SearchMode.DIJKSTRA, QueueType.BINARY_HEAP);
+		assertEquals(15, old.getDistance());
+		assertEquals("Town_1 via Road_13 to Town_11 1 mi", graph.shortestPath(town[1], town[11]).get(0).trim());
+	}
+
+	@Test
+	public void testReadersDuringWrites() throws Exception {
+		final AtomicBoolean done = new AtomicBoolean();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+		for(int r = 0; r < 3; r++) {
+			readers.add(pool.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					int queries = 0;
+					while(!done.get() || queries == 0) {
+						TownGraphSnapshot snapshot = graph.snapshot();
+						Route route = snapshot.route(town[1], town[6], SearchMode.BIDIRECTIONAL,
+								QueueType.QUATERNARY_HEAP);
+						int expected = snapshot.containsEdge(town[8], town[10]) ? 15 : 18;
+						assertEquals(expected, route.getDistance());
+						queries++;
+					}
+					return queries;
+				}
+			}));
+		}
+		for(int i = 0; i < 500; i++) {
+			graph.removeEdge(town[8], town[10], 2, "Road_9");
+			graph.addEdge(town[8], town[10], 2, "Road_9");
+		}
+		done.set(true);
+		for(Future<Integer> reader : readers) {
+			assertTrue(reader.get() > 0);
+		}
+		pool.shutdown();
+	}
+
+	private static int pathLength(ArrayList<String> path) {
+		int length = 0;
+		for(String road : path) {
+			String[] words = road.trim().split(" ");
+			length += Integer.parseInt(words[words.length - 2]);
+		}
+		return length;
+	}
+}
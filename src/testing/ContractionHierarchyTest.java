@@ -0,0 +1,114 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Town;
+import data_structure.ContractionHierarchy;
+import data_structure.CsrTownGraph;
+import data_structure.QueueType;
+import data_structure.Route;
+import data_structure.SearchMode;
+import data_structure.ShortestPathEngine;
+import data_structure.TownGraph;
+
+
+public class ContractionHierarchyTest {
+	private TownGraph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		  graph = new TownGraph();
+		  town = new Town[12];
+
+		  for (int i = 1; i < 12; i++) {
+			  town[i] = new Town("Town_" + i);
+			  graph.addVertex(town[i]);
+		  }
+
+		  graph.addEdge(town[1], town[2], 2, "Road_1");
+		  graph.addEdge(town[1], town[3], 4, "Road_2");
+		  graph.addEdge(town[1], town[5], 6, "Road_3");
+		  graph.addEdge(town[3], town[7], 1, "Road_4");
+		  graph.addEdge(town[3], town[8], 2, "Road_5");
+		  graph.addEdge(town[4], town[8], 3, "Road_6");
+		  graph.addEdge(town[6], town[9], 3, "Road_7");
+		  graph.addEdge(town[9], town[10], 4, "Road_8");
+		  graph.addEdge(town[8], town[10], 2, "Road_9");
+		  graph.addEdge(town[5], town[10], 5, "Road_10");
+		  graph.addEdge(town[10], town[11], 3, "Road_11");
+		  graph.addEdge(town[2], town[11], 6, "Road_12");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testSamePathStrings() {
+		ArrayList<String> path = graph.shortestPath(town[1], town[6], SearchMode.CONTRACTION_HIERARCHY);
+		assertEquals(graph.shortestPath(town[1], town[6]), path);
+		path = graph.shortestPath(town[4], town[11], SearchMode.CONTRACTION_HIERARCHY);
+		assertEquals("Town_4 via Road_6 to Town_8 3 mi", path.get(0));
+		assertEquals("Town_8 via Road_9 to Town_10 2 mi", path.get(1));
+		assertEquals("Town_10 via Road_11 to Town_11 3 mi", path.get(2));
+		path = graph.shortestPath(town[11], town[4], SearchMode.CONTRACTION_HIERARCHY);
+		assertEquals("Town_11 via Road_11 to Town_10 3 mi", path.get(0));
+		assertEquals("Town_8 via Road_6 to Town_4 3 mi", path.get(2));
+	}
+
+	@Test
+	public void testRebuiltAfterChange() {
+		graph.contract();
+		graph.addEdge(town[4], town[6], 1, "Road_13");
+		ArrayList<String> path = graph.shortestPath(town[4], town[6], SearchMode.CONTRACTION_HIERARCHY);
+		assertEquals(1, path.size());
+		assertEquals("Town_4 via Road_13 to Town_6 1 mi", path.get(0));
+	}
+
+	@Test
+	public void testMatchesDijkstraOnRandomGraph() {
+		Random random = new Random(5);
+		TownGraph big = new TownGraph();
+		Town[] towns = new Town[600];
+		for(int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town_" + i);
+			big.addVertex(towns[i]);
+		}
+		for(int i = 0; i < 1500; i++) {
+			big.addEdge(towns[random.nextInt(towns.length)], towns[random.nextInt(towns.length)],
+					1 + random.nextInt(60), "Road_" + i);
+		}
+		CsrTownGraph csr = big.freeze();
+		ContractionHierarchy ch = big.contract();
+		ShortestPathEngine engine = new ShortestPathEngine();
+		for(int i = 0; i < 400; i++) {
+			int s = random.nextInt(towns.length);
+			int t = random.nextInt(towns.length);
+			Route expected = engine.shortestRoute(csr, s, t);
+			Route actual = ch.route(s, t, QueueType.PAIRING_HEAP);
+			if(expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertEquals(expected.getDistance(), actual.getDistance());
+			int sum = 0;
+			int at = s;
+			for(int arc : actual.getArcs()) {
+				assertEquals(at, csr.arcSource(arc));
+				sum += csr.arcWeight(arc);
+				at = csr.arcTarget(arc);
+			}
+			assertEquals(t, at);
+			assertEquals(expected.getDistance(), sum);
+		}
+	}
+}
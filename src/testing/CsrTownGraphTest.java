@@ -0,0 +1,183 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Road;
+import data_element.Town;
+import data_structure.CsrTownGraph;
+import data_structure.TownGraph;
+
+
+public class CsrTownGraphTest {
+	private TownGraph graph;
+	private CsrTownGraph csr;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		  graph = new TownGraph();
+		  town = new Town[12];
+
+		  for (int i = 1; i < 12; i++) {
+			  town[i] = new Town("Town_" + i);
+			  graph.addVertex(town[i]);
+		  }
+
+		  graph.addEdge(town[1], town[2], 2, "Road_1");
+		  graph.addEdge(town[1], town[3], 4, "Road_2");
+		  graph.addEdge(town[1], town[5], 6, "Road_3");
+		  graph.addEdge(town[3], town[7], 1, "Road_4");
+		  graph.addEdge(town[3], town[8], 2, "Road_5");
+		  graph.addEdge(town[4], town[8], 3, "Road_6");
+		  graph.addEdge(town[6], town[9], 3, "Road_7");
+		  graph.addEdge(town[9], town[10], 4, "Road_8");
+		  graph.addEdge(town[8], town[10], 2, "Road_9");
+		  graph.addEdge(town[5], town[10], 5, "Road_10");
+		  graph.addEdge(town[10], town[11], 3, "Road_11");
+		  graph.addEdge(town[2], town[11], 6, "Road_12");
+		  csr = graph.freeze();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		csr = null;
+	}
+
+	@Test
+	public void testCounts() {
+		assertEquals(11, csr.vertexCount());
+		assertEquals(24, csr.arcCount());
+		assertEquals(6, csr.maxWeight());
+	}
+
+	@Test
+	public void testGetEdge() {
+		assertEquals(new Road(town[2], town[11],6, "Road_12"), csr.getEdge(town[2], town[11]));
+		assertEquals("Town_11 via Road_12 to Town_2 6 mi", csr.getEdge(town[11], town[2]).toString());
+		assertNull(csr.getEdge(town[1], town[11]));
+	}
+
+	@Test
+	public void testEdgesOf() {
+		Set<Road> roads = csr.edgesOf(town[1]);
+		ArrayList<String> roadArrayList = new ArrayList<String>();
+		for(Road road : roads)
+			roadArrayList.add(road.getName());
+		Collections.sort(roadArrayList);
+		assertEquals(3, roadArrayList.size());
+		assertEquals("Road_1", roadArrayList.get(0));
+		assertEquals("Road_2", roadArrayList.get(1));
+		assertEquals("Road_3", roadArrayList.get(2));
+	}
+
+	@Test
+	public void testEdgeSet() {
+		assertEquals(graph.edgeSet().size(), csr.edgeSet().size());
+		assertEquals(graph.vertexSet(), csr.vertexSet());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testImmutable() {
+		csr.addEdge(town[3], town[5], 1, "Road_13");
+	}
+
+	@Test
+	public void testSnapshotSharedUntilModified() {
+		assertSame(csr, graph.freeze());
+		graph.addEdge(town[3], town[5], 1, "Road_13");
+		CsrTownGraph next = graph.freeze();
+		assertNotSame(csr, next);
+		assertFalse(csr.containsEdge(town[3], town[5]));
+		assertTrue(next.containsEdge(town[5], town[3]));
+	}
+
+	@Test
+	public void testShortestPath() {
+		ArrayList<String> path = csr.shortestPath(town[4], town[11]);
+		assertEquals(3, path.size());
+		assertEquals("Town_4 via Road_6 to Town_8 3 mi", path.get(0));
+		assertEquals("Town_8 via Road_9 to Town_10 2 mi", path.get(1));
+		assertEquals("Town_10 via Road_11 to Town_11 3 mi", path.get(2));
+		assertEquals(graph.shortestPath(town[4], town[11]), path);
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		File file = File.createTempFile("towns", ".csr");
+		file.deleteOnExit();
+		graph.addVertex(new Town("Z\u00fcrich"));
+		graph.addEdge(graph.getVertex(new Town("Z\u00fcrich")), town[6], 9, "Stra\u00dfe 1");
+		csr = graph.freeze();
+		csr.save(file);
+		CsrTownGraph loaded = CsrTownGraph.load(file);
+		assertEquals(csr.vertexCount(), loaded.vertexCount());
+		assertEquals(csr.arcCount(), loaded.arcCount());
+		assertEquals(csr.maxWeight(), loaded.maxWeight());
+		assertEquals(csr.getVersion(), loaded.getVersion());
+		for(int arc = 0; arc < csr.arcCount(); arc++) {
+			assertEquals(csr.describe(arc), loaded.describe(arc));
+			assertEquals(csr.reverseArc(arc), loaded.reverseArc(arc));
+		}
+		assertEquals("Z\u00fcrich via Stra\u00dfe 1 to Town_6 9 mi", loaded.getEdge(new Town("Z\u00fcrich"), town[6]).toString());
+
+		TownGraph opened = new TownGraph(loaded);
+		assertSame(loaded, opened.freeze());
+		assertEquals(graph.shortestPath(town[4], town[11]), opened.shortestPath(town[4], town[11]));
+		assertTrue(opened.containsVertex(town[7]));
+		opened.addEdge(town[3], town[5], 1, "Road_13");
+		assertNotSame(loaded, opened.freeze());
+		assertEquals(graph.edgeSet().size() + 1, opened.edgeSet().size());
+		assertEquals("Town_1 via Road_2 to Town_3 4 mi", opened.shortestPath(town[1], town[5]).get(0));
+	}
+
+	@Test
+	public void testLoadCorruptSnapshot() throws Exception {
+		File file = File.createTempFile("roads", ".csr");
+		file.deleteOnExit();
+		csr.save(file);
+		byte[] saved = Files.readAllBytes(file.toPath());
+		ByteBuffer header = ByteBuffer.wrap(saved).order(ByteOrder.LITTLE_ENDIAN);
+		int vertexCount = header.getInt(16);
+		int arcCount = header.getInt(20);
+		int nameCount = header.getInt(24);
+		int townEnds = 40;
+		int offsets = townEnds + 4 * (vertexCount + 1) + 4 * (nameCount + 1);
+		ByteBuffer decreasing = ByteBuffer.wrap(saved.clone()).order(ByteOrder.LITTLE_ENDIAN);
+		decreasing.putInt(offsets + 4, arcCount);
+		ByteBuffer outside = ByteBuffer.wrap(saved.clone()).order(ByteOrder.LITTLE_ENDIAN);
+		outside.putInt(townEnds + 4, Integer.MAX_VALUE);
+		for(ByteBuffer corrupt : new ByteBuffer[] {decreasing, outside}) {
+			Files.write(file.toPath(), corrupt.array());
+			try {
+				CsrTownGraph.load(file);
+				fail("Loaded a corrupt snapshot");
+			}catch(IOException e) {
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadNotASnapshot() throws Exception {
+		File file = File.createTempFile("towns", ".txt");
+		file.deleteOnExit();
+		try(FileWriter out = new FileWriter(file)) {
+			out.write("Road_1,2;Town_1;Town_2\n");
+		}
+		CsrTownGraph.load(file);
+	}
+}
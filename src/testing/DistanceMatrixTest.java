@@ -0,0 +1,92 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Town;
+import data_structure.CsrTownGraph;
+import data_structure.DistanceMatrix;
+import data_structure.Route;
+import data_structure.SearchWorkspace;
+import data_structure.ShortestPathEngine;
+import data_structure.TownGraph;
+
+
+public class DistanceMatrixTest {
+	private TownGraph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(23);
+		graph = new TownGraph();
+		town = new Town[150];
+		for(int i = 0; i < town.length; i++) {
+			town[i] = new Town("Town_" + i);
+			graph.addVertex(town[i]);
+		}
+		for(int i = 0; i < 400; i++) {
+			graph.addEdge(town[random.nextInt(town.length)], town[random.nextInt(town.length)],
+					1 + random.nextInt(25), "Road_" + i);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		town = null;
+	}
+
+	@Test
+	public void testMatchesSingleSearches() {
+		DistanceMatrix matrix = graph.distanceMatrix(true);
+		CsrTownGraph csr = matrix.getGraph();
+		assertEquals(town.length, matrix.size());
+		ShortestPathEngine engine = new ShortestPathEngine();
+		SearchWorkspace ws = engine.acquire();
+		for(int s = 0; s < csr.vertexCount(); s++) {
+			engine.shortestPathTree(csr, s, ws);
+			for(int t = 0; t < csr.vertexCount(); t++) {
+				assertEquals(ws.distance(t), matrix.distance(s, t));
+				assertEquals(matrix.distance(s, t), matrix.distance(t, s));
+				Route route = matrix.route(s, t);
+				if(ws.distance(t) == SearchWorkspace.UNREACHED) {
+					assertNull(route);
+				}else {
+					assertEquals(csr.describe(engine.route(csr, s, t, ws).getArcs()), route.describe());
+				}
+			}
+		}
+		engine.release(ws);
+	}
+
+	@Test
+	public void testProgressAndNoPredecessors() {
+		ForkJoinPool pool = new ForkJoinPool(3);
+		AtomicInteger calls = new AtomicInteger();
+		AtomicInteger last = new AtomicInteger();
+		DistanceMatrix matrix = DistanceMatrix.compute(graph.freeze(), false, pool,
+				(completed, total) -> {
+					calls.incrementAndGet();
+					last.accumulateAndGet(completed, Math::max);
+					assertEquals(town.length, total);
+				});
+		pool.shutdown();
+		assertEquals(town.length, calls.get());
+		assertEquals(town.length, last.get());
+		assertFalse(matrix.hasPredecessors());
+		assertEquals(0, matrix.distance(5, 5));
+		try {
+			matrix.route(0, 1);
+			fail("Expected IllegalStateException");
+		}catch(IllegalStateException e) {
+		}
+	}
+}
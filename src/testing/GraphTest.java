@@ -12,6 +12,8 @@ import org.junit.Test;
 
 import data_element.Road;
 import data_element.Town;
+import data_structure.ChangeConflictException;
+import data_structure.ChangeLog;
 import data_structure.TownGraph;
 
 
@@ -123,6 +125,64 @@ public class GraphTest {
 		assertEquals(false, graph.containsVertex(town[2]));
 	}
 
+	@Test
+	public void testRemoveEdgeBothDirections() {
+		assertEquals(null, graph.removeEdge(town[2], town[11], 5, "Road_12"));
+		assertEquals(true, graph.containsEdge(town[11], town[2]));
+		graph.removeEdge(town[11], town[2], 6, "Road_12");
+		assertEquals(false, graph.containsEdge(town[2], town[11]));
+		assertEquals(false, graph.containsEdge(town[11], town[2]));
+	}
+	
+	@Test
+	public void testRemoveVertexRemovesRoads() {
+		graph.removeVertex(town[2]);
+		assertEquals(false, graph.containsEdge(town[1], town[2]));
+		assertEquals(false, graph.containsEdge(town[11], town[2]));
+		assertEquals(2, graph.edgesOf(town[1]).size());
+	}
+
+	@Test
+	public void testRemoveVertexWithSelfLoop() {
+		graph.addEdge(town[3], town[3], 1, "Loop_3");
+		assertTrue(graph.removeVertex(town[3]));
+		assertFalse(graph.containsVertex(town[3]));
+		assertFalse(graph.containsEdge(town[1], town[3]));
+		assertEquals(2, graph.edgesOf(town[1]).size());
+	}
+
+	@Test
+	public void testApplyRemoveTownWithSelfLoop() {
+		ChangeLog loop = new ChangeLog().addRoad("Town_12", "Town_12", 1, "Loop_12").addRoad("Town_12", "Town_1", 2, "Road_13");
+		try {
+			graph.apply(loop.removeTown("Town_12").removeTown("Nowhere"));
+			fail("Applied a change to a missing town");
+		} catch(ChangeConflictException e) {
+			assertEquals(3, e.getIndex());
+		}
+		assertFalse(graph.containsVertex(new Town("Town_12")));
+		assertEquals(3, graph.edgesOf(town[1]).size());
+		graph.apply(new ChangeLog().addRoad("Town_12", "Town_12", 1, "Loop_12").addRoad("Town_12", "Town_1", 2, "Road_13")
+				.removeTown("Town_12"));
+		assertFalse(graph.containsVertex(new Town("Town_12")));
+		assertFalse(graph.containsEdge(town[1], new Town("Town_12")));
+		assertEquals(3, graph.edgesOf(town[1]).size());
+	}
+
+	@Test
+	public void testShortestPathIsFreshPerCall() {
+		ArrayList<String> first = graph.shortestPath(town[1], town[11]);
+		ArrayList<String> second = graph.shortestPath(town[1], town[11]);
+		assertEquals(2, second.size());
+		assertEquals(first, second);
+		assertNotSame(first, second);
+		ArrayList<String> other = graph.shortestPath(town[4], town[7]);
+		assertEquals(3, other.size());
+		assertEquals("Town_4 via Road_6 to Town_8 3 mi", other.get(0));
+		assertEquals("Town_3 via Road_4 to Town_7 1 mi", other.get(2));
+		assertEquals(0, graph.shortestPath(town[1], town[1]).size());
+	}
+
 	@Test
 	public void testVertexSet() {
 		Set<Town> roads = graph.vertexSet();
@@ -219,4 +279,27 @@ public class GraphTest {
 			  fail("Town names are not valid");
 
 	  }
+
+	@Test
+	public void testUpdateWeight() {
+		Road road = graph.getEdge(town[1], town[2]);
+		ArrayList<String> before = graph.shortestPath(town[1], town[11]);
+		assertEquals("Town_1 via Road_1 to Town_2 2 mi", before.get(0));
+		long version = graph.getVersion();
+		assertSame(road, graph.updateWeight(town[1], town[2], 20));
+		assertEquals(20, road.getWeight());
+		assertEquals(20, graph.getEdge(town[2], town[1]).getWeight());
+		assertEquals(version + 1, graph.getVersion());
+		ArrayList<String> after = graph.shortestPath(town[1], town[11]);
+		assertEquals("Town_10 via Road_11 to Town_11 3 mi", after.get(after.size() - 1));
+		assertNull(graph.updateWeight(town[1], town[11], 1));
+
+		Town[] from = {town[10], town[1], town[4]};
+		Town[] to = {town[11], town[2], town[6]};
+		assertEquals(2, graph.updateWeights(from, to, new int[] {9, 1, 5}, 3));
+		assertEquals(version + 2, graph.getVersion());
+		assertEquals(1, road.getWeight());
+		assertEquals(graph.freeze().shortestPath(town[1], town[11]), graph.shortestPath(town[1], town[11]));
+		assertEquals("Town_2 via Road_12 to Town_11 6 mi", graph.shortestPath(town[1], town[11]).get(1));
+	}
 }
@@ -0,0 +1,127 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import data_element.Town;
+import data_structure.CsrTownGraph;
+import data_structure.LongHeap;
+import data_structure.QueueType;
+import data_structure.SearchWorkspace;
+import data_structure.ShortestPathEngine;
+import data_structure.TownGraph;
+import interfaces.IndexedPriorityQueue;
+
+
+public class IndexedPriorityQueueTest {
+
+	@Test
+	public void testPollOrder() {
+		for(QueueType type : QueueType.values()) {
+			IndexedPriorityQueue queue = type.create();
+			queue.ensureCapacity(10);
+			int[] keys = {7, 3, 9, 3, 12, 0, 5, 8, 1, 4};
+			for(int id = 0; id < keys.length; id++) {
+				queue.insert(id, keys[id]);
+			}
+			assertEquals(10, queue.size());
+			int last = -1;
+			while(!queue.isEmpty()) {
+				int key = queue.minKey();
+				int id = queue.poll();
+				assertEquals(type.name(), keys[id], key);
+				assertTrue(type.name(), key >= last);
+				assertFalse(queue.contains(id));
+				last = key;
+			}
+		}
+	}
+
+	@Test
+	public void testLongHeapOrder() {
+		Random random = new Random(11);
+		LongHeap heap = new LongHeap();
+		long[] values = new long[500];
+		for(int i = 0; i < values.length; i++) {
+			values[i] = (long) random.nextInt(1000) << 32 | i;
+			heap.add(values[i]);
+		}
+		assertEquals(values.length, heap.size());
+		Arrays.sort(values);
+		for(long value : values) {
+			assertEquals(value, heap.poll());
+		}
+		assertTrue(heap.isEmpty());
+		heap.add(3);
+		heap.clear();
+		assertTrue(heap.isEmpty());
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		for(QueueType type : QueueType.values()) {
+			IndexedPriorityQueue queue = type.create();
+			queue.ensureCapacity(5);
+			queue.insert(0, 10);
+			queue.insert(1, 20);
+			queue.insert(2, 30);
+			queue.insert(3, 40);
+			queue.decreaseKey(3, 15);
+			queue.decreaseKey(2, 10);
+			assertEquals(type.name(), 10, queue.minKey());
+			queue.poll();
+			queue.poll();
+			assertEquals(type.name(), 3, queue.poll());
+			assertEquals(type.name(), 1, queue.poll());
+			assertTrue(queue.isEmpty());
+		}
+	}
+
+	@Test
+	public void testClearAndReuse() {
+		for(QueueType type : QueueType.values()) {
+			IndexedPriorityQueue queue = type.create();
+			queue.ensureCapacity(4);
+			queue.insert(0, 1);
+			queue.insert(1, 2);
+			queue.clear();
+			assertTrue(queue.isEmpty());
+			assertFalse(queue.contains(0));
+			queue.insert(1, 5);
+			assertTrue(queue.contains(1));
+			assertEquals(1, queue.poll());
+		}
+	}
+
+	@Test
+	public void testSameDistancesForEveryQueue() {
+		Random random = new Random(42);
+		TownGraph graph = new TownGraph();
+		Town[] town = new Town[300];
+		for(int i = 0; i < town.length; i++) {
+			town[i] = new Town("Town_" + i);
+			graph.addVertex(town[i]);
+		}
+		for(int i = 0; i < 1200; i++) {
+			graph.addEdge(town[random.nextInt(town.length)], town[random.nextInt(town.length)],
+					1 + random.nextInt(50), "Road_" + i);
+		}
+		CsrTownGraph csr = graph.freeze();
+		ShortestPathEngine engine = new ShortestPathEngine();
+		SearchWorkspace expected = new SearchWorkspace();
+		SearchWorkspace actual = new SearchWorkspace();
+		for(int source = 0; source < 20; source++) {
+			engine.shortestPathTree(csr, source, expected, QueueType.BINARY_HEAP);
+			for(QueueType type : QueueType.values()) {
+				engine.shortestPathTree(csr, source, actual, type);
+				for(int v = 0; v < csr.vertexCount(); v++) {
+					assertEquals(type.name(), expected.distance(v), actual.distance(v));
+				}
+			}
+		}
+	}
+}
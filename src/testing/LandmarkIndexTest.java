@@ -0,0 +1,136 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Road;
+import data_element.Town;
+import data_structure.CsrTownGraph;
+import data_structure.LandmarkIndex;
+import data_structure.QueueType;
+import data_structure.Route;
+import data_structure.SearchMode;
+import data_structure.SearchWorkspace;
+import data_structure.ShortestPathEngine;
+import data_structure.TownGraph;
+
+
+public class LandmarkIndexTest {
+	private TownGraph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(11);
+		graph = new TownGraph();
+		town = new Town[500];
+		for(int i = 0; i < town.length; i++) {
+			town[i] = new Town("Town_" + i);
+			graph.addVertex(town[i]);
+		}
+		for(int i = 1; i < town.length; i++) {
+			graph.addEdge(town[i], town[random.nextInt(i)], 1 + random.nextInt(40), "Road_" + i);
+		}
+		for(int i = 0; i < 800; i++) {
+			graph.addEdge(town[random.nextInt(town.length)], town[random.nextInt(town.length)],
+					1 + random.nextInt(40), "Extra_" + i);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		town = null;
+	}
+
+	@Test
+	public void testLowerBounds() {
+		CsrTownGraph csr = graph.freeze();
+		LandmarkIndex index = graph.preprocessLandmarks(6);
+		assertEquals(6, index.size());
+		ShortestPathEngine engine = new ShortestPathEngine();
+		SearchWorkspace ws = engine.acquire();
+		int[] target = new int[index.size()];
+		for(int t = 0; t < 50; t++) {
+			engine.shortestPathTree(csr, t, ws);
+			index.loadTarget(t, target);
+			for(int v = 0; v < csr.vertexCount(); v++) {
+				assertTrue(index.lowerBound(v, target) <= ws.distance(v));
+			}
+		}
+		engine.release(ws);
+	}
+
+	@Test
+	public void testLandmarksAreDistinct() {
+		int[] landmarks = new LandmarkIndex(graph.freeze(), 10, 3).getLandmarks();
+		assertEquals(10, landmarks.length);
+		for(int i = 0; i < landmarks.length; i++) {
+			for(int j = i + 1; j < landmarks.length; j++) {
+				assertNotEquals(landmarks[i], landmarks[j]);
+			}
+		}
+	}
+
+	@Test
+	public void testAltMatchesDijkstra() {
+		CsrTownGraph csr = graph.freeze();
+		LandmarkIndex index = graph.preprocessLandmarks(8);
+		ShortestPathEngine engine = new ShortestPathEngine();
+		Random random = new Random(3);
+		for(int i = 0; i < 300; i++) {
+			int s = random.nextInt(town.length);
+			int t = random.nextInt(town.length);
+			Route expected = engine.shortestRoute(csr, s, t);
+			for(QueueType type : QueueType.values()) {
+				Route actual = engine.altRoute(csr, index, s, t, type);
+				assertEquals(expected.getDistance(), actual.getDistance());
+			}
+		}
+	}
+
+	@Test
+	public void testKeptWhileRoadsLengthen() {
+		LandmarkIndex index = graph.preprocessLandmarks(6);
+		Random random = new Random(7);
+		for(int i = 1; i < 40; i++) {
+			Road road = graph.edgesOf(town[i]).iterator().next();
+			graph.updateWeight(road.getSource(), road.getDestination(), road.getWeight() + random.nextInt(20));
+		}
+		graph.removeEdge(town[200], graph.edgesOf(town[200]).iterator().next().getDestination(), -1, null);
+		LandmarkIndex kept = graph.getLandmarkIndex();
+		assertNotNull(kept);
+		assertArrayEquals(index.getLandmarks(), kept.getLandmarks());
+		for(int i = 0; i < 300; i++) {
+			Town s = town[random.nextInt(town.length)];
+			Town t = town[random.nextInt(town.length)];
+			Route expected = graph.route(s, t, SearchMode.BIDIRECTIONAL, QueueType.BINARY_HEAP);
+			Route actual = graph.route(s, t, SearchMode.ALT, QueueType.BUCKET_QUEUE);
+			assertEquals(expected == null, actual == null);
+			if(expected != null) {
+				assertEquals(expected.getDistance(), actual.getDistance());
+			}
+		}
+		assertSame(kept, graph.getLandmarkIndex());
+		Road road = graph.edgesOf(town[50]).iterator().next();
+		graph.updateWeight(road.getSource(), road.getDestination(), road.getWeight() - 1);
+		assertNull(graph.getLandmarkIndex());
+	}
+
+	@Test
+	public void testAltModeAfterChange() {
+		Route before = graph.route(town[3], town[400], SearchMode.ALT, QueueType.BUCKET_QUEUE);
+		assertEquals(graph.route(town[3], town[400], SearchMode.DIJKSTRA, QueueType.BINARY_HEAP).getDistance(),
+				before.getDistance());
+		graph.addEdge(town[3], town[400], 1, "Shortcut");
+		ArrayList<String> after = graph.shortestPath(town[3], town[400], SearchMode.ALT);
+		assertEquals(1, after.size());
+		assertEquals("Town_3 via Shortcut to Town_400 1 mi", after.get(0));
+	}
+}
@@ -0,0 +1,168 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Town;
+import data_manager.TownGraphManager;
+import data_structure.CsrTownGraph;
+import data_structure.Route;
+import data_structure.RouteConstraints;
+import data_structure.TownGraph;
+
+
+public class RouteConstraintsTest {
+	private TownGraphManager manager;
+	private String[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		  manager = new TownGraphManager();
+		  town = new String[12];
+
+		  for (int i = 1; i < 12; i++) {
+			  town[i] = "Town_" + i;
+			  manager.addTown(town[i]);
+		  }
+
+		  manager.addRoad(town[1], town[2], 2, "Road_1");
+		  manager.addRoad(town[1], town[3], 4, "Road_2");
+		  manager.addRoad(town[1], town[5], 6, "Road_3");
+		  manager.addRoad(town[3], town[7], 1, "Road_4");
+		  manager.addRoad(town[3], town[8], 2, "Road_5");
+		  manager.addRoad(town[4], town[8], 3, "Road_6");
+		  manager.addRoad(town[6], town[9], 3, "Road_7");
+		  manager.addRoad(town[9], town[10], 4, "Road_8");
+		  manager.addRoad(town[8], town[10], 2, "Road_9");
+		  manager.addRoad(town[5], town[10], 5, "Road_10");
+		  manager.addRoad(town[10], town[11], 3, "Road_11");
+		  manager.addRoad(town[2], town[11], 6, "Road_12");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		manager = null;
+	}
+
+	@Test
+	public void testAvoidRoadsAndTowns() {
+		ArrayList<String> path = manager.getPath(town[1], town[11], new RouteConstraints().avoidRoad(town[11], town[2]));
+		assertEquals(4, path.size());
+		assertEquals("Town_1 via Road_2 to Town_3 4 mi", path.get(0));
+		path = manager.getPath(town[1], town[11], new RouteConstraints().avoidTown(town[2]).avoidTown(town[8]));
+		assertEquals("Town_1 via Road_3 to Town_5 6 mi", path.get(0));
+		assertTrue(manager.getPath(town[1], town[11], new RouteConstraints().avoidTown(town[11])).isEmpty());
+		assertTrue(manager.getPath(town[6], town[1], new RouteConstraints().avoidRoad(town[6], town[9])).isEmpty());
+		assertEquals(2, manager.getPath(town[1], town[11], new RouteConstraints().avoidTown("Nowhere")).size());
+		assertEquals(2, manager.getPath(town[1], town[11]).size());
+	}
+
+	@Test
+	public void testLimits() {
+		assertEquals(3, manager.getPath(town[4], town[1], new RouteConstraints().maxMiles(9)).size());
+		assertTrue(manager.getPath(town[4], town[1], new RouteConstraints().maxMiles(8)).isEmpty());
+		assertEquals(3, manager.getPath(town[4], town[11], new RouteConstraints()).size());
+		assertTrue(manager.getPath(town[4], town[11], new RouteConstraints().maxHops(2)).isEmpty());
+		assertEquals(3, manager.getPath(town[1], town[10], new RouteConstraints().maxHops(3)).size());
+		ArrayList<String> path = manager.getPath(town[1], town[10], new RouteConstraints().maxHops(2));
+		assertEquals(2, path.size());
+		assertEquals("Town_1 via Road_3 to Town_5 6 mi", path.get(0));
+		assertTrue(manager.getPath(town[1], town[10], new RouteConstraints().maxHops(2).maxMiles(10)).isEmpty());
+	}
+
+	@Test
+	public void testHopLimitMatchesEnumeration() {
+		Random random = new Random(9);
+		TownGraph graph = new TownGraph();
+		Town[] t = new Town[10];
+		for(int i = 0; i < t.length; i++) {
+			t[i] = new Town("Town_" + i);
+			graph.addVertex(t[i]);
+		}
+		for(int i = 1; i < t.length; i++) {
+			graph.addEdge(t[i], t[random.nextInt(i)], 1 + random.nextInt(20), "Road_" + i);
+		}
+		for(int i = 0; i < 16; i++) {
+			int a = random.nextInt(t.length);
+			int b = random.nextInt(t.length);
+			if(a != b) {
+				graph.addEdge(t[a], t[b], 1 + random.nextInt(20), "Extra_" + i);
+			}
+		}
+		CsrTownGraph csr = graph.freeze();
+		for(int s = 0; s < t.length; s++) {
+			for(int d = 0; d < t.length; d++) {
+				for(int hops = 0; hops < 6; hops++) {
+					int best = shortest(csr, csr.idOf(t[s]), csr.idOf(t[d]), hops, new boolean[t.length]);
+					Route route = graph.route(t[s], t[d], new RouteConstraints().maxHops(hops));
+					if(best == Integer.MAX_VALUE) {
+						assertNull(route);
+					}else {
+						assertEquals(best, route.getDistance());
+						assertTrue(route.size() <= hops);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentConstraints() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<ArrayList<String>>> answers = new ArrayList<Future<ArrayList<String>>>();
+		for(int i = 0; i < 200; i++) {
+			final boolean closed = i % 2 == 0;
+			answers.add(pool.submit(new Callable<ArrayList<String>>() {
+				@Override
+				public ArrayList<String> call() {
+					RouteConstraints constraints = new RouteConstraints();
+					if(closed) {
+						constraints.avoidRoad(town[2], town[11]);
+					}
+					return manager.getPath(town[1], town[11], constraints);
+				}
+			}));
+		}
+		for(int i = 0; i < answers.size(); i++) {
+			assertEquals(i % 2 == 0 ? 4 : 2, answers.get(i).get().size());
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * The length of the shortest loopless path of at most hops roads, by
+	 * trying them all.
+	 */
+	private static int shortest(CsrTownGraph csr, int u, int target, int hops, boolean[] onPath) {
+		if(u == target) {
+			return 0;
+		}
+		if(hops == 0) {
+			return Integer.MAX_VALUE;
+		}
+		onPath[u] = true;
+		int best = Integer.MAX_VALUE;
+		for(int arc = csr.firstArc(u); arc < csr.endArc(u); arc++) {
+			int v = csr.arcTarget(arc);
+			if(!onPath[v]) {
+				int rest = shortest(csr, v, target, hops - 1, onPath);
+				if(rest != Integer.MAX_VALUE) {
+					best = Math.min(best, rest + csr.arcWeight(arc));
+				}
+			}
+		}
+		onPath[u] = false;
+		return best;
+	}
+}
@@ -0,0 +1,163 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_manager.PathBatcher;
+import data_manager.RoutingService;
+import data_manager.TownGraphManager;
+
+
+public class RoutingServiceTest {
+	private TownGraphManager manager;
+	private RoutingService service;
+	private String[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		  manager = new TownGraphManager();
+		  town = new String[12];
+
+		  for (int i = 1; i < 12; i++) {
+			  town[i] = "Town_" + i;
+			  manager.addTown(town[i]);
+		  }
+
+		  manager.addRoad(town[1], town[2], 2, "Road_1");
+		  manager.addRoad(town[1], town[3], 4, "Road_2");
+		  manager.addRoad(town[1], town[5], 6, "Road_3");
+		  manager.addRoad(town[3], town[7], 1, "Road_4");
+		  manager.addRoad(town[3], town[8], 2, "Road_5");
+		  manager.addRoad(town[4], town[8], 3, "Road_6");
+		  manager.addRoad(town[6], town[9], 3, "Road_7");
+		  manager.addRoad(town[9], town[10], 4, "Road_8");
+		  manager.addRoad(town[8], town[10], 2, "Road_9");
+		  manager.addRoad(town[5], town[10], 5, "Road_10");
+		  manager.addRoad(town[10], town[11], 3, "Road_11");
+		  manager.addRoad(town[2], town[11], 6, "Road_12");
+		  service = new RoutingService(manager, new InetSocketAddress("127.0.0.1", 0), 2000, 64);
+		  service.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		service.stop();
+		service = null;
+		manager = null;
+	}
+
+	@Test
+	public void testPath() throws Exception {
+		String json = get("/path?from=" + encode(town[1]) + "&to=" + encode(town[11]));
+		assertEquals("{\"from\":\"Town_1\",\"to\":\"Town_11\",\"path\":[\"Town_1 via Road_1 to Town_2 2 mi\","
+				+ "\"Town_2 via Road_12 to Town_11 6 mi\"]}", json);
+		assertEquals("{\"from\":\"Town_1\",\"to\":\"Town_12\",\"path\":[]}", get("/path?from=Town_1&to=Town_12"));
+	}
+
+	@Test
+	public void testPaths() throws Exception {
+		String json = post("/paths", "Town_1;Town_2\nTown_4;Town_8\n\nTown_1;Town_3\n");
+		assertEquals("[{\"from\":\"Town_1\",\"to\":\"Town_2\",\"path\":[\"Town_1 via Road_1 to Town_2 2 mi\"]},"
+				+ "{\"from\":\"Town_4\",\"to\":\"Town_8\",\"path\":[\"Town_4 via Road_6 to Town_8 3 mi\"]},"
+				+ "{\"from\":\"Town_1\",\"to\":\"Town_3\",\"path\":[\"Town_1 via Road_2 to Town_3 4 mi\"]}]", json);
+	}
+
+	@Test
+	public void testTowns() throws Exception {
+		assertEquals("{\"name\":\"Town_4\",\"exists\":true}", get("/town?name=Town_4"));
+		assertEquals("{\"name\":\"Nowhere\",\"exists\":false}", get("/town?name=Nowhere"));
+		assertTrue(get("/towns").startsWith("[\"Town_1\",\"Town_10\",\"Town_11\",\"Town_2\""));
+	}
+
+	@Test
+	public void testBadRequest() throws Exception {
+		HttpURLConnection connection = open("/path?from=Town_1");
+		assertEquals(400, connection.getResponseCode());
+		connection.disconnect();
+		connection = open("/path?from=Town_1&to=Town_%ZZ");
+		assertEquals(400, connection.getResponseCode());
+		connection.disconnect();
+		connection = open("/town?name=Town_%4");
+		assertEquals(400, connection.getResponseCode());
+		connection.disconnect();
+	}
+
+	@Test
+	public void testConcurrentQueriesAreBatched() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		List<Future<String>> answers = new ArrayList<Future<String>>();
+		for(int i = 0; i < 48; i++) {
+			final String to = town[2 + i % 10];
+			answers.add(pool.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return get("/path?from=Town_1&to=" + to);
+				}
+			}));
+		}
+		for(int i = 0; i < answers.size(); i++) {
+			String to = town[2 + i % 10];
+			String expected = "{\"from\":\"Town_1\",\"to\":\"" + to + "\",\"path\":[";
+			assertTrue(answers.get(i).get().startsWith(expected));
+		}
+		pool.shutdown();
+		PathBatcher batcher = service.getBatcher();
+		assertEquals(48, batcher.getQueryCount());
+		assertTrue(batcher.getBatchCount() < batcher.getQueryCount());
+	}
+
+	private HttpURLConnection open(String path) throws IOException {
+		return (HttpURLConnection) new URL("http://127.0.0.1:" + service.getPort() + path).openConnection();
+	}
+
+	private String get(String path) throws IOException {
+		HttpURLConnection connection = open(path);
+		assertEquals(200, connection.getResponseCode());
+		return read(connection.getInputStream());
+	}
+
+	private String post(String path, String body) throws IOException {
+		HttpURLConnection connection = open(path);
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try(OutputStream out = connection.getOutputStream()) {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		assertEquals(200, connection.getResponseCode());
+		return read(connection.getInputStream());
+	}
+
+	private static String read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int n;
+		while((n = in.read(buf)) > 0) {
+			out.write(buf, 0, n);
+		}
+		in.close();
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static String encode(String value) throws IOException {
+		return URLEncoder.encode(value, "UTF-8");
+	}
+}
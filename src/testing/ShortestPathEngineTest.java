@@ -0,0 +1,234 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Town;
+import data_structure.CsrTownGraph;
+import data_structure.Route;
+import data_structure.SearchMode;
+import data_structure.SearchWorkspace;
+import data_structure.ShortestPathEngine;
+import data_structure.TownGraph;
+
+
+public class ShortestPathEngineTest {
+	private TownGraph graph;
+	private CsrTownGraph csr;
+	private ShortestPathEngine engine;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		  graph = new TownGraph();
+		  town = new Town[12];
+
+		  for (int i = 1; i < 12; i++) {
+			  town[i] = new Town("Town_" + i);
+			  graph.addVertex(town[i]);
+		  }
+
+		  graph.addEdge(town[1], town[2], 2, "Road_1");
+		  graph.addEdge(town[1], town[3], 4, "Road_2");
+		  graph.addEdge(town[1], town[5], 6, "Road_3");
+		  graph.addEdge(town[3], town[7], 1, "Road_4");
+		  graph.addEdge(town[3], town[8], 2, "Road_5");
+		  graph.addEdge(town[4], town[8], 3, "Road_6");
+		  graph.addEdge(town[6], town[9], 3, "Road_7");
+		  graph.addEdge(town[9], town[10], 4, "Road_8");
+		  graph.addEdge(town[8], town[10], 2, "Road_9");
+		  graph.addEdge(town[5], town[10], 5, "Road_10");
+		  graph.addEdge(town[10], town[11], 3, "Road_11");
+		  graph.addEdge(town[2], town[11], 6, "Road_12");
+		  csr = graph.freeze();
+		  engine = new ShortestPathEngine();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		csr = null;
+		engine = null;
+	}
+
+	@Test
+	public void testShortestRoute() {
+		Route route = engine.shortestRoute(csr, csr.idOf(town[1]), csr.idOf(town[6]));
+		assertEquals(15, route.getDistance());
+		assertEquals(5, route.size());
+		assertEquals("Town_1 via Road_2 to Town_3 4 mi", route.describe().get(0));
+		assertEquals("Town_9 via Road_7 to Town_6 3 mi", route.describe().get(4));
+	}
+
+	@Test
+	public void testBidirectionalMatchesDijkstra() {
+		Random random = new Random(7);
+		TownGraph big = new TownGraph();
+		Town[] towns = new Town[400];
+		for(int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town_" + i);
+			big.addVertex(towns[i]);
+		}
+		for(int i = 0; i < 1000; i++) {
+			big.addEdge(towns[random.nextInt(towns.length)], towns[random.nextInt(towns.length)],
+					1 + random.nextInt(30), "Road_" + i);
+		}
+		CsrTownGraph frozen = big.freeze();
+		for(int i = 0; i < 300; i++) {
+			int s = random.nextInt(towns.length);
+			int t = random.nextInt(towns.length);
+			Route expected = engine.shortestRoute(frozen, s, t);
+			Route actual = engine.bidirectionalRoute(frozen, s, t);
+			if(expected == null) {
+				assertNull(actual);
+			}else {
+				assertEquals(expected.getDistance(), actual.getDistance());
+				int sum = 0;
+				int at = s;
+				for(int arc : actual.getArcs()) {
+					assertEquals(at, frozen.arcSource(arc));
+					sum += frozen.arcWeight(arc);
+					at = frozen.arcTarget(arc);
+				}
+				assertEquals(t, at);
+				assertEquals(expected.getDistance(), sum);
+			}
+		}
+	}
+
+	@Test
+	public void testMultiTargetSearch() {
+		SearchWorkspace ws = engine.acquire();
+		int source = csr.idOf(town[1]);
+		int[] targets = {csr.idOf(town[7]), csr.idOf(town[2]), csr.idOf(town[7])};
+		engine.shortestPathTree(csr, source, targets, ws, engine.getQueueType());
+		for(int t : targets) {
+			assertTrue(ws.isSettled(t));
+			assertEquals(engine.shortestRoute(csr, source, t).getDistance(), ws.distance(t));
+		}
+		assertFalse(ws.isSettled(csr.idOf(town[6])));
+		engine.release(ws);
+	}
+
+	@Test
+	public void testReachableWithinMatchesFullSearch() {
+		SearchWorkspace full = engine.acquire();
+		SearchWorkspace bounded = engine.acquire();
+		for(int source = 0; source < csr.vertexCount(); source++) {
+			engine.shortestPathTree(csr, source, full);
+			for(int budget = 0; budget < 20; budget += 3) {
+				int[] area = engine.reachableWithin(csr, source, budget, bounded, engine.getQueueType());
+				int inside = 0;
+				for(int v = 0; v < csr.vertexCount(); v++) {
+					if(full.distance(v) <= budget) {
+						inside++;
+						assertEquals(full.distance(v), bounded.distance(v));
+					}else {
+						assertFalse(bounded.isSettled(v));
+					}
+				}
+				assertEquals(inside, area.length);
+				assertEquals(source, area[0]);
+			}
+		}
+		engine.release(bounded);
+		engine.release(full);
+	}
+
+	@Test
+	public void testNearestFacilitiesMatchesPerTownSearch() {
+		int[] facilities = {csr.idOf(town[2]), csr.idOf(town[4]), csr.idOf(town[9])};
+		int[] facilityOf = new int[csr.vertexCount()];
+		SearchWorkspace all = engine.acquire();
+		SearchWorkspace one = engine.acquire();
+		engine.nearestFacilities(csr, facilities, facilityOf, all, engine.getQueueType());
+		for(int v = 0; v < csr.vertexCount(); v++) {
+			engine.shortestPathTree(csr, v, one);
+			int best = SearchWorkspace.UNREACHED;
+			for(int f : facilities) {
+				best = Math.min(best, one.distance(f));
+			}
+			assertEquals(best, all.distance(v));
+			assertEquals(best, one.distance(facilityOf[v]));
+			int[] nearest = engine.nearest(csr, v, 2, id -> id == facilities[0] || id == facilities[1] || id == facilities[2],
+					one, engine.getQueueType());
+			assertEquals(2, nearest.length);
+			assertEquals(best, one.distance(nearest[0]));
+			assertTrue(one.distance(nearest[0]) <= one.distance(nearest[1]));
+		}
+		engine.release(one);
+		engine.release(all);
+	}
+
+	@Test
+	public void testBidirectionalPath() {
+		ArrayList<String> path = graph.shortestPath(town[1], town[6], SearchMode.BIDIRECTIONAL);
+		assertEquals(graph.shortestPath(town[1], town[6]), path);
+		assertEquals(0, graph.shortestPath(town[6], town[6], SearchMode.BIDIRECTIONAL).size());
+	}
+
+	@Test
+	public void testUnreachable() {
+		Town lonely = new Town("Town_12");
+		graph.addVertex(lonely);
+		CsrTownGraph next = graph.freeze();
+		assertNull(engine.shortestRoute(next, next.idOf(town[1]), next.idOf(lonely)));
+		assertNull(engine.bidirectionalRoute(next, next.idOf(town[1]), next.idOf(lonely)));
+	}
+
+	@Test
+	public void testWorkspaceReuse() {
+		SearchWorkspace ws = engine.acquire();
+		engine.shortestPathTree(csr, csr.idOf(town[1]), ws);
+		assertEquals(8, ws.distance(csr.idOf(town[10])));
+		engine.shortestPathTree(csr, csr.idOf(town[11]), ws);
+		assertEquals(0, ws.distance(csr.idOf(town[11])));
+		assertEquals(SearchWorkspace.NO_ARC, ws.predArc(csr.idOf(town[11])));
+		assertEquals(8, ws.distance(csr.idOf(town[1])));
+		engine.release(ws);
+	}
+
+	@Test
+	public void testDijkstraDoesNotKeepStaleState() {
+		graph.dijkstraShortestPath(town[1]);
+		assertEquals(0, town[1].getDistance());
+		graph.dijkstraShortestPath(town[11]);
+		assertEquals(0, town[11].getDistance());
+		assertEquals(8, town[1].getDistance());
+		assertNull(town[11].getPred());
+	}
+
+	@Test
+	public void testConcurrentQueries() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		for(int i = 0; i < 200; i++) {
+			final int from = 1 + i % 11;
+			final int to = 1 + (i * 7) % 11;
+			results.add(pool.submit(new Callable<Integer>() {
+				public Integer call() {
+					Route route = engine.shortestRoute(csr, csr.idOf(town[from]), csr.idOf(town[to]));
+					return route.getDistance();
+				}
+			}));
+		}
+		for(int i = 0; i < 200; i++) {
+			int from = 1 + i % 11;
+			int to = 1 + (i * 7) % 11;
+			assertEquals(engine.shortestRoute(csr, csr.idOf(town[from]), csr.idOf(town[to])).getDistance(),
+					results.get(i).get().intValue());
+		}
+		pool.shutdown();
+	}
+}
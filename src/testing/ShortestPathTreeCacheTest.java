@@ -0,0 +1,136 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Town;
+import data_structure.CsrTownGraph;
+import data_structure.QueueType;
+import data_structure.Route;
+import data_structure.SearchMode;
+import data_structure.ShortestPathEngine;
+import data_structure.ShortestPathTree;
+import data_structure.ShortestPathTreeCache;
+import data_structure.TownGraph;
+
+
+public class ShortestPathTreeCacheTest {
+	private TownGraph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(5);
+		graph = new TownGraph();
+		town = new Town[200];
+		for(int i = 0; i < town.length; i++) {
+			town[i] = new Town("Town_" + i);
+			graph.addVertex(town[i]);
+		}
+		for(int i = 1; i < town.length; i++) {
+			graph.addEdge(town[i], town[random.nextInt(i)], 1 + random.nextInt(30), "Road_" + i);
+		}
+		for(int i = 0; i < 300; i++) {
+			graph.addEdge(town[random.nextInt(town.length)], town[random.nextInt(town.length)],
+					1 + random.nextInt(30), "Extra_" + i);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		town = null;
+	}
+
+	@Test
+	public void testTreeMatchesSearch() {
+		CsrTownGraph csr = graph.freeze();
+		ShortestPathEngine engine = new ShortestPathEngine();
+		ShortestPathTree tree = new ShortestPathTree(csr, 7, QueueType.BINARY_HEAP);
+		for(int t = 0; t < csr.vertexCount(); t++) {
+			Route expected = engine.shortestRoute(csr, 7, t);
+			Route actual = tree.route(t);
+			assertEquals(expected.getDistance(), actual.getDistance());
+			int sum = 0;
+			for(int arc : actual.getArcs()) {
+				sum += csr.arcWeight(arc);
+			}
+			assertEquals(expected.getDistance(), sum);
+		}
+		assertEquals(0, tree.route(7).size());
+	}
+
+	@Test
+	public void testAdmission() {
+		ShortestPathTreeCache cache = graph.getTreeCache();
+		List<Town> destinations = Arrays.asList(town[150], town[20]);
+		ArrayList<ArrayList<String>> first = graph.shortestPaths(town[3], destinations);
+		assertEquals(0, cache.size());
+		ArrayList<ArrayList<String>> second = graph.shortestPaths(town[3], destinations);
+		assertEquals(1, cache.size());
+		assertEquals(first, second);
+		assertEquals(first.get(0), graph.shortestPath(town[3], town[150]));
+		assertEquals(first.get(0), graph.shortestPath(town[3], town[150], SearchMode.ALT));
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		graph.shortestPaths(town[4], destinations);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testRepeatSourceIsServedFromTree() {
+		ShortestPathTreeCache cache = graph.getTreeCache();
+		ArrayList<String> first = graph.shortestPath(town[3], town[150]);
+		assertEquals(0, cache.size());
+		assertEquals(first, graph.shortestPath(town[3], town[150], SearchMode.BIDIRECTIONAL));
+		assertEquals(1, cache.size());
+		assertEquals(2, cache.getMisses());
+		ShortestPathEngine engine = new ShortestPathEngine();
+		CsrTownGraph csr = graph.freeze();
+		for(int t = 0; t < town.length; t += 7) {
+			Route expected = engine.shortestRoute(csr, csr.idOf(town[3]), csr.idOf(town[t]));
+			assertEquals(expected.describe(), graph.shortestPath(town[3], town[t]));
+		}
+		assertEquals(2, cache.getMisses());
+		assertEquals(town.length / 7 + 1, cache.getHits());
+		graph.shortestPath(town[9], town[150]);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testInvalidatedByChange() {
+		graph.dijkstraShortestPath(town[3]);
+		ShortestPathTreeCache cache = graph.getTreeCache();
+		assertEquals(1, cache.size());
+		int before = town[150].getDistance();
+		graph.addEdge(town[3], town[150], 1, "Shortcut");
+		assertEquals(0, cache.size());
+		ArrayList<String> path = graph.shortestPath(town[3], town[150]);
+		assertEquals(1, path.size());
+		graph.dijkstraShortestPath(town[3]);
+		assertEquals(Math.min(before, 1), town[150].getDistance());
+	}
+
+	@Test
+	public void testMemoryBudget() {
+		CsrTownGraph csr = graph.freeze();
+		long treeBytes = new ShortestPathTree(csr, 0, QueueType.BINARY_HEAP).memoryBytes();
+		ShortestPathTreeCache cache = new ShortestPathTreeCache(treeBytes * 3, 1);
+		for(int s = 0; s < 5; s++) {
+			assertNotNull(cache.treeFor(csr, s, QueueType.BINARY_HEAP));
+		}
+		assertEquals(3, cache.size());
+		assertEquals(2, cache.getEvictions());
+		assertTrue(cache.getUsedBytes() <= cache.getBudgetBytes());
+		assertNull(cache.lookup(csr, 0));
+		assertNotNull(cache.lookup(csr, 4));
+	}
+}
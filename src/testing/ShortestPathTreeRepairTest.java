@@ -0,0 +1,143 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Town;
+import data_structure.ChangeLog;
+import data_structure.CsrTownGraph;
+import data_structure.QueueType;
+import data_structure.Route;
+import data_structure.SearchMode;
+import data_structure.SearchWorkspace;
+import data_structure.ShortestPathTree;
+import data_structure.TownGraph;
+
+
+public class ShortestPathTreeRepairTest {
+	private TownGraph graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(11);
+		graph = new TownGraph();
+		town = new Town[300];
+		for(int i = 0; i < town.length; i++) {
+			town[i] = new Town("Town_" + i);
+			graph.addVertex(town[i]);
+		}
+		for(int i = 1; i < town.length; i++) {
+			graph.addEdge(town[i], town[random.nextInt(i)], 1 + random.nextInt(30), "Road_" + i);
+		}
+		for(int i = 0; i < 500; i++) {
+			int a = random.nextInt(town.length);
+			int b = random.nextInt(town.length);
+			if(a != b) {
+				graph.addEdge(town[a], town[b], 1 + random.nextInt(30), "Extra_" + i);
+			}
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		town = null;
+	}
+
+	@Test
+	public void testRepairMatchesFullSearch() {
+		Random random = new Random(3);
+		int[] sources = {0, 42, 299};
+		for(int s : sources) {
+			graph.monitor(town[s]);
+		}
+		for(int round = 0; round < 150; round++) {
+			CsrTownGraph csr = graph.freeze();
+			ChangeLog log = new ChangeLog();
+			int changes = 1 + random.nextInt(3);
+			for(int c = 0; c < changes; c++) {
+				int arc = random.nextInt(csr.arcCount());
+				String from = csr.town(csr.arcSource(arc)).getName();
+				String to = csr.town(csr.arcTarget(arc)).getName();
+				if(random.nextInt(10) == 0) {
+					log = new ChangeLog().removeRoad(from, to);
+					break;
+				}
+				log.updateWeight(from, to, 1 + random.nextInt(40));
+			}
+			graph.apply(log);
+			CsrTownGraph next = graph.freeze();
+			for(int s : sources) {
+				ShortestPathTree tree = graph.getMonitoredTree(town[s]);
+				assertSame(next, tree.getGraph());
+				assertTrue(tree.getRepairedCount() >= 0);
+				ShortestPathTree fresh = new ShortestPathTree(next, next.idOf(town[s]), QueueType.BINARY_HEAP);
+				for(int v = 0; v < next.vertexCount(); v++) {
+					assertEquals(fresh.distance(v), tree.distance(v));
+					Route route = tree.route(v);
+					if(route != null) {
+						int sum = 0;
+						for(int a : route.getArcs()) {
+							sum += next.arcWeight(a);
+						}
+						assertEquals(tree.distance(v), sum);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRepairIsLocal() {
+		ShortestPathTree tree = graph.monitor(town[0]);
+		CsrTownGraph csr = graph.freeze();
+		int offTree = -1;
+		for(int arc = 0; arc < csr.arcCount() && offTree < 0; arc++) {
+			int u = csr.arcSource(arc);
+			int v = csr.arcTarget(arc);
+			if(tree.predArc(v) != arc && tree.predArc(u) != csr.reverseArc(arc)) {
+				offTree = arc;
+			}
+		}
+		graph.apply(new ChangeLog().updateWeight(csr.town(csr.arcSource(offTree)).getName(),
+				csr.town(csr.arcTarget(offTree)).getName(), 1000));
+		ShortestPathTree repaired = graph.getMonitoredTree(town[0]);
+		assertEquals(0, repaired.getRepairedCount());
+		for(int v = 0; v < csr.vertexCount(); v++) {
+			assertEquals(tree.distance(v), repaired.distance(v));
+		}
+
+		graph.removeEdge(csr.town(csr.arcSource(offTree)), csr.town(csr.arcTarget(offTree)), -1, null);
+		assertEquals(csr.arcCount() - 2, graph.freeze().arcCount());
+		assertEquals(0, graph.getMonitoredTree(town[0]).getRepairedCount());
+
+		Town island = new Town("Island");
+		graph.addVertex(island);
+		ShortestPathTree rebuilt = graph.getMonitoredTree(town[0]);
+		assertEquals(-1, rebuilt.getRepairedCount());
+		assertEquals(SearchWorkspace.UNREACHED, rebuilt.distance(graph.freeze().idOf(island)));
+		assertTrue(graph.unmonitor(town[0]));
+		assertNull(graph.getMonitoredTree(town[0]));
+	}
+
+	@Test
+	public void testPathsReadFromMonitoredTree() {
+		graph.monitor(town[5]);
+		CsrTownGraph csr = graph.freeze();
+		Route before = graph.route(town[5], town[250], SearchMode.ALT, QueueType.BINARY_HEAP);
+		int arc = before.getArcs()[0];
+		graph.apply(new ChangeLog().updateWeight(csr.town(csr.arcSource(arc)).getName(),
+				csr.town(csr.arcTarget(arc)).getName(), csr.arcWeight(arc) + 50));
+		Route after = graph.route(town[5], town[250], SearchMode.ALT, QueueType.BINARY_HEAP);
+		assertTrue(graph.getMonitoredTree(town[5]).getRepairedCount() > 0);
+		assertEquals(graph.getMonitoredTree(town[5]).distance(graph.freeze().idOf(town[250])), after.getDistance());
+		assertTrue(after.getDistance() >= before.getDistance());
+		assertEquals(graph.shortestPath(town[5], town[250]), after.describe());
+	}
+}
@@ -0,0 +1,148 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import data_element.Town;
+import data_manager.TownGraphManager;
+import data_structure.CsrTownGraph;
+import data_structure.TownGraph;
+import data_structure.TravelTimeProfiles;
+
+
+public class TimeDependentRoutingTest {
+	private TownGraph graph;
+	private Town[] town;
+	private int[] rushTimes = {0, 420, 480, 600};
+	private int[] rushMinutes = {6, 6, 60, 6};
+
+	@Before
+	public void setUp() throws Exception {
+		  graph = new TownGraph();
+		  town = new Town[12];
+
+		  for (int i = 1; i < 12; i++) {
+			  town[i] = new Town("Town_" + i);
+			  graph.addVertex(town[i]);
+		  }
+
+		  graph.addEdge(town[1], town[2], 2, "Road_1");
+		  graph.addEdge(town[1], town[3], 4, "Road_2");
+		  graph.addEdge(town[1], town[5], 6, "Road_3");
+		  graph.addEdge(town[3], town[7], 1, "Road_4");
+		  graph.addEdge(town[3], town[8], 2, "Road_5");
+		  graph.addEdge(town[4], town[8], 3, "Road_6");
+		  graph.addEdge(town[6], town[9], 3, "Road_7");
+		  graph.addEdge(town[9], town[10], 4, "Road_8");
+		  graph.addEdge(town[8], town[10], 2, "Road_9");
+		  graph.addEdge(town[5], town[10], 5, "Road_10");
+		  graph.addEdge(town[10], town[11], 3, "Road_11");
+		  graph.addEdge(town[2], town[11], 6, "Road_12");
+		  graph.setProfile(town[2], town[11], rushTimes, rushMinutes);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		town = null;
+	}
+
+	@Test
+	public void testEvaluate() {
+		int[] times = {420, 540, 1080};
+		int[] minutes = {10, 40, 20};
+		assertEquals(10, TravelTimeProfiles.evaluate(times, minutes, 0, 3, 420));
+		assertEquals(25, TravelTimeProfiles.evaluate(times, minutes, 0, 3, 480));
+		assertEquals(40, TravelTimeProfiles.evaluate(times, minutes, 0, 3, 540));
+		assertEquals(20, TravelTimeProfiles.evaluate(times, minutes, 0, 3, 1080));
+		assertEquals(15, TravelTimeProfiles.evaluate(times, minutes, 0, 3, 0));
+		assertEquals(25, TravelTimeProfiles.evaluate(times, minutes, 0, 3, 480 + TravelTimeProfiles.PERIOD));
+		assertEquals(7, TravelTimeProfiles.evaluate(new int[] {300}, new int[] {7}, 0, 1, 5));
+	}
+
+	@Test
+	public void testRejectsInvalidProfiles() {
+		int[][][] bad = {
+				{{0, 10}, {50, 30}},
+				{{600, 0}, {5, 5}},
+				{{0, 1440}, {5, 5}},
+				{{0}, {-1}},
+				{{0, 10}, {5}},
+				{{0, 100}, {200, 5}},
+		};
+		for(int[][] profile : bad) {
+			try {
+				graph.setProfile(town[2], town[11], profile[0], profile[1]);
+				fail("Accepted " + profile[0].length + " breakpoints");
+			} catch(IllegalArgumentException e) {
+			}
+		}
+		graph.setProfile(town[2], town[11], new int[] {0, 10}, new int[] {50, 40});
+	}
+
+	@Test
+	public void testDepartureTimeChangesPath() {
+		assertEquals("Town_2 via Road_12 to Town_11 6 mi", graph.shortestPath(town[1], town[11], 0).get(1));
+		assertEquals(8, graph.timeDependentRoute(town[1], town[11], 0).getDistance());
+		assertEquals("Town_1 via Road_2 to Town_3 4 mi", graph.shortestPath(town[1], town[11], 478).get(0));
+		assertEquals(11, graph.timeDependentRoute(town[1], town[11], 478).getDistance());
+		assertEquals(13, graph.timeDependentRoute(town[11], town[2], 450).getDistance());
+		assertEquals(2, graph.shortestPath(town[1], town[11], 600 + TravelTimeProfiles.PERIOD).size());
+
+		graph.updateWeight(town[3], town[8], 9);
+		assertEquals("Town_1 via Road_3 to Town_5 6 mi", graph.shortestPath(town[1], town[11], 478).get(0));
+		assertEquals(14, graph.timeDependentRoute(town[1], town[11], 478).getDistance());
+		graph.setProfile(town[2], town[11], null, null);
+		assertEquals(2, graph.shortestPath(town[1], town[11], 478).size());
+		assertTrue(graph.shortestPath(town[1], new Town("Nowhere"), 0).isEmpty());
+	}
+
+	@Test
+	public void testProfilesInSnapshot() throws Exception {
+		graph.setProfile(town[1], town[3], new int[] {100}, new int[] {1});
+		CsrTownGraph csr = graph.freeze();
+		int arc = csr.findArc(csr.idOf(town[2]), csr.idOf(town[11]));
+		assertTrue(csr.hasProfiles());
+		assertEquals(csr.profile(arc), csr.profile(csr.reverseArc(arc)));
+		assertEquals(CsrTownGraph.NO_PROFILE, csr.profile(csr.findArc(csr.idOf(town[1]), csr.idOf(town[2]))));
+		assertEquals(33, csr.travelTime(arc, 450));
+
+		File file = File.createTempFile("towns", ".csr");
+		file.deleteOnExit();
+		csr.save(file);
+		CsrTownGraph loaded = CsrTownGraph.load(file);
+		for(int a = 0; a < csr.arcCount(); a++) {
+			assertEquals(csr.profile(a), loaded.profile(a));
+			for(int t = 0; t < TravelTimeProfiles.PERIOD; t += 37) {
+				assertEquals(csr.travelTime(a, t), loaded.travelTime(a, t));
+			}
+		}
+		TownGraph opened = new TownGraph(loaded);
+		opened.addEdge(town[4], town[7], 50, "Road_13");
+		assertEquals(8, opened.timeDependentRoute(town[1], town[11], 478).getDistance());
+		assertEquals(csr.profile(arc), opened.freeze().profile(opened.freeze().findArc(
+				opened.freeze().idOf(town[2]), opened.freeze().idOf(town[11]))));
+	}
+
+	@Test
+	public void testManagerGetPath() {
+		TownGraphManager manager = new TownGraphManager();
+		for(int i = 1; i <= 3; i++) {
+			manager.addTown("Town_" + i);
+		}
+		manager.addRoad("Town_1", "Town_2", 10, "Road_1");
+		manager.addRoad("Town_2", "Town_3", 10, "Road_2");
+		manager.addRoad("Town_1", "Town_3", 25, "Road_3");
+		assertTrue(manager.setProfile("Town_1", "Town_2", new int[] {480, 540, 600}, new int[] {10, 30, 10}));
+		assertFalse(manager.setProfile("Town_1", "Town_9", new int[] {0}, new int[] {1}));
+		assertEquals(2, manager.getPath("Town_1", "Town_3", 0).size());
+		assertEquals("Town_1 via Road_3 to Town_3 25 mi", manager.getPath("Town_1", "Town_3", 540).get(0));
+		assertEquals(2, manager.getPath("Town_1", "Town_3").size());
+		assertTrue(manager.getPath("Town_1", "Town_9", 0).isEmpty());
+	}
+}
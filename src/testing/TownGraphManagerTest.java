@@ -4,13 +4,33 @@ package testing;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import data_element.Town;
+import data_element.TownPair;
+import data_manager.MappedRoadFileLoader;
+import data_manager.PathCache;
+import data_manager.TownFileFormatException;
 import data_manager.TownGraphManager;
+import data_structure.CsrTownGraph;
+import data_structure.FacilityAssignment;
+import data_structure.SearchWorkspace;
+import data_structure.TownGraph;
 import interfaces.TownGraphManagerInterface;
 
 
@@ -168,4 +188,315 @@ public class TownGraphManagerTest {
 
 	}
 
+	@Test
+	public void testGetPathCache() {
+		PathCache cache = ((TownGraphManager) graph).getPathCache();
+		ArrayList<String> first = graph.getPath(town[1],town[10]);
+		first.clear();
+		ArrayList<String> second = graph.getPath(town[1],town[10]);
+		assertEquals(3, second.size());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		graph.addRoad(town[1], town[10], 1, "Road_13");
+		ArrayList<String> third = graph.getPath(town[1],town[10]);
+		assertEquals(1, third.size());
+		assertEquals("Town_1 via Road_13 to Town_10 1 mi",third.get(0).trim());
+		assertEquals(2, cache.getMisses());
+		assertEquals(1, cache.getInvalidations());
+	}
+
+	@Test
+	public void testGetPaths() {
+		ArrayList<TownPair> pairs = new ArrayList<TownPair>();
+		pairs.add(new TownPair(town[1], town[11]));
+		pairs.add(new TownPair(town[4], town[6]));
+		pairs.add(new TownPair(town[1], town[6]));
+		pairs.add(new TownPair(town[1], "Town_12"));
+		pairs.add(new TownPair(town[1], town[10]));
+		pairs.add(new TownPair(town[1], town[1]));
+		ArrayList<ArrayList<String>> paths = graph.getPaths(pairs);
+		assertEquals(pairs.size(), paths.size());
+		for(int i = 0; i < pairs.size(); i++) {
+			assertEquals(graph.getPath(pairs.get(i).getSource(), pairs.get(i).getDestination()), paths.get(i));
+		}
+		assertEquals(0, paths.get(3).size());
+		assertEquals(0, paths.get(5).size());
+		assertEquals(5, paths.get(2).size());
+	}
+
+	@Test
+	public void testPopulateTownGraph() throws Exception {
+		TownGraphManager loaded = new TownGraphManager();
+		String file = "I-95,12;Boston, MA;Providence, RI\n"
+				+ "\n"
+				+ "Route 1, Old,7;Providence, RI;Newport, RI\n"
+				+ "Broken;Boston, MA\n"
+				+ "I-90,x1;Boston, MA;Albany, NY\n"
+				+ "I-84,40;Providence, RI;Hartford, CT\n";
+		try {
+			loaded.populateTownGraph(new StringReader(file), false);
+			fail("Expected TownFileFormatException");
+		}catch(TownFileFormatException e) {
+			assertEquals(2, e.getErrorCount());
+			assertEquals(3, e.getLoaded());
+			assertTrue(e.getErrors().get(0).startsWith("line 4:"));
+			assertTrue(e.getErrors().get(1).startsWith("line 5:"));
+		}
+		assertEquals("I-95", loaded.getRoad("Boston, MA", "Providence, RI"));
+		assertEquals("Route 1, Old", loaded.getRoad("Newport, RI", "Providence, RI"));
+		assertFalse(loaded.containsTown("Albany, NY"));
+		ArrayList<String> path = loaded.getPath("Boston, MA", "Hartford, CT");
+		assertEquals("Boston, MA via I-95 to Providence, RI 12 mi", path.get(0).trim());
+		assertEquals("Providence, RI via I-84 to Hartford, CT 40 mi", path.get(1).trim());
+	}
+
+	@Test
+	public void testPopulateTownGraphParallel() throws Exception {
+		File file = File.createTempFile("roads", ".txt");
+		file.deleteOnExit();
+		StringBuilder text = new StringBuilder("I-95,12;Boston, MA;Providence, RI\r\n\n");
+		for(int i = 0; i < 200; i++) {
+			text.append("Road_").append(i).append(",").append(1 + i % 7).append(";Town_").append(i)
+					.append(";Town_").append(i + 1).append("\n");
+		}
+		text.append("Broken;Boston, MA\n");
+		text.append("Route 1, Old,7;Providence, RI;Newport, RI\n");
+		text.append("I-90,x1;Boston, MA;Albany, NY");
+		try(FileWriter out = new FileWriter(file)) {
+			out.write(text.toString());
+		}
+		TownGraphManager parallel = new TownGraphManager();
+		TownGraphManager streamed = new TownGraphManager();
+		try {
+			parallel.populateTownGraphParallel(file);
+			fail("Expected TownFileFormatException");
+		}catch(TownFileFormatException e) {
+			assertEquals(2, e.getErrorCount());
+			assertEquals(202, e.getLoaded());
+			assertTrue(e.getErrors().get(0).startsWith("line 203:"));
+			assertTrue(e.getErrors().get(1).startsWith("line 205:"));
+		}
+		try {
+			streamed.populateTownGraph(file);
+			fail("Expected TownFileFormatException");
+		}catch(TownFileFormatException e) {
+			assertEquals(2, e.getErrorCount());
+		}
+		assertEquals(streamed.allTowns(), parallel.allTowns());
+		assertEquals(streamed.allRoads(), parallel.allRoads());
+		assertEquals("Route 1, Old", parallel.getRoad("Newport, RI", "Providence, RI"));
+		assertEquals(streamed.getPath("Town_0", "Town_200"), parallel.getPath("Town_0", "Town_200"));
+		assertEquals(200, parallel.getPath("Town_0", "Town_200").size());
+		TownGraph chunked = new TownGraph();
+		try {
+			new MappedRoadFileLoader(new ForkJoinPool(3), 16).load(file, chunked);
+			fail("Expected TownFileFormatException");
+		}catch(TownFileFormatException e) {
+			assertTrue(e.getErrors().get(0).startsWith("line 203:"));
+		}
+		assertEquals(streamed.allTowns().size(), chunked.vertexSet().size());
+		assertEquals(streamed.allRoads().size(), chunked.edgeSet().size());
+	}
+
+	@Test
+	public void testParallelLoadMatchesSequential() throws Exception {
+		File file = File.createTempFile("roads", ".txt");
+		file.deleteOnExit();
+		Random random = new Random(17);
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < 30000; i++) {
+			if(i % 5000 == 4999) {
+				text.append("Broken line ").append(i).append("\n");
+				continue;
+			}
+			text.append(i % 3 == 0 ? "Route " + i + ", Spur" : "Road_" + i).append(",").append(1 + random.nextInt(50))
+					.append(";Town_").append(random.nextInt(3000)).append(";Town_").append(random.nextInt(3000))
+					.append(i % 2 == 0 ? "\r\n" : "\n");
+		}
+		try(FileWriter out = new FileWriter(file)) {
+			out.write(text.toString());
+		}
+		TownGraphManager streamed = new TownGraphManager();
+		TownGraphManager parallel = new TownGraphManager();
+		TownGraph chunked = new TownGraph();
+		MappedRoadFileLoader loader = new MappedRoadFileLoader(new ForkJoinPool(4), 8);
+		int[] errors = new int[3];
+		try {
+			streamed.populateTownGraph(file);
+		}catch(TownFileFormatException e) {
+			errors[0] = e.getErrorCount();
+		}
+		try {
+			parallel.populateTownGraphParallel(file);
+		}catch(TownFileFormatException e) {
+			errors[1] = e.getErrorCount();
+		}
+		try {
+			loader.load(file, chunked);
+		}catch(TownFileFormatException e) {
+			errors[2] = e.getErrorCount();
+		}
+		assertTrue(loader.getLastChunkCount() > 1);
+		assertArrayEquals(new int[] {6, 6, 6}, errors);
+		File snapshot = File.createTempFile("roads", ".csr");
+		snapshot.deleteOnExit();
+		streamed.saveSnapshot(snapshot);
+		ArrayList<String> expected = arcs(CsrTownGraph.load(snapshot));
+		parallel.saveSnapshot(snapshot);
+		assertEquals(expected, arcs(CsrTownGraph.load(snapshot)));
+		assertEquals(expected, arcs(chunked.freeze()));
+		assertEquals(streamed.getPath("Town_1", "Town_2999"), parallel.getPath("Town_1", "Town_2999"));
+	}
+
+	/**
+	 * Every arc of a snapshot described, sorted.
+	 */
+	private static ArrayList<String> arcs(CsrTownGraph csr) {
+		ArrayList<String> arcs = new ArrayList<String>(csr.describe(IntStream.range(0, csr.arcCount()).toArray()));
+		Collections.sort(arcs);
+		return arcs;
+	}
+
+	@Test
+	public void testApplyChanges() throws Exception {
+		TownGraphManager graphManager = (TownGraphManager) graph;
+		String log = "# morning closures\n"
+				+ "remove-road " + town[1] + ";" + town[2] + "\n"
+				+ "update-weight 1;" + town[1] + ";" + town[3] + "\n"
+				+ "add-road Bypass, North,2;" + town[3] + ";New_Town\n"
+				+ "\n"
+				+ "remove-town " + town[6] + "\n"
+				+ "add-town Empty_Town\n";
+		assertEquals(5, graphManager.applyChanges(new StringReader(log)));
+		assertFalse(graphManager.containsRoadConnection(town[1], town[2]));
+		assertFalse(graphManager.containsTown(town[6]));
+		assertTrue(graphManager.containsTown("Empty_Town"));
+		assertEquals("Bypass, North", graphManager.getRoad("New_Town", town[3]));
+		ArrayList<String> path = graphManager.getPath(town[1], "New_Town");
+		assertEquals("Town_1 via Road_2 to Town_3 1 mi", path.get(0).trim());
+		assertEquals(2, path.size());
+
+		ArrayList<String> before = graphManager.allRoads();
+		ArrayList<String> towns = graphManager.allTowns();
+		String conflict = "remove-town " + town[3] + "\n"
+				+ "add-road Spur,3;" + town[4] + ";Far_Town\n"
+				+ "remove-road " + town[1] + ";" + town[2] + "\n";
+		try {
+			graphManager.applyChanges(new StringReader(conflict));
+			fail("Expected TownFileFormatException");
+		}catch(TownFileFormatException e) {
+			assertEquals("line 3: no road between Town_1 and Town_2", e.getErrors().get(0));
+		}
+		assertEquals(before, graphManager.allRoads());
+		assertEquals(towns, graphManager.allTowns());
+		assertEquals(path, graphManager.getPath(town[1], "New_Town"));
+		assertEquals("Town_3 via Road_5 to Town_8 2 mi", graphManager.getPath(town[3], town[8]).get(0).trim());
+
+		try {
+			graphManager.applyChanges(new StringReader("remove-town " + town[3] + "\nclose-road x;y\n"));
+			fail("Expected TownFileFormatException");
+		}catch(TownFileFormatException e) {
+			assertEquals("line 2: unknown change close-road", e.getErrors().get(0));
+		}
+		assertTrue(graphManager.containsTown(town[3]));
+	}
+
+	@Test
+	public void testUpdateWeights() {
+		TownGraphManager graphManager = (TownGraphManager) graph;
+		assertEquals("Town_1 via Road_1 to Town_2 2 mi", graphManager.getPath(town[1], town[11]).get(0).trim());
+		assertTrue(graphManager.updateWeight(town[2], town[11], 30));
+		assertEquals("Town_10 via Road_11 to Town_11 3 mi", graphManager.getPath(town[1], town[11]).get(3).trim());
+		assertFalse(graphManager.updateWeight(town[1], town[11], 1));
+		ArrayList<TownPair> roads = new ArrayList<TownPair>();
+		roads.add(new TownPair(town[11], town[2]));
+		roads.add(new TownPair(town[1], "Nowhere"));
+		assertEquals(1, graphManager.updateWeights(roads, new int[] {1, 1}));
+		assertEquals("Town_2 via Road_12 to Town_11 1 mi", graphManager.getPath(town[1], town[11]).get(1).trim());
+	}
+
+	@Test
+	public void testReachableWithin() {
+		TownGraphManager graphManager = (TownGraphManager) graph;
+		LinkedHashMap<String, Integer> area = graphManager.reachableWithin(town[1], 6);
+		assertEquals(6, area.size());
+		assertEquals(town[1], area.keySet().iterator().next());
+		assertEquals(Integer.valueOf(4), area.get(town[3]));
+		assertEquals(Integer.valueOf(6), area.get(town[8]));
+		assertFalse(area.containsKey(town[10]));
+		int last = 0;
+		for(int miles : area.values()) {
+			assertTrue(last <= miles);
+			last = miles;
+		}
+		assertEquals(1, graphManager.reachableWithin(town[6], 2).size());
+		assertTrue(graphManager.reachableWithin("Nowhere", 10).isEmpty());
+	}
+
+	@Test
+	public void testNearestTowns() {
+		TownGraphManager graphManager = (TownGraphManager) graph;
+		HashSet<String> depots = new HashSet<String>(Arrays.asList(town[8], town[11], town[6]));
+		LinkedHashMap<String, Integer> nearest = graphManager.nearestTowns(town[1], 2, depots::contains);
+		assertEquals(2, nearest.size());
+		Iterator<String> names = nearest.keySet().iterator();
+		assertEquals(town[8], names.next());
+		assertEquals(town[11], names.next());
+		assertEquals(Integer.valueOf(8), nearest.get(town[11]));
+		assertEquals(3, graphManager.nearestTowns(town[1], 5, depots::contains).size());
+		assertEquals(Integer.valueOf(0), graphManager.nearestTowns(town[6], 1, depots::contains).get(town[6]));
+		assertTrue(graphManager.nearestTowns("Nowhere", 1, depots::contains).isEmpty());
+	}
+
+	@Test
+	public void testNearestFacilities() {
+		TownGraphManager graphManager = (TownGraphManager) graph;
+		graphManager.addTown("Town_12");
+		FacilityAssignment served = graphManager.nearestFacilities(Arrays.asList(town[1], town[6], "Nowhere"));
+		assertEquals(new Town(town[6]), served.getFacility(new Town(town[9])));
+		assertEquals(new Town(town[6]), served.getFacility(new Town(town[10])));
+		assertEquals(7, served.getDistance(new Town(town[10])));
+		assertEquals(new Town(town[1]), served.getFacility(new Town(town[11])));
+		assertEquals(new Town(town[1]), served.getFacility(new Town(town[1])));
+		assertNull(served.getFacility(new Town("Town_12")));
+		assertEquals(SearchWorkspace.UNREACHED, served.getDistance(new Town("Town_12")));
+		assertEquals(11, served.servedCount());
+	}
+
+	@Test
+	public void testLoadSnapshotKeepsCaching() throws Exception {
+		TownGraphManager graphManager = (TownGraphManager) graph;
+		File snapshot = File.createTempFile("roads", ".csr");
+		snapshot.deleteOnExit();
+		graphManager.saveSnapshot(snapshot);
+		for(int i = 0; i < 5; i++) {
+			graphManager.updateWeight(town[1], town[2], 3 + i);
+			graph.getPath(town[1], town[10]);
+		}
+		graphManager.loadSnapshot(snapshot);
+		PathCache cache = graphManager.getPathCache();
+		long hits = cache.getHits();
+		ArrayList<String> first = graph.getPath(town[1], town[10]);
+		assertEquals(first, graph.getPath(town[1], town[10]));
+		assertEquals(hits + 1, cache.getHits());
+		assertEquals("Town_1 via Road_1 to Town_2 2 mi", graph.getPath(town[1], town[2]).get(0).trim());
+	}
+
+	@Test
+	public void testGetPathCacheEviction() {
+		TownGraphManager small = new TownGraphManager(2);
+		small.addRoad(town[1], town[2], 2, "Road_1");
+		small.addRoad(town[2], town[3], 2, "Road_2");
+		small.getPath(town[1], town[2]);
+		small.getPath(town[1], town[3]);
+		small.getPath(town[1], town[2]);
+		small.getPath(town[2], town[3]);
+		assertEquals(2, small.getPathCache().size());
+		assertEquals(1, small.getPathCache().getEvictions());
+		small.getPath(town[1], town[2]);
+		assertEquals(2, small.getPathCache().getHits());
+		small.getPath(town[1], town[3]);
+		assertEquals(4, small.getPathCache().getMisses());
+	}
+
 }